@@ -3,12 +3,18 @@ import axios from 'axios';
 import SearchableSelect from '../components/SearchableSelect';
 
 const DesiCalculator = () => {
-  const [activeTab, setActiveTab] = useState('product'); // 'product' | 'manual'
+  const [activeTab, setActiveTab] = useState('product'); // 'product' | 'basket' | 'manual'
   const [selectedProductId, setSelectedProductId] = useState(null);
   const [result, setResult] = useState(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState('');
 
+  // Basket state
+  const [basketProductId, setBasketProductId] = useState(null);
+  const [basketQuantity, setBasketQuantity] = useState('1');
+  const [basketLines, setBasketLines] = useState([]);
+  const [basketQuote, setBasketQuote] = useState(null);
+
   // Manual calculator state
   const [widthCm, setWidthCm] = useState('');
   const [lengthCm, setLengthCm] = useState('');
@@ -52,6 +58,33 @@ const DesiCalculator = () => {
     }
   };
 
+  const addBasketLine = () => {
+    const qty = parseInt(basketQuantity, 10);
+    if (!basketProductId || !qty || qty <= 0) return;
+    setBasketLines((prev) => [...prev, { productId: basketProductId, quantity: qty }]);
+    setBasketQuote(null);
+  };
+
+  const removeBasketLine = (index) => {
+    setBasketLines((prev) => prev.filter((_, i) => i !== index));
+    setBasketQuote(null);
+  };
+
+  const handleBasketQuote = async () => {
+    if (basketLines.length === 0) return;
+    try {
+      setLoading(true);
+      setError('');
+      const res = await axios.post('/api/shipping/quote', { lines: basketLines });
+      setBasketQuote(res.data);
+    } catch (e) {
+      setError(e.response?.data || 'Hesaplama sırasında hata oluştu');
+      setBasketQuote(null);
+    } finally {
+      setLoading(false);
+    }
+  };
+
   return (
     <div>
       <div className="d-flex justify-content-between align-items-center mb-4">
@@ -68,6 +101,14 @@ const DesiCalculator = () => {
             Üründen Hesapla
           </button>
         </li>
+        <li className="nav-item">
+          <button
+            className={`nav-link ${activeTab === 'basket' ? 'active' : ''}`}
+            onClick={() => setActiveTab('basket')}
+          >
+            Sepet Hesapla
+          </button>
+        </li>
         <li className="nav-item">
           <button
             className={`nav-link ${activeTab === 'manual' ? 'active' : ''}`}
@@ -150,6 +191,96 @@ const DesiCalculator = () => {
         </>
       )}
 
+      {activeTab === 'basket' && (
+        <>
+          <div className="row mb-3 align-items-end">
+            <div className="col-md-6">
+              <SearchableSelect
+                label="Ürün Seç"
+                value={basketProductId}
+                onChange={(id) => setBasketProductId(id)}
+                searchEndpoint="/api/products/search"
+                placeholder="Ürün adı ara..."
+                wrapperClassName="mb-0"
+              />
+            </div>
+            <div className="col-md-2">
+              <label className="form-label">Adet</label>
+              <input
+                type="number"
+                className="form-control"
+                min="1"
+                value={basketQuantity}
+                onChange={(e) => setBasketQuantity(e.target.value)}
+              />
+            </div>
+            <div className="col-md-2">
+              <button className="btn btn-outline-primary w-100" onClick={addBasketLine} disabled={!basketProductId} style={{ height: 38 }}>
+                <i className="fas fa-plus me-2"></i>
+                Ekle
+              </button>
+            </div>
+            <div className="col-md-2">
+              <button className="btn btn-primary w-100" onClick={handleBasketQuote} disabled={basketLines.length === 0 || loading} style={{ height: 38 }}>
+                <i className="fas fa-calculator me-2"></i>
+                Hesapla
+              </button>
+            </div>
+          </div>
+
+          {error && (
+            <div className="alert alert-danger">{error}</div>
+          )}
+
+          {basketLines.length > 0 && (
+            <div className="card">
+              <div className="card-body">
+                <table className="table table-sm mb-0">
+                  <thead>
+                    <tr>
+                      <th>Ürün</th>
+                      <th>Adet</th>
+                      <th>Desi</th>
+                      <th>Kargo Ücreti</th>
+                      <th></th>
+                    </tr>
+                  </thead>
+                  <tbody>
+                    {basketLines.map((line, index) => {
+                      const quoted = basketQuote?.lines?.find((l) => l.productId === line.productId && l.quantity === line.quantity);
+                      return (
+                        <tr key={index}>
+                          <td>{quoted?.sku || `#${line.productId}`}</td>
+                          <td>{line.quantity}</td>
+                          <td>{quoted ? Number(quoted.desi).toFixed(2) : '-'}</td>
+                          <td>{quoted ? `₺${Number(quoted.shippingCost).toFixed(2)}` : '-'}</td>
+                          <td className="text-end">
+                            <button className="btn btn-sm btn-outline-danger" onClick={() => removeBasketLine(index)}>
+                              <i className="fas fa-trash"></i>
+                            </button>
+                          </td>
+                        </tr>
+                      );
+                    })}
+                  </tbody>
+                  {basketQuote && (
+                    <tfoot>
+                      <tr className="fw-bold">
+                        <td>Toplam</td>
+                        <td>{basketQuote.totalQuantity}</td>
+                        <td>{Number(basketQuote.totalDesi).toFixed(2)}</td>
+                        <td>₺{Number(basketQuote.totalShippingCost).toFixed(2)}</td>
+                        <td></td>
+                      </tr>
+                    </tfoot>
+                  )}
+                </table>
+              </div>
+            </div>
+          )}
+        </>
+      )}
+
       {activeTab === 'manual' && (
         <div className="card">
           <div className="card-body">
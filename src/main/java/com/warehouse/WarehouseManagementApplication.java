@@ -5,8 +5,10 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class WarehouseManagementApplication {
 
     public static void main(String[] args) {
@@ -17,7 +19,7 @@ public class WarehouseManagementApplication {
     public FilterRegistrationBean<SimpleAuthFilter> simpleAuthFilterRegistration(SimpleAuthFilter filter) {
         FilterRegistrationBean<SimpleAuthFilter> reg = new FilterRegistrationBean<>();
         reg.setFilter(filter);
-        reg.addUrlPatterns("/api/*");
+        reg.addUrlPatterns("/api/*", "/actuator/jfr", "/actuator/jfr/*", "/actuator/hotkeys");
         reg.setOrder(1);
         return reg;
     }
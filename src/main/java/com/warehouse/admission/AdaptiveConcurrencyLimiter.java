@@ -0,0 +1,165 @@
+package com.warehouse.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit with a bounded FIFO queue whose limit follows observed latency. Each
+ * completed request compares short-term latency with the long-term baseline; while the two agree
+ * the limit grows by about its square root, and as short-term latency rises above
+ * {@code tolerance} times the baseline the limit is scaled down proportionally. Failed requests
+ * (5xx, exceptions) cut the limit by 10%. Samples taken while less than half the limit is in use
+ * say nothing about capacity and leave the limit alone.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW_ALPHA = 0.2;
+    private static final double LONG_WINDOW_ALPHA = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition capacityAvailable = lock.newCondition();
+
+    // Written under the lock; volatile so metrics can read them without it
+    private volatile double limit;
+    private volatile int inflight;
+    private volatile int queued;
+    private double shortRttNanos = Double.NaN;
+    private double longRttNanos = Double.NaN;
+
+    public AdaptiveConcurrencyLimiter(AdmissionProperties.Limit settings, double tolerance) {
+        if (settings.getMinLimit() < 1 || settings.getMaxLimit() < settings.getMinLimit()) {
+            throw new IllegalArgumentException("Admission limits need 1 <= min-limit <= max-limit");
+        }
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.maxQueue = settings.getMaxQueue();
+        this.maxWaitNanos = settings.getMaxWait().toNanos();
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, settings.getInitialLimit()));
+    }
+
+    /**
+     * Admits the caller, waiting in line up to the configured maximum if the limit is reached.
+     *
+     * @throws AdmissionRejectedException when the queue is full or the wait times out
+     */
+    public Permit acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            // Newcomers never overtake queued requests
+            if (queued == 0 && inflight < currentLimit()) {
+                inflight++;
+                return new Permit();
+            }
+            if (queued >= maxQueue) {
+                throw new AdmissionRejectedException(AdmissionRejectedException.Reason.QUEUE_FULL, retryAfterSeconds());
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inflight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        throw new AdmissionRejectedException(AdmissionRejectedException.Reason.TIMEOUT, retryAfterSeconds());
+                    }
+                    remaining = capacityAvailable.awaitNanos(remaining);
+                }
+                inflight++;
+                return new Permit();
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private void onComplete(long rttNanos, boolean success) {
+        lock.lock();
+        try {
+            int inflightAtSample = inflight;
+            inflight--;
+            int before = currentLimit();
+            if (!success) {
+                limit = Math.max(minLimit, limit * 0.9);
+            } else {
+                sample(rttNanos, inflightAtSample);
+            }
+            if (currentLimit() > before) {
+                capacityAvailable.signalAll();
+            } else {
+                capacityAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sample(long rttNanos, int inflightAtSample) {
+        if (Double.isNaN(shortRttNanos)) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += SHORT_WINDOW_ALPHA * (rttNanos - shortRttNanos);
+        longRttNanos += LONG_WINDOW_ALPHA * (rttNanos - longRttNanos);
+        // After a slow period the baseline would lag behind for a long time; pull it down faster
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+        if (inflightAtSample < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    // Time for the queue ahead to drain at the current limit and latency
+    private long retryAfterSeconds() {
+        double rtt = Double.isNaN(shortRttNanos) ? TimeUnit.SECONDS.toNanos(1) : shortRttNanos;
+        double seconds = (queued + 1) * rtt / Math.max(1, currentLimit()) / TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, (long) Math.ceil(seconds)));
+    }
+
+    public final class Permit {
+
+        private final long startedAt = System.nanoTime();
+        private boolean released;
+
+        private Permit() {
+        }
+
+        public void release(boolean success) {
+            if (!released) {
+                released = true;
+                onComplete(System.nanoTime() - startedAt, success);
+            }
+        }
+    }
+}
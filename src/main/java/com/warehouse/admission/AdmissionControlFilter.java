@@ -0,0 +1,125 @@
+package com.warehouse.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead in front of the API: reads, single writes and bulk writes each get their own
+ * {@link AdaptiveConcurrencyLimiter}, so a burst in one class cannot take every database
+ * connection. When a class is saturated the request is turned away immediately with 429 (queue
+ * full) or, after waiting its turn too long, with 503; both carry Retry-After.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public static final String INFLIGHT = "warehouse.admission.inflight";
+    public static final String QUEUED = "warehouse.admission.queued";
+    public static final String LIMIT = "warehouse.admission.limit";
+    public static final String REJECTED = "warehouse.admission.rejected";
+    public static final String WAIT = "warehouse.admission.wait";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<String> readPaths;
+    private final List<String> bulkPaths;
+    private final Map<TrafficClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(TrafficClass.class);
+    private final Map<TrafficClass, Timer> waitTimers = new EnumMap<>(TrafficClass.class);
+    private final MeterRegistry registry;
+
+    public AdmissionControlFilter(AdmissionProperties properties, MeterRegistry registry) {
+        this.readPaths = List.copyOf(properties.getReadPaths());
+        this.bulkPaths = List.copyOf(properties.getBulkPaths());
+        this.registry = registry;
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                    properties.limitFor(trafficClass), properties.getLatencyTolerance());
+            limiters.put(trafficClass, limiter);
+            String tag = trafficClass.tagValue();
+            Gauge.builder(LIMIT, limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current adaptive concurrency limit").tag("class", tag).register(registry);
+            Gauge.builder(INFLIGHT, limiter, AdaptiveConcurrencyLimiter::getInflight)
+                    .description("Admitted requests in progress").tag("class", tag).register(registry);
+            Gauge.builder(QUEUED, limiter, AdaptiveConcurrencyLimiter::getQueued)
+                    .description("Requests waiting for admission").tag("class", tag).register(registry);
+            waitTimers.put(trafficClass, Timer.builder(WAIT)
+                    .description("Time spent waiting for admission").tag("class", tag).register(registry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        TrafficClass trafficClass = classify(request);
+        AdaptiveConcurrencyLimiter.Permit permit;
+        long waitStarted = System.nanoTime();
+        try {
+            permit = limiters.get(trafficClass).acquire();
+        } catch (AdmissionRejectedException e) {
+            reject(response, trafficClass, e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, trafficClass, new AdmissionRejectedException(AdmissionRejectedException.Reason.TIMEOUT, 1));
+            return;
+        } finally {
+            waitTimers.get(trafficClass).record(System.nanoTime() - waitStarted, TimeUnit.NANOSECONDS);
+        }
+
+        boolean success = false;
+        try {
+            filterChain.doFilter(request, response);
+            success = response.getStatus() < 500;
+        } finally {
+            permit.release(success);
+        }
+    }
+
+    // Matched on the decoded, normalised path the request is routed by, not the raw URI
+    TrafficClass classify(HttpServletRequest request) {
+        String path = request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : "");
+        for (String pattern : bulkPaths) {
+            if (pathMatcher.match(pattern, path)) {
+                return TrafficClass.BULK_WRITE;
+            }
+        }
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return TrafficClass.READ;
+        }
+        for (String pattern : readPaths) {
+            if (pathMatcher.match(pattern, path)) {
+                return TrafficClass.READ;
+            }
+        }
+        return TrafficClass.WRITE;
+    }
+
+    private void reject(HttpServletResponse response, TrafficClass trafficClass, AdmissionRejectedException e)
+            throws IOException {
+        Counter.builder(REJECTED)
+                .description("Requests turned away by admission control")
+                .tag("class", trafficClass.tagValue())
+                .tag("reason", e.getReason().name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment();
+
+        response.setStatus(e.getReason() == AdmissionRejectedException.Reason.QUEUE_FULL ? 429 : 503);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(e.getMessage());
+    }
+}
@@ -0,0 +1,56 @@
+package com.warehouse.admission;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admission control settings ({@code app.admission.*}). Keep {@code write.max-limit} plus
+ * {@code bulk.max-limit} below the connection pool size so reads always find a connection.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    /** Non-GET endpoints that only read and are admitted as reads. */
+    private List<String> readPaths = new ArrayList<>(List.of("/api/shipping/quote", "/api/shipping/quote/**",
+            "/api/fulfilment/options"));
+
+    /** Endpoints that write many rows per request. */
+    private List<String> bulkPaths = new ArrayList<>(List.of("/api/rebalancing/execute", "/api/maintenance/**",
+            "/api/analytics/transfers/rebuild", "/api/analytics/inventory/cube/refresh", "/api/allocations/**",
+            "/api/stocks/warehouse/*/cycle-count"));
+
+    /** How much slower than the long-term latency recent requests may get before the limit shrinks. */
+    private double latencyTolerance = 1.5;
+
+    private Limit read = new Limit(16, 4, 64, 200, Duration.ofSeconds(1));
+    private Limit write = new Limit(4, 2, 6, 50, Duration.ofSeconds(2));
+    private Limit bulk = new Limit(1, 1, 2, 5, Duration.ofSeconds(5));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+        private int maxQueue;
+        private Duration maxWait;
+    }
+
+    public Limit limitFor(TrafficClass trafficClass) {
+        return switch (trafficClass) {
+            case READ -> read;
+            case WRITE -> write;
+            case BULK_WRITE -> bulk;
+        };
+    }
+}
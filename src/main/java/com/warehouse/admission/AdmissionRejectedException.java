@@ -0,0 +1,23 @@
+package com.warehouse.admission;
+
+public class AdmissionRejectedException extends RuntimeException {
+
+    public enum Reason { QUEUE_FULL, TIMEOUT }
+
+    private final Reason reason;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(Reason reason, long retryAfterSeconds) {
+        super(reason == Reason.QUEUE_FULL ? "Too many requests queued" : "Timed out waiting for capacity");
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package com.warehouse.admission;
+
+import java.util.Locale;
+
+/**
+ * Admission classes, each with its own concurrency limit and queue.
+ */
+public enum TrafficClass {
+    READ,
+    WRITE,
+    BULK_WRITE;
+
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
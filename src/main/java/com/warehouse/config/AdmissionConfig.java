@@ -0,0 +1,27 @@
+package com.warehouse.config;
+
+import com.warehouse.admission.AdmissionControlFilter;
+import com.warehouse.admission.AdmissionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.admission", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilterRegistration(
+            AdmissionProperties properties, MeterRegistry registry) {
+        FilterRegistrationBean<AdmissionControlFilter> reg = new FilterRegistrationBean<>();
+        reg.setFilter(new AdmissionControlFilter(properties, registry));
+        reg.addUrlPatterns("/api/*");
+        // After authentication so unauthenticated requests never take a slot
+        reg.setOrder(2);
+        return reg;
+    }
+}
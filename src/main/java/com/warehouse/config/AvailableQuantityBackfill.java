@@ -0,0 +1,45 @@
+package com.warehouse.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Migration step for databases created before {@code stocks.available_quantity} existed. The
+ * schema update adds the column empty; this fills it in for rows that have never been written
+ * since, before anything reads it. Later writes keep it current through the entity callbacks and
+ * {@code StockRepository.applyDelta}. Once every row is filled the lookup finds nothing through
+ * the column's index. See {@code db/postgres/available-quantity.sql} for the same step in batches.
+ */
+@Component
+@ConditionalOnProperty(name = "app.stocks.backfill-available-quantity", havingValue = "true", matchIfMissing = true)
+// Runs after Hibernate has added the column
+@DependsOn("entityManagerFactory")
+public class AvailableQuantityBackfill implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailableQuantityBackfill.class);
+
+    private final JdbcTemplate jdbc;
+
+    @Autowired
+    public AvailableQuantityBackfill(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        int filled = jdbc.update("UPDATE stocks SET available_quantity = COALESCE(quantity, 0) "
+                + "- COALESCE(reserved_quantity, 0) - COALESCE(consigned_quantity, 0) "
+                + "WHERE available_quantity IS NULL");
+        if (filled > 0) {
+            log.info("Filled in available_quantity for {} stock row(s)", filled);
+        }
+    }
+}
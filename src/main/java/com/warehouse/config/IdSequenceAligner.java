@@ -0,0 +1,80 @@
+package com.warehouse.config;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+/**
+ * Migration step for databases whose ids came from IDENTITY columns. Hibernate's schema update
+ * creates the entity id sequences starting at 1, which would hand out ids that are already
+ * taken. After the schema update, and before anything inserts, this moves every sequence that
+ * is behind its table past the table's highest id.
+ * <p>
+ * A sequence is only moved when the next block it would hand out could collide, so a sequence
+ * that is already in use, possibly by another node, is never touched. PostgreSQL only; H2 dev
+ * databases are created fresh. See {@code db/postgres/sequence-ids.sql} for the same step by hand.
+ */
+@Component
+@ConditionalOnProperty(name = "app.id-sequences.align-on-startup", havingValue = "true", matchIfMissing = true)
+public class IdSequenceAligner implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    private final JdbcTemplate jdbc;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // The factory is injected so this runs after Hibernate has created the sequences
+    @Autowired
+    public IdSequenceAligner(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String database = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            return;
+        }
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            Table table = type.getAnnotation(Table.class);
+            for (Field field : type.getDeclaredFields()) {
+                SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+                if (table != null && generator != null && field.isAnnotationPresent(Id.class)) {
+                    Column column = field.getAnnotation(Column.class);
+                    String columnName = column != null && !column.name().isEmpty() ? column.name() : field.getName();
+                    align(generator.sequenceName(), generator.allocationSize(), table.name(), columnName);
+                }
+            }
+        }
+    }
+
+    private void align(String sequence, int allocationSize, String table, String column) {
+        Map<String, Object> state = jdbc.queryForMap("SELECT last_value, is_called FROM " + sequence);
+        long lastValue = ((Number) state.get("last_value")).longValue();
+        boolean called = Boolean.TRUE.equals(state.get("is_called"));
+        // pooled-lo: the next call returns the low end of the next block
+        long nextBlockStart = called ? lastValue + allocationSize : lastValue;
+        Long maxId = jdbc.queryForObject("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table, Long.class);
+        if (maxId != null && maxId >= nextBlockStart) {
+            jdbc.queryForObject("SELECT setval(CAST(? AS regclass), ?, true)", Long.class, sequence, maxId);
+            log.info("Moved sequence {} past the highest id in {} ({})", sequence, table, maxId);
+        }
+    }
+}
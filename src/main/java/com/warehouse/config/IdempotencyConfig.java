@@ -0,0 +1,31 @@
+package com.warehouse.config;
+
+import com.warehouse.idempotency.IdempotencyFilter;
+import com.warehouse.idempotency.IdempotencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilterRegistration(
+            IdempotencyService idempotencyService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry registry,
+            @Value("${app.idempotency.duplicate-wait:PT10S}") Duration duplicateWait,
+            @Value("${app.idempotency.url-patterns:/api/stocks/*,/api/stock-transfers/*}") String[] urlPatterns) {
+        FilterRegistrationBean<IdempotencyFilter> reg = new FilterRegistrationBean<>();
+        reg.setFilter(new IdempotencyFilter(idempotencyService, transactionManager, duplicateWait, registry));
+        reg.addUrlPatterns(urlPatterns);
+        // After authentication and admission control
+        reg.setOrder(3);
+        return reg;
+    }
+}
@@ -0,0 +1,11 @@
+package com.warehouse.config;
+
+import com.warehouse.inventory.InventoryEngineProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+// The engine bean itself always exists and stays idle unless app.inventory-engine.enabled is set
+@Configuration
+@EnableConfigurationProperties(InventoryEngineProperties.class)
+public class InventoryEngineConfig {
+}
@@ -0,0 +1,38 @@
+package com.warehouse.config;
+
+import com.warehouse.metrics.QueryCountFilter;
+import com.warehouse.metrics.QueryCountInspector;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per-request SQL statement counting ({@code app.query-guard.*}).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.query-guard", name = "enabled", matchIfMissing = true)
+public class QueryGuardConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountInspectorCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilterRegistration(
+            MeterRegistry registry,
+            @Value("${app.query-guard.warn-threshold:30}") int warnThreshold,
+            @Value("${app.query-guard.repeat-threshold:10}") int repeatThreshold) {
+        FilterRegistrationBean<QueryCountFilter> reg = new FilterRegistrationBean<>();
+        reg.setFilter(new QueryCountFilter(registry, warnThreshold, repeatThreshold));
+        reg.addUrlPatterns("/api/*");
+        // Ahead of the auth filter so rejected requests are counted too
+        reg.setOrder(0);
+        return reg;
+    }
+}
@@ -0,0 +1,26 @@
+package com.warehouse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection settings for the optional read replica ({@code app.datasource.replica.*}).
+ * Pool tuning goes under {@code app.datasource.replica.hikari.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+
+    /** Read-only transactions fall back to the primary while the replica lags more than this. */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /** How often the primary heartbeat is written and the replica lag is measured. */
+    private Duration heartbeatInterval = Duration.ofSeconds(1);
+}
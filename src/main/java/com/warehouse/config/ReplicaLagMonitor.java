@@ -0,0 +1,119 @@
+package com.warehouse.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Measures replica staleness with a heartbeat row: the primary stores the current time, the
+ * replica is asked for the value it has replicated, and the difference is the lag. The replica
+ * is only used while that lag stays within {@code maxLag}; a replica that is unreachable or has
+ * never seen the heartbeat table counts as stale.
+ */
+public class ReplicaLagMonitor implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, beat_at_ms BIGINT NOT NULL)";
+    private static final String UPDATE_BEAT = "UPDATE replication_heartbeat SET beat_at_ms = ? WHERE id = 1";
+    private static final String INSERT_BEAT = "INSERT INTO replication_heartbeat (id, beat_at_ms) VALUES (1, ?)";
+    private static final String SELECT_BEAT = "SELECT beat_at_ms FROM replication_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+
+    private volatile boolean tableReady;
+    private volatile boolean replicaUsable;
+    private volatile long lastLagMs = -1;
+    private volatile String lastError;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, Duration heartbeatInterval) {
+        if (maxLag.compareTo(heartbeatInterval) <= 0) {
+            throw new IllegalStateException("app.datasource.replica.max-lag must be greater than the heartbeat interval");
+        }
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout((int) Math.max(1, heartbeatInterval.toSeconds()));
+        this.maxLagMs = maxLag.toMillis();
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.heartbeat-interval:PT1S}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            writeBeat(now);
+        } catch (DataAccessException e) {
+            // Without a fresh beat on the primary the replica lag cannot be trusted
+            markStale(-1, "Heartbeat write failed: " + e.getMostSpecificCause().getMessage());
+            return;
+        }
+
+        try {
+            List<Long> beats = replica.queryForList(SELECT_BEAT, Long.class);
+            if (beats.isEmpty()) {
+                markStale(-1, "Replica has no heartbeat yet");
+                return;
+            }
+            long lag = Math.max(0, now - beats.get(0));
+            if (lag > maxLagMs) {
+                markStale(lag, "Replica lag " + lag + " ms exceeds " + maxLagMs + " ms");
+            } else {
+                markFresh(lag);
+            }
+        } catch (DataAccessException e) {
+            markStale(-1, "Replica check failed: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = replicaUsable ? Health.up() : Health.status("FALLBACK");
+        builder.withDetail("lagMs", lastLagMs).withDetail("maxLagMs", maxLagMs);
+        if (!replicaUsable && lastError != null) {
+            builder.withDetail("reason", lastError);
+        }
+        return builder.build();
+    }
+
+    private void writeBeat(long now) {
+        if (!tableReady) {
+            primary.execute(CREATE_TABLE);
+            tableReady = true;
+        }
+        if (primary.update(UPDATE_BEAT, now) == 0) {
+            primary.update(INSERT_BEAT, now);
+        }
+    }
+
+    private void markFresh(long lag) {
+        lastLagMs = lag;
+        lastError = null;
+        if (!replicaUsable) {
+            replicaUsable = true;
+            log.info("Read replica in use (lag {} ms)", lag);
+        }
+    }
+
+    private void markStale(long lag, String reason) {
+        lastLagMs = lag;
+        lastError = reason;
+        if (replicaUsable) {
+            replicaUsable = false;
+            log.warn("Routing read-only transactions to the primary: {}", reason);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.AllocationBatchRequest;
+import com.warehouse.dto.AllocationBatchResultDto;
+import com.warehouse.service.OrderAllocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/allocations")
+@CrossOrigin(origins = "*")
+public class AllocationController {
+
+    private final OrderAllocationService orderAllocationService;
+
+    @Autowired
+    public AllocationController(OrderAllocationService orderAllocationService) {
+        this.orderAllocationService = orderAllocationService;
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> allocateBatch(@RequestBody AllocationBatchRequest request) {
+        try {
+            AllocationBatchResultDto result = orderAllocationService.allocate(request);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
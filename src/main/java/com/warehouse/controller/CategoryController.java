@@ -2,7 +2,6 @@ package com.warehouse.controller;
 
 import com.warehouse.entity.Category;
 import com.warehouse.service.CategoryService;
-import com.warehouse.repository.CategoryRepository;
 import com.warehouse.dto.CategoryDto;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,12 +16,10 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
-    private final CategoryRepository categoryRepository;
 
     @Autowired
-    public CategoryController(CategoryService categoryService, CategoryRepository categoryRepository) {
+    public CategoryController(CategoryService categoryService) {
         this.categoryService = categoryService;
-        this.categoryRepository = categoryRepository;
     }
 
     @GetMapping
@@ -33,13 +30,12 @@ public class CategoryController {
 
     @GetMapping("/with-counts")
     public ResponseEntity<List<CategoryDto>> getCategoriesWithProductCounts() {
-        var counts = categoryRepository.fetchCategoryProductCounts();
         var categories = categoryService.getAllCategories();
-        var map = new java.util.HashMap<Long, Long>();
-        counts.forEach(c -> map.put(c.getCategoryId(), c.getProductCount()));
         var result = new java.util.ArrayList<CategoryDto>();
         for (var c : categories) {
-            result.add(new CategoryDto(c.getId(), c.getName(), c.getDescription(), c.isActive(), map.getOrDefault(c.getId(), 0L), c.getCreatedAt(), c.getUpdatedAt()));
+            result.add(new CategoryDto(c.getId(), c.getName(), c.getDescription(), c.isActive(),
+                    c.getProductCount(), c.getActiveProductCount(), c.getTotalStockQuantity(),
+                    c.getCreatedAt(), c.getUpdatedAt()));
         }
         return ResponseEntity.ok(result);
     }
@@ -0,0 +1,45 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.FulfilmentOptionsDto;
+import com.warehouse.dto.FulfilmentRequest;
+import com.warehouse.service.FulfilmentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/fulfilment")
+@CrossOrigin(origins = "*")
+public class FulfilmentController {
+
+    private final FulfilmentService fulfilmentService;
+
+    @Autowired
+    public FulfilmentController(FulfilmentService fulfilmentService) {
+        this.fulfilmentService = fulfilmentService;
+    }
+
+    @GetMapping("/options")
+    public ResponseEntity<?> getOptions(@RequestParam(required = false) Long productId,
+                                        @RequestParam(required = false) String sku,
+                                        @RequestParam Integer quantity,
+                                        @RequestParam(required = false) Integer maxSplits,
+                                        @RequestParam(required = false) Integer limit) {
+        try {
+            FulfilmentOptionsDto options = fulfilmentService.findOptions(productId, sku, quantity, maxSplits, limit);
+            return ResponseEntity.ok(options);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/options")
+    public ResponseEntity<?> getBasketOptions(@RequestBody FulfilmentRequest request) {
+        try {
+            FulfilmentOptionsDto options = fulfilmentService.findOptions(request);
+            return ResponseEntity.ok(options);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
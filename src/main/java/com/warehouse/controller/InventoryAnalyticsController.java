@@ -0,0 +1,45 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.InventoryCubeDto;
+import com.warehouse.enums.CubeDimension;
+import com.warehouse.service.InventoryCubeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics/inventory")
+@CrossOrigin(origins = "*")
+public class InventoryAnalyticsController {
+
+    private final InventoryCubeService inventoryCubeService;
+
+    @Autowired
+    public InventoryAnalyticsController(InventoryCubeService inventoryCubeService) {
+        this.inventoryCubeService = inventoryCubeService;
+    }
+
+    @GetMapping("/cube")
+    public ResponseEntity<?> getCube(
+            @RequestParam(required = false) List<CubeDimension> groupBy,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Long brandId,
+            @RequestParam(required = false) Long colorId,
+            @RequestParam(required = false) Long warehouseId,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            InventoryCubeDto cube = inventoryCubeService.slice(groupBy, categoryId, brandId, colorId, warehouseId, limit);
+            return ResponseEntity.ok(cube);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/cube/refresh")
+    public ResponseEntity<?> refreshCube() {
+        int cells = inventoryCubeService.refresh();
+        return ResponseEntity.ok("Computed " + cells + " cube cells");
+    }
+}
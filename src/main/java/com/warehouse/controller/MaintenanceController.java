@@ -0,0 +1,40 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.ConsistencyReportDto;
+import com.warehouse.service.CatalogCounterService;
+import com.warehouse.service.ConsistencyCheckService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/maintenance")
+@CrossOrigin(origins = "*")
+public class MaintenanceController {
+
+    private final CatalogCounterService catalogCounterService;
+    private final ConsistencyCheckService consistencyCheckService;
+
+    @Autowired
+    public MaintenanceController(CatalogCounterService catalogCounterService,
+                                 ConsistencyCheckService consistencyCheckService) {
+        this.catalogCounterService = catalogCounterService;
+        this.consistencyCheckService = consistencyCheckService;
+    }
+
+    @PostMapping("/counters/rebuild")
+    public ResponseEntity<?> rebuildCatalogCounters() {
+        catalogCounterService.rebuildAll();
+        return ResponseEntity.ok("Catalog counters rebuilt");
+    }
+
+    @PostMapping("/consistency")
+    public ResponseEntity<?> checkConsistency(@RequestParam(defaultValue = "false") boolean apply) {
+        try {
+            ConsistencyReportDto report = consistencyCheckService.check(apply);
+            return ResponseEntity.ok(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
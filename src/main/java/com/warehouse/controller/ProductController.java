@@ -2,6 +2,7 @@ package com.warehouse.controller;
 
 import com.warehouse.entity.Product;
 import com.warehouse.service.ProductService;
+import com.warehouse.service.ShippingQuoteService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -15,10 +16,12 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ShippingQuoteService shippingQuoteService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ShippingQuoteService shippingQuoteService) {
         this.productService = productService;
+        this.shippingQuoteService = shippingQuoteService;
     }
 
     @GetMapping
@@ -85,7 +88,7 @@ public class ProductController {
                     double w = p.getWidthCm() != null ? p.getWidthCm() : 0.0;
                     double l = p.getLengthCm() != null ? p.getLengthCm() : 0.0;
                     double h = p.getHeightCm() != null ? p.getHeightCm() : 0.0;
-                    double desi = (h * w * l) / 3000.0;
+                    double desi = p.getDesi() != null ? p.getDesi() : Product.calculateDesi(l, w, h);
                     java.math.BigDecimal rate = p.getShippingRate() != null ? p.getShippingRate() : java.math.BigDecimal.ZERO;
                     java.math.BigDecimal shippingCost = rate.multiply(java.math.BigDecimal.valueOf(desi));
                     java.util.Map<String, Object> resp = new java.util.HashMap<>();
@@ -103,6 +106,17 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/by-desi")
+    public ResponseEntity<?> getProductsByDesiRange(
+            @RequestParam(required = false) Double min,
+            @RequestParam(required = false) Double max) {
+        try {
+            return ResponseEntity.ok(shippingQuoteService.getProductsByDesiRange(min, max));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PostMapping
     public ResponseEntity<?> createProduct(@Valid @RequestBody Product product) {
         try {
@@ -0,0 +1,46 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.RebalanceExecuteRequest;
+import com.warehouse.dto.RebalancePlanDto;
+import com.warehouse.dto.StockTransferDto;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.mapper.StockTransferMapper;
+import com.warehouse.service.RebalancingService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/rebalancing")
+@CrossOrigin(origins = "*")
+public class RebalancingController {
+
+    private final RebalancingService rebalancingService;
+    private final StockTransferMapper transferMapper;
+
+    @Autowired
+    public RebalancingController(RebalancingService rebalancingService, StockTransferMapper transferMapper) {
+        this.rebalancingService = rebalancingService;
+        this.transferMapper = transferMapper;
+    }
+
+    @GetMapping("/plan")
+    public ResponseEntity<RebalancePlanDto> getRebalancePlan() {
+        return ResponseEntity.ok(rebalancingService.planRebalance());
+    }
+
+    @PostMapping("/execute")
+    public ResponseEntity<?> executeRebalance(@Valid @RequestBody RebalanceExecuteRequest request) {
+        try {
+            List<StockTransfer> created = rebalancingService.executeRebalance(request);
+            List<StockTransferDto> dtos = transferMapper.toDtoList(created);
+            return ResponseEntity.status(HttpStatus.CREATED).body(dtos);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
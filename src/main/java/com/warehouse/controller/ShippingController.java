@@ -0,0 +1,43 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.ShippingQuoteDto;
+import com.warehouse.dto.ShippingQuoteRequest;
+import com.warehouse.service.ShippingQuoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/shipping")
+@CrossOrigin(origins = "*")
+public class ShippingController {
+
+    private final ShippingQuoteService shippingQuoteService;
+
+    @Autowired
+    public ShippingController(ShippingQuoteService shippingQuoteService) {
+        this.shippingQuoteService = shippingQuoteService;
+    }
+
+    @PostMapping("/quote")
+    public ResponseEntity<?> quoteBasket(@RequestBody ShippingQuoteRequest request) {
+        try {
+            ShippingQuoteDto quote = shippingQuoteService.quote(request);
+            return ResponseEntity.ok(quote);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/quote/transfers")
+    public ResponseEntity<?> quoteTransfers(@RequestBody List<Long> transferIds) {
+        try {
+            ShippingQuoteDto quote = shippingQuoteService.quoteTransfers(transferIds);
+            return ResponseEntity.ok(quote);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.warehouse.controller;
 
+import com.warehouse.dto.AvailabilityDto;
+import com.warehouse.dto.AvailableStockRow;
+import com.warehouse.dto.WarehouseShortfallRow;
+import com.warehouse.dto.CycleCountReportDto;
 import com.warehouse.entity.Stock;
+import com.warehouse.service.CycleCountService;
 import com.warehouse.service.StockService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -15,10 +21,12 @@ import java.util.List;
 public class StockController {
 
     private final StockService stockService;
+    private final CycleCountService cycleCountService;
 
     @Autowired
-    public StockController(StockService stockService) {
+    public StockController(StockService stockService, CycleCountService cycleCountService) {
         this.stockService = stockService;
+        this.cycleCountService = cycleCountService;
     }
 
     @GetMapping
@@ -67,6 +75,46 @@ public class StockController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/product/{productId}/warehouse/{warehouseId}/availability")
+    public ResponseEntity<AvailabilityDto> getAvailability(@PathVariable Long productId, @PathVariable Long warehouseId) {
+        return stockService.getAvailability(productId, warehouseId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/available")
+    public ResponseEntity<?> getStocksByAvailableQuantity(
+            @RequestParam(required = false) Integer min,
+            @RequestParam(required = false) Integer max,
+            @RequestParam(required = false) Long warehouseId,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            List<AvailableStockRow> rows = stockService.getStocksByAvailableQuantity(min, max, warehouseId, productId,
+                    sort, limit);
+            return ResponseEntity.ok(rows);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/available/below-min")
+    public ResponseEntity<?> getAvailableBelowMinStockLevel(
+            @RequestParam(required = false) Long warehouseId,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(stockService.getAvailableBelowMinStockLevel(warehouseId, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/available/below-min/warehouses")
+    public ResponseEntity<List<WarehouseShortfallRow>> getWarehousesWithAvailableBelowMinStockLevel() {
+        return ResponseEntity.ok(stockService.getWarehousesWithAvailableBelowMinStockLevel());
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<List<Stock>> getLowStockItems() {
         List<Stock> stocks = stockService.getLowStockItems();
@@ -119,6 +167,19 @@ public class StockController {
         }
     }
 
+    // The body is read as it arrives, one chunk of lines at a time
+    @PostMapping("/warehouse/{warehouseId}/cycle-count")
+    public ResponseEntity<?> reconcileCycleCount(@PathVariable Long warehouseId,
+                                                 @RequestParam(defaultValue = "false") boolean apply,
+                                                 InputStream counts) {
+        try {
+            CycleCountReportDto report = cycleCountService.reconcile(warehouseId, counts, apply);
+            return ResponseEntity.ok(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateStock(@PathVariable Long id, @RequestBody Stock stock) {
         try {
@@ -5,8 +5,11 @@ import com.warehouse.entity.StockTransfer;
 import com.warehouse.enums.TransferStatus;
 import com.warehouse.mapper.StockTransferMapper;
 import com.warehouse.service.StockTransferService;
+import com.warehouse.service.TransferConflictException;
+import com.warehouse.service.TransferTransitionService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,11 +22,15 @@ import java.util.List;
 public class StockTransferController {
 
     private final StockTransferService stockTransferService;
+    private final TransferTransitionService transferTransitionService;
     private final StockTransferMapper transferMapper;
 
     @Autowired
-    public StockTransferController(StockTransferService stockTransferService, StockTransferMapper transferMapper) {
+    public StockTransferController(StockTransferService stockTransferService,
+                                   TransferTransitionService transferTransitionService,
+                                   StockTransferMapper transferMapper) {
         this.stockTransferService = stockTransferService;
+        this.transferTransitionService = transferTransitionService;
         this.transferMapper = transferMapper;
     }
 
@@ -112,9 +119,11 @@ public class StockTransferController {
     @PostMapping("/{id}/start")
     public ResponseEntity<?> startTransfer(@PathVariable Long id) {
         try {
-            StockTransfer transfer = stockTransferService.startTransfer(id);
+            StockTransfer transfer = transferTransitionService.start(id);
             StockTransferDto dto = transferMapper.toDto(transfer);
             return ResponseEntity.ok(dto);
+        } catch (TransferConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
@@ -126,9 +135,11 @@ public class StockTransferController {
     @PostMapping("/{id}/complete")
     public ResponseEntity<?> completeTransfer(@PathVariable Long id) {
         try {
-            StockTransfer transfer = stockTransferService.completeTransfer(id);
+            StockTransfer transfer = transferTransitionService.complete(id);
             StockTransferDto dto = transferMapper.toDto(transfer);
             return ResponseEntity.ok(dto);
+        } catch (TransferConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
@@ -140,9 +151,11 @@ public class StockTransferController {
     @PostMapping("/{id}/cancel")
     public ResponseEntity<?> cancelTransfer(@PathVariable Long id) {
         try {
-            StockTransfer transfer = stockTransferService.cancelTransfer(id);
+            StockTransfer transfer = transferTransitionService.cancel(id);
             StockTransferDto dto = transferMapper.toDto(transfer);
             return ResponseEntity.ok(dto);
+        } catch (TransferConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
@@ -157,6 +170,11 @@ public class StockTransferController {
             StockTransfer updatedTransfer = stockTransferService.updateTransfer(id, transfer);
             StockTransferDto dto = transferMapper.toDto(updatedTransfer);
             return ResponseEntity.ok(dto);
+        } catch (TransferConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Transfer was modified concurrently, please reload and retry");
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
@@ -170,6 +188,11 @@ public class StockTransferController {
         try {
             stockTransferService.deleteTransfer(id);
             return ResponseEntity.ok("Transfer deleted successfully");
+        } catch (TransferConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Transfer was modified concurrently, please reload and retry");
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
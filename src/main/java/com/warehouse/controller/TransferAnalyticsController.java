@@ -0,0 +1,63 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.TransferLaneStatDto;
+import com.warehouse.enums.RollupGranularity;
+import com.warehouse.enums.TransferStatus;
+import com.warehouse.service.TransferAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics/transfers")
+@CrossOrigin(origins = "*")
+public class TransferAnalyticsController {
+
+    private final TransferAnalyticsService transferAnalyticsService;
+
+    @Autowired
+    public TransferAnalyticsController(TransferAnalyticsService transferAnalyticsService) {
+        this.transferAnalyticsService = transferAnalyticsService;
+    }
+
+    @GetMapping("/lanes/series")
+    public ResponseEntity<?> getLaneSeries(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) TransferStatus status,
+            @RequestParam(required = false) Long sourceWarehouseId,
+            @RequestParam(required = false) Long destinationWarehouseId,
+            @RequestParam(required = false) Long categoryId) {
+        try {
+            List<TransferLaneStatDto> series = transferAnalyticsService.getLaneSeries(granularity, from, to, status,
+                    sourceWarehouseId, destinationWarehouseId, categoryId);
+            return ResponseEntity.ok(series);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/lanes")
+    public ResponseEntity<?> getLaneTotals(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) TransferStatus status,
+            @RequestParam(required = false) Long categoryId) {
+        try {
+            return ResponseEntity.ok(transferAnalyticsService.getLaneTotals(from, to, status, categoryId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuildRollups() {
+        int cells = transferAnalyticsService.rebuildRollups();
+        return ResponseEntity.ok("Rebuilt " + cells + " rollup cells");
+    }
+}
@@ -0,0 +1,68 @@
+package com.warehouse.diagnostics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/jfr}: GET for status, POST {@code {"durationSeconds": 120, "settings": "profile"}}
+ * to start, DELETE to stop, GET {@code /actuator/jfr/{name}} to download. Protected by the admin
+ * credentials like the API.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class FlightRecordingEndpoint {
+
+    private final FlightRecordingManager recordingManager;
+
+    @Autowired
+    public FlightRecordingEndpoint(FlightRecordingManager recordingManager) {
+        this.recordingManager = recordingManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return recordingManager.status();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> start(@Nullable Integer durationSeconds, @Nullable String settings) {
+        try {
+            return new WebEndpointResponse<>(recordingManager.start(durationSeconds, settings));
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(e.getMessage(), WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(e.getMessage(), 409);
+        }
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Object> stop() {
+        try {
+            return new WebEndpointResponse<>(recordingManager.stop());
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(e.getMessage(), 409);
+        }
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector String name) {
+        try {
+            return new WebEndpointResponse<>(new FileSystemResource(recordingManager.file(name)));
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(409);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.warehouse.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs at most one on-demand JDK Flight Recorder recording at a time. A recording stops on its
+ * own after its duration and is written to {@code app.jfr.directory}; it can be downloaded while
+ * running (as a snapshot) or after it has stopped.
+ */
+@Component
+public class FlightRecordingManager {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecordingManager.class);
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final Duration defaultDuration;
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+    private Path recordingFile;
+    private Path snapshotFile;
+    private String settings;
+    private Instant startedAt;
+
+    public FlightRecordingManager(@Value("${app.jfr.directory:${java.io.tmpdir}/warehouse-jfr}") Path directory,
+                                  @Value("${app.jfr.default-duration:PT60S}") Duration defaultDuration,
+                                  @Value("${app.jfr.max-duration:PT30M}") Duration maxDuration,
+                                  @Value("${app.jfr.max-size-mb:250}") long maxSizeMb) {
+        this.directory = directory;
+        this.defaultDuration = defaultDuration;
+        this.maxDuration = maxDuration;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    public synchronized Map<String, Object> start(Integer durationSeconds, String settingsName) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("Recording " + recording.getName() + " is already running");
+        }
+        Duration duration = durationSeconds != null ? Duration.ofSeconds(durationSeconds) : defaultDuration;
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be between 1 and " + maxDuration.toSeconds() + " seconds");
+        }
+        String name = settingsName != null ? settingsName : "profile";
+        Configuration configuration = configuration(name);
+
+        discardPrevious();
+        try {
+            Files.createDirectories(directory);
+            Recording next = new Recording(configuration);
+            next.setName("warehouse-" + LocalDateTime.now().format(NAME_FORMAT));
+            next.setToDisk(true);
+            next.setMaxSize(maxSizeBytes);
+            next.setDuration(duration);
+            recordingFile = directory.resolve(next.getName() + ".jfr");
+            next.setDestination(recordingFile);
+            next.start();
+            recording = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start recording", e);
+        }
+        settings = name;
+        startedAt = Instant.now();
+        log.info("Started JFR recording {} for {} with '{}' settings", recording.getName(), duration, name);
+        return status();
+    }
+
+    public synchronized Map<String, Object> stop() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("No recording is running");
+        }
+        // Stopping writes the recording to its destination file
+        recording.stop();
+        log.info("Stopped JFR recording {}", recording.getName());
+        return status();
+    }
+
+    /**
+     * The file to download for the named recording: a fresh snapshot while it is still running,
+     * the finished recording otherwise.
+     */
+    public synchronized Path file(String name) {
+        if (recording == null || !recording.getName().equals(name)) {
+            throw new IllegalArgumentException("Unknown recording: " + name);
+        }
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                deleteQuietly(snapshotFile);
+                snapshotFile = directory.resolve(name + "-snapshot.jfr");
+                recording.dump(snapshotFile);
+                return snapshotFile;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not dump recording " + name, e);
+        }
+        if (!Files.exists(recordingFile)) {
+            throw new IllegalStateException("Recording " + name + " has no data yet");
+        }
+        return recordingFile;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("availableSettings", Configuration.getConfigurations().stream()
+                .map(Configuration::getName).collect(Collectors.toList()));
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("name", recording.getName());
+        status.put("state", recording.getState().name());
+        status.put("settings", settings);
+        status.put("startedAt", startedAt);
+        status.put("duration", recording.getDuration());
+        status.put("download", "/actuator/jfr/" + recording.getName());
+        return status;
+    }
+
+    private static Configuration configuration(String name) {
+        for (Configuration configuration : Configuration.getConfigurations()) {
+            if (configuration.getName().equals(name)) {
+                return configuration;
+            }
+        }
+        throw new IllegalArgumentException("Unknown JFR settings '" + name + "'");
+    }
+
+    private void discardPrevious() {
+        if (recording != null) {
+            recording.close();
+            deleteQuietly(recordingFile);
+            deleteQuietly(snapshotFile);
+            recording = null;
+            snapshotFile = null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
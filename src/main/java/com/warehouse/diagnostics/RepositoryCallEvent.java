@@ -0,0 +1,27 @@
+package com.warehouse.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.warehouse.RepositoryCall")
+@Label("Repository Call")
+@Category({"Warehouse", "Repository"})
+@Description("A Spring Data repository method call")
+@StackTrace(false)
+@Threshold("1 ms")
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,55 @@
+package com.warehouse.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emits a {@link RepositoryCallEvent} around every repository call while a JFR recording has
+ * the event enabled; otherwise the only cost is the enabled check.
+ */
+@Aspect
+@Component
+public class RepositoryCallRecorder {
+
+    private static final String REPOSITORY_PACKAGE = "com.warehouse.repository.";
+
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            event.failed = true;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(),
+                        RepositoryCallRecorder::repositoryName);
+                event.method = joinPoint.getSignature().getName();
+                event.commit();
+            }
+        }
+    }
+
+    // The proxy class says nothing useful; report the application repository interface it implements
+    private static String repositoryName(Class<?> proxyClass) {
+        for (Class<?> candidate : proxyClass.getInterfaces()) {
+            if (candidate.getName().startsWith(REPOSITORY_PACKAGE)) {
+                return candidate.getSimpleName();
+            }
+        }
+        return proxyClass.getSimpleName();
+    }
+}
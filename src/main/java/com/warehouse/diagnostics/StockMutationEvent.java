@@ -0,0 +1,59 @@
+package com.warehouse.diagnostics;
+
+import com.warehouse.entity.Stock;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.warehouse.StockMutation")
+@Label("Stock Mutation")
+@Category({"Warehouse", "Stock"})
+@Description("A change to a stock record, timed from the start of the service call")
+@StackTrace(false)
+public class StockMutationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Stock Id")
+    long stockId;
+
+    @Label("Product Id")
+    long productId;
+
+    @Label("Warehouse Id")
+    long warehouseId;
+
+    @Label("Quantity")
+    @Description("Units added, removed, reserved or released by the operation")
+    int quantity;
+
+    @Label("Quantity After")
+    int quantityAfter;
+
+    public static StockMutationEvent start(String operation) {
+        StockMutationEvent event = new StockMutationEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    public void finish(Stock stock, int quantity) {
+        end();
+        if (shouldCommit()) {
+            this.stockId = idOrZero(stock.getId());
+            this.productId = stock.getProduct() != null ? idOrZero(stock.getProduct().getId()) : 0;
+            this.warehouseId = stock.getWarehouse() != null ? idOrZero(stock.getWarehouse().getId()) : 0;
+            this.quantity = quantity;
+            this.quantityAfter = stock.getQuantity() != null ? stock.getQuantity() : 0;
+            commit();
+        }
+    }
+
+    static long idOrZero(Long id) {
+        return id != null ? id : 0;
+    }
+}
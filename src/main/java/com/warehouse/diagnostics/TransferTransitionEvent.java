@@ -0,0 +1,63 @@
+package com.warehouse.diagnostics;
+
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.enums.TransferStatus;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import static com.warehouse.diagnostics.StockMutationEvent.idOrZero;
+
+@Name("com.warehouse.TransferTransition")
+@Label("Transfer Transition")
+@Category({"Warehouse", "Transfer"})
+@Description("A stock transfer status change, timed from the start of the service call")
+@StackTrace(false)
+public class TransferTransitionEvent extends Event {
+
+    @Label("Transfer Id")
+    long transferId;
+
+    @Label("Product Id")
+    long productId;
+
+    @Label("Source Warehouse Id")
+    long sourceWarehouseId;
+
+    @Label("Destination Warehouse Id")
+    long destinationWarehouseId;
+
+    @Label("Quantity")
+    int quantity;
+
+    @Label("From Status")
+    String fromStatus;
+
+    @Label("To Status")
+    String toStatus;
+
+    public static TransferTransitionEvent start() {
+        TransferTransitionEvent event = new TransferTransitionEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(StockTransfer transfer, TransferStatus from) {
+        end();
+        if (shouldCommit()) {
+            this.transferId = idOrZero(transfer.getId());
+            this.productId = transfer.getProduct() != null ? idOrZero(transfer.getProduct().getId()) : 0;
+            this.sourceWarehouseId = transfer.getSourceWarehouse() != null
+                    ? idOrZero(transfer.getSourceWarehouse().getId()) : 0;
+            this.destinationWarehouseId = transfer.getDestinationWarehouse() != null
+                    ? idOrZero(transfer.getDestinationWarehouse().getId()) : 0;
+            this.quantity = transfer.getQuantity() != null ? transfer.getQuantity() : 0;
+            this.fromStatus = from != null ? from.name() : null;
+            this.toStatus = transfer.getStatus() != null ? transfer.getStatus().name() : null;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.warehouse.dto;
+
+import com.warehouse.enums.TransferStatus;
+
+/**
+ * Flat read model of a PENDING or IN_TRANSIT transfer.
+ */
+public record ActiveTransferRow(Long transferId,
+                                Long productId,
+                                Long sourceWarehouseId,
+                                Long destinationWarehouseId,
+                                Integer quantity,
+                                TransferStatus status) {
+}
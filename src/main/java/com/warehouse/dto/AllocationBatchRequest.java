@@ -0,0 +1,28 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Orders to reserve in one call. Each order is reserved completely or not at all.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AllocationBatchRequest {
+    private List<Order> orders;
+
+    /** Largest number of warehouses one order may be split across (1 to 3, default 2). */
+    private Integer maxSplits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Order {
+        private String orderRef;
+        private List<FulfilmentRequest.Line> lines;
+    }
+}
@@ -0,0 +1,40 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AllocationBatchResultDto {
+    private List<OrderResult> orders;
+    private int allocatedOrders;
+    private int rejectedOrders;
+    private int partitions;
+    private long elapsedMs;
+    private double ordersPerSecond;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderResult {
+        private String orderRef;
+        private boolean allocated;
+        private String reason;
+        private int splits;
+        private List<Allocation> allocations;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Allocation {
+        private Long productId;
+        private Long warehouseId;
+        private Long stockId;
+        private int quantity;
+    }
+}
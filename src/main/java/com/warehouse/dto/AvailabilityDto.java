@@ -0,0 +1,23 @@
+package com.warehouse.dto;
+
+/**
+ * Stock counters of one product in one warehouse, without the product and warehouse entities.
+ */
+public record AvailabilityDto(Long productId,
+                              Long warehouseId,
+                              int quantity,
+                              int reservedQuantity,
+                              int consignedQuantity,
+                              int availableQuantity) {
+
+    public static AvailabilityDto of(Long productId, Long warehouseId, int quantity, int reserved, int consigned) {
+        return new AvailabilityDto(productId, warehouseId, quantity, reserved, consigned,
+                quantity - reserved - consigned);
+    }
+
+    public static AvailabilityDto from(StockLevelRow row) {
+        return of(row.productId(), row.warehouseId(), row.quantityOrZero(),
+                row.reservedQuantity() != null ? row.reservedQuantity() : 0,
+                row.consignedQuantity() != null ? row.consignedQuantity() : 0);
+    }
+}
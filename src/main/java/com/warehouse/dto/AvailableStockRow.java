@@ -0,0 +1,18 @@
+package com.warehouse.dto;
+
+/**
+ * One stocks row with its product and warehouse labels, read straight from the indexed
+ * {@code available_quantity} column.
+ */
+public record AvailableStockRow(Long stockId,
+                                Long productId,
+                                String sku,
+                                String productName,
+                                Long warehouseId,
+                                String warehouseName,
+                                Integer quantity,
+                                Integer reservedQuantity,
+                                Integer consignedQuantity,
+                                Integer availableQuantity,
+                                Integer minStockLevel) {
+}
@@ -15,6 +15,8 @@ public class CategoryDto {
     private String description;
     private boolean isActive;
     private Long productCount;
+    private Long activeProductCount;
+    private Long totalStockQuantity;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
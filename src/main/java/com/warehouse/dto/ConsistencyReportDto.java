@@ -0,0 +1,44 @@
+package com.warehouse.dto;
+
+import com.warehouse.enums.ConsistencyViolationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsistencyReportDto {
+    private boolean applied;
+    private long stockRowsScanned;
+    private int activeTransfersScanned;
+    private Map<ConsistencyViolationType, Long> violationCounts;
+    private long totalViolations;
+    /** At most {@code app.consistency.max-reported} entries; the counts cover every violation. */
+    private List<Violation> violations;
+    private boolean truncated;
+    private int stocksRepaired;
+    private int stocksAlreadyConsistent;
+    /** Repairable at scan time, but changed since into a state the repair cannot fully fix. */
+    private int stocksNeedingManualRepair;
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Violation {
+        private ConsistencyViolationType type;
+        private Long stockId;
+        private Long transferId;
+        private Long productId;
+        private Long warehouseId;
+        private Integer quantity;
+        private Integer reservedQuantity;
+        private Integer consignedQuantity;
+        private Long inTransitQuantity;
+        private boolean repairable;
+    }
+}
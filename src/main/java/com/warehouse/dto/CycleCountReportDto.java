@@ -0,0 +1,51 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleCountReportDto {
+    private Long warehouseId;
+    private boolean applied;
+    private long linesRead;
+    private long linesCounted;
+    private long matched;
+    private long over;
+    private long under;
+    private long newStocks;
+    private long unitsOver;
+    private long unitsUnder;
+    private long stocksAdjusted;
+    private long rejectedLines;
+    /** The largest differences by units, at most {@code app.cycle-count.max-reported}. */
+    private List<Variance> largestVariances;
+    /** The first rejected lines, at most {@code app.cycle-count.max-reported}. */
+    private List<RejectedLine> rejected;
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variance {
+        private String sku;
+        private Long productId;
+        private Long stockId;
+        private int systemQuantity;
+        private int countedQuantity;
+        private int difference;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RejectedLine {
+        private long lineNumber;
+        private String sku;
+        private String reason;
+    }
+}
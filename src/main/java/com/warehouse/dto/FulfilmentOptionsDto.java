@@ -0,0 +1,48 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FulfilmentOptionsDto {
+    private List<Line> lines;
+    private List<Option> options;
+    private int warehousesConsidered;
+    private boolean fromIndex;
+    private long elapsedMicros;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private String sku;
+        private int quantity;
+        private long availableEverywhere;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Option {
+        private List<Long> warehouseIds;
+        private List<String> warehouseNames;
+        private int splits;
+        private long availableUnits;
+        private List<Allocation> allocations;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Allocation {
+        private Long productId;
+        private Long warehouseId;
+        private int quantity;
+    }
+}
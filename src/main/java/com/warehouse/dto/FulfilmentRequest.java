@@ -0,0 +1,32 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A basket to fulfil. Each line names its product by id or by SKU.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FulfilmentRequest {
+    private List<Line> lines;
+
+    /** Largest number of warehouses one option may combine (1 to 3, default 2). */
+    private Integer maxSplits;
+
+    /** Options to return (default 10). */
+    private Integer limit;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private String sku;
+        private Integer quantity;
+    }
+}
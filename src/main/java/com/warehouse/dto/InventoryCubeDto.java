@@ -0,0 +1,48 @@
+package com.warehouse.dto;
+
+import com.warehouse.enums.CubeDimension;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryCubeDto {
+    private List<CubeDimension> groupBy;
+    /** When the cube was computed; stock changes after it are not included. */
+    private LocalDateTime computedAt;
+    /** True when stock has changed since computedAt and a recompute is pending. */
+    private boolean stale;
+    private int totalRows;
+    private boolean truncated;
+    private List<Row> rows;
+
+    /**
+     * One cell of the slice. Ids and names are set for the grouped and filtered dimensions only;
+     * a null brandId or colorId in a row grouped by that dimension stands for products without one.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        private Long categoryId;
+        private String categoryName;
+        private Long brandId;
+        private String brandName;
+        private Long colorId;
+        private String colorName;
+        private Long warehouseId;
+        private String warehouseName;
+        private long stockRows;
+        private long quantity;
+        private long reservedQuantity;
+        private long consignedQuantity;
+        private long availableQuantity;
+        /** Stock rows at or below their minimum level. */
+        private long lowStockRows;
+    }
+}
@@ -0,0 +1,36 @@
+package com.warehouse.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Carrier details applied to every transfer created from a rebalancing plan.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebalanceExecuteRequest {
+
+    @NotBlank(message = "Driver name is required")
+    @Size(min = 3, max = 100, message = "Driver name must be between 3 and 100 characters")
+    private String driverName;
+
+    @NotBlank(message = "Driver TC ID is required")
+    @Pattern(regexp = "^[0-9]{11}$", message = "Driver TC ID must be 11 digits")
+    private String driverTcId;
+
+    @NotBlank(message = "Driver phone is required")
+    @Size(min = 10, max = 20, message = "Driver phone must be between 10 and 20 characters")
+    private String driverPhone;
+
+    @NotBlank(message = "Vehicle plate is required")
+    @Size(min = 2, max = 20, message = "Vehicle plate must be between 2 and 20 characters")
+    private String vehiclePlate;
+
+    @Size(max = 500, message = "Notes cannot exceed 500 characters")
+    private String notes;
+}
@@ -0,0 +1,29 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebalancePlanDto {
+    private List<ProposedTransfer> transfers;
+    private int stockRowsScanned;
+    private int productsScanned;
+    private long unitsMoved;
+    private long unmetUnits;
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProposedTransfer {
+        private Long productId;
+        private Long sourceWarehouseId;
+        private Long destinationWarehouseId;
+        private int quantity;
+    }
+}
@@ -0,0 +1,32 @@
+package com.warehouse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShippingQuoteDto {
+    private List<LineDto> lines;
+    private long totalQuantity;
+    private double totalDesi;
+    private BigDecimal totalShippingCost;
+    private List<Long> unknownProductIds;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineDto {
+        private Long productId;
+        private String sku;
+        private int quantity;
+        private double unitDesi;
+        private double desi;
+        private BigDecimal shippingRate;
+        private BigDecimal shippingCost;
+    }
+}
@@ -0,0 +1,15 @@
+package com.warehouse.dto;
+
+/**
+ * One stocks row with its product's category, brand and color, the input of the inventory cube.
+ * Brand and color are null for products without one.
+ */
+public record StockCubeFactRow(Long categoryId,
+                               Long brandId,
+                               Long colorId,
+                               Long warehouseId,
+                               Integer quantity,
+                               Integer reservedQuantity,
+                               Integer consignedQuantity,
+                               Integer minStockLevel) {
+}
@@ -0,0 +1,27 @@
+package com.warehouse.dto;
+
+/**
+ * Flat read model of one stocks row, used by bulk scans that must not hydrate entities.
+ */
+public record StockLevelRow(Long stockId,
+                            Long productId,
+                            Long warehouseId,
+                            Integer quantity,
+                            Integer minStockLevel,
+                            Integer reservedQuantity,
+                            Integer consignedQuantity) {
+
+    public int quantityOrZero() {
+        return quantity != null ? quantity : 0;
+    }
+
+    public int minStockLevelOrZero() {
+        return minStockLevel != null ? minStockLevel : 0;
+    }
+
+    public int availableQuantity() {
+        return quantityOrZero()
+                - (reservedQuantity != null ? reservedQuantity : 0)
+                - (consignedQuantity != null ? consignedQuantity : 0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.warehouse.dto;
+
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.enums.TransferStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * The rollup-relevant facts of one transfer, read either from an entity or from a bulk scan.
+ */
+public record TransferFactRow(LocalDateTime transferDate,
+                              LocalDateTime completedDate,
+                              Long sourceWarehouseId,
+                              Long destinationWarehouseId,
+                              Long categoryId,
+                              TransferStatus status,
+                              Integer quantity) {
+
+    public static TransferFactRow of(StockTransfer transfer) {
+        return new TransferFactRow(
+                transfer.getTransferDate() != null ? transfer.getTransferDate() : LocalDateTime.now(),
+                transfer.getCompletedDate(),
+                transfer.getSourceWarehouse().getId(),
+                transfer.getDestinationWarehouse().getId(),
+                transfer.getProduct().getCategory().getId(),
+                transfer.getStatus(),
+                transfer.getQuantity());
+    }
+
+    public long transitSeconds() {
+        if (status != TransferStatus.COMPLETED || completedDate == null || transferDate == null) {
+            return 0L;
+        }
+        return Math.max(0L, Duration.between(transferDate, completedDate).getSeconds());
+    }
+}
@@ -0,0 +1,36 @@
+package com.warehouse.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class TransferLaneStatDto {
+    private LocalDateTime bucketStart;
+    private Long sourceWarehouseId;
+    private Long destinationWarehouseId;
+    private long transferCount;
+    private long unitCount;
+    private Double averageTransitSeconds;
+
+    // Used by the rollup queries; completedCount and transit total are only needed for the average
+    public TransferLaneStatDto(LocalDateTime bucketStart, Long sourceWarehouseId, Long destinationWarehouseId,
+                               Number transferCount, Number unitCount, Number completedCount, Number transitSecondsTotal) {
+        this.bucketStart = bucketStart;
+        this.sourceWarehouseId = sourceWarehouseId;
+        this.destinationWarehouseId = destinationWarehouseId;
+        this.transferCount = transferCount != null ? transferCount.longValue() : 0L;
+        this.unitCount = unitCount != null ? unitCount.longValue() : 0L;
+        long completed = completedCount != null ? completedCount.longValue() : 0L;
+        this.averageTransitSeconds = completed > 0 && transitSecondsTotal != null
+                ? transitSecondsTotal.doubleValue() / completed
+                : null;
+    }
+
+    public TransferLaneStatDto(Long sourceWarehouseId, Long destinationWarehouseId,
+                               Number transferCount, Number unitCount, Number completedCount, Number transitSecondsTotal) {
+        this(null, sourceWarehouseId, destinationWarehouseId, transferCount, unitCount, completedCount, transitSecondsTotal);
+    }
+}
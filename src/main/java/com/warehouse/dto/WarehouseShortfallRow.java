@@ -0,0 +1,11 @@
+package com.warehouse.dto;
+
+/**
+ * A warehouse's stock rows whose available quantity is below their minimum level, and by how
+ * many units in total.
+ */
+public record WarehouseShortfallRow(Long warehouseId,
+                                    String warehouseName,
+                                    long stocks,
+                                    long shortfall) {
+}
@@ -8,6 +8,8 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -20,7 +22,8 @@ import java.util.List;
 public class Color {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "colors_seq")
+    @SequenceGenerator(name = "colors_seq", sequenceName = "colors_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Color name is required")
@@ -41,6 +44,22 @@ public class Color {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Denormalised counters, maintained by CatalogCounterService
+    @ColumnDefault("0")
+    @Column(name = "product_count", nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long productCount;
+
+    @ColumnDefault("0")
+    @Column(name = "active_product_count", nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long activeProductCount;
+
+    @ColumnDefault("0")
+    @Column(name = "total_stock_quantity", nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long totalStockQuantity;
+
     @OneToMany(mappedBy = "color", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Product> products;
@@ -0,0 +1,55 @@
+package com.warehouse.entity;
+
+import com.warehouse.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A request seen under an Idempotency-Key. IN_PROGRESS rows are claims held by one request
+ * until {@code leaseUntil}; COMPLETED rows carry the response replayed to retries.
+ */
+@Entity
+@Table(name = "idempotency_records",
+    indexes = {
+        @Index(name = "idx_idempotency_records_expires_at", columnList = "expires_at")
+    })
+@Data
+@NoArgsConstructor
+public class IdempotencyRecord {
+
+    public static final int MAX_RESPONSE_BYTES = 1024 * 1024;
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private IdempotencyStatus status;
+
+    @Column(name = "owner_token", length = 36)
+    private String ownerToken;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "content_type", length = 255)
+    private String contentType;
+
+    @Column(name = "response_body", length = MAX_RESPONSE_BYTES)
+    private byte[] responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,30 @@
+package com.warehouse.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Highest journal sequence of a node's inventory engine whose deltas are in the stocks table.
+ * Advanced in the same transaction as the deltas, so replay after a crash never applies twice.
+ */
+@Entity
+@Table(name = "inventory_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryCheckpoint {
+
+    @Id
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "applied_sequence", nullable = false)
+    private long appliedSequence;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -11,20 +11,27 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_desi", columnList = "desi")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = false)
 public class Product {
 
+    // Volumetric weight divisor used by the carriers (cm³ per desi)
+    public static final double DESI_DIVISOR = 3000.0;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Product name is required")
@@ -63,6 +70,11 @@ public class Product {
     @Column(name = "shipping_rate", precision = 10, scale = 2)
     private BigDecimal shippingRate; // per desi unit
 
+    // Derived from the dimensions on every write, indexed for range queries
+    @Column(name = "desi")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Double desi;
+
     @NotNull(message = "Category is required")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
@@ -105,12 +117,21 @@ public class Product {
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
+        this.desi = calculateDesi(lengthCm, widthCm, heightCm);
     }
 
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        this.desi = calculateDesi(lengthCm, widthCm, heightCm);
+    }
+
+    public static double calculateDesi(Double lengthCm, Double widthCm, Double heightCm) {
+        double l = lengthCm != null ? lengthCm : 0.0;
+        double w = widthCm != null ? widthCm : 0.0;
+        double h = heightCm != null ? heightCm : 0.0;
+        return (h * w * l) / DESI_DIVISOR;
     }
 
     @Override
@@ -127,6 +148,7 @@ public class Product {
                 ", widthCm=" + widthCm +
                 ", heightCm=" + heightCm +
                 ", shippingRate=" + shippingRate +
+                ", desi=" + desi +
                 ", isActive=" + isActive +
                 '}';
     }
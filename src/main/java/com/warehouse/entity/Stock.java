@@ -7,12 +7,17 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "stocks", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"product_id", "warehouse_id"})
+}, indexes = {
+    @Index(name = "idx_stocks_available_quantity", columnList = "available_quantity"),
+    @Index(name = "idx_stocks_warehouse_available_quantity", columnList = "warehouse_id, available_quantity")
 })
 @Data
 @NoArgsConstructor
@@ -21,7 +26,8 @@ import java.time.LocalDateTime;
 public class Stock {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stocks_seq")
+    @SequenceGenerator(name = "stocks_seq", sequenceName = "stocks_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Product is required")
@@ -52,6 +58,11 @@ public class Stock {
     @Column(name = "consigned_quantity")
     private Integer consignedQuantity = 0; // Emanet miktar
 
+    // Copy of getAvailableQuantity() for SQL filters and sorting; set on every insert and update
+    @Setter(AccessLevel.NONE)
+    @Column(name = "available_quantity")
+    private Integer availableQuantity = 0;
+
     @Column(name = "last_updated", nullable = false)
     private LocalDateTime lastUpdated;
 
@@ -66,11 +77,13 @@ public class Stock {
     @PreUpdate
     protected void onUpdate() {
         this.lastUpdated = LocalDateTime.now();
+        this.availableQuantity = getAvailableQuantity();
     }
 
     @PrePersist
     protected void onCreate() {
         this.lastUpdated = LocalDateTime.now();
+        this.availableQuantity = getAvailableQuantity();
     }
 
     // Business logic methods
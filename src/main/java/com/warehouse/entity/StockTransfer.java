@@ -11,7 +11,9 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.warehouse.enums.TransferStatus;
 import java.time.LocalDateTime;
 
@@ -25,7 +27,8 @@ import java.time.LocalDateTime;
 public class StockTransfer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_transfers_seq")
+    @SequenceGenerator(name = "stock_transfers_seq", sequenceName = "stock_transfers_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Source warehouse is required")
@@ -88,6 +91,13 @@ public class StockTransfer {
     @Column(length = 500)
     private String notes;
 
+    // Bumped on every update; status transitions are claimed with an UPDATE ... WHERE version = ?
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
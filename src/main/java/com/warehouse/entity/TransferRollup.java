@@ -0,0 +1,75 @@
+package com.warehouse.entity;
+
+import com.warehouse.enums.RollupGranularity;
+import com.warehouse.enums.TransferStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated transfer counters for one (granularity, bucket, lane, category, status) cell.
+ * Buckets are keyed by the transfer date; maintained by TransferAnalyticsService.
+ */
+@Entity
+@Table(name = "transfer_rollups",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transfer_rollups_cell", columnNames = {
+            "granularity", "bucket_start", "source_warehouse_id", "destination_warehouse_id", "category_id", "status"})
+    },
+    indexes = {
+        @Index(name = "idx_transfer_rollups_bucket", columnList = "granularity, bucket_start")
+    })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class TransferRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transfer_rollups_seq")
+    @SequenceGenerator(name = "transfer_rollups_seq", sequenceName = "transfer_rollups_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "source_warehouse_id", nullable = false)
+    private Long sourceWarehouseId;
+
+    @Column(name = "destination_warehouse_id", nullable = false)
+    private Long destinationWarehouseId;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TransferStatus status;
+
+    @Column(name = "transfer_count", nullable = false)
+    private long transferCount;
+
+    @Column(name = "unit_count", nullable = false)
+    private long unitCount;
+
+    // Transit time from transferDate to completedDate, only for COMPLETED cells
+    @Column(name = "transit_seconds_total", nullable = false)
+    private long transitSecondsTotal;
+
+    public TransferRollup(RollupGranularity granularity, LocalDateTime bucketStart, Long sourceWarehouseId,
+                          Long destinationWarehouseId, Long categoryId, TransferStatus status) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.sourceWarehouseId = sourceWarehouseId;
+        this.destinationWarehouseId = destinationWarehouseId;
+        this.categoryId = categoryId;
+        this.status = status;
+    }
+}
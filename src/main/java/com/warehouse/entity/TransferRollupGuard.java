@@ -0,0 +1,28 @@
+package com.warehouse.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row that serialises rollup rebuilds against rollup deltas. Writers of deltas hold it
+ * shared until their transaction ends, a rebuild holds it exclusively.
+ */
+@Entity
+@Table(name = "transfer_rollup_guard")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferRollupGuard {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "rebuilt_at")
+    private LocalDateTime rebuiltAt;
+}
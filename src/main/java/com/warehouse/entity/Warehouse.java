@@ -20,7 +20,8 @@ import java.util.List;
 public class Warehouse {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "warehouses_seq")
+    @SequenceGenerator(name = "warehouses_seq", sequenceName = "warehouses_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Warehouse name is required")
@@ -0,0 +1,12 @@
+package com.warehouse.enums;
+
+public enum ConsistencyViolationType {
+    NEGATIVE_QUANTITY,
+    NEGATIVE_RESERVED,
+    NEGATIVE_CONSIGNED,
+    RESERVED_ABOVE_QUANTITY,
+    RESERVED_BELOW_IN_TRANSIT,
+    NEGATIVE_AVAILABLE,
+    TRANSFER_WITHOUT_SOURCE_STOCK,
+    INVALID_TRANSFER
+}
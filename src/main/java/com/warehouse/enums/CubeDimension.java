@@ -0,0 +1,32 @@
+package com.warehouse.enums;
+
+import java.util.Collection;
+
+/**
+ * Dimensions of the inventory cube. Each one owns a bit of a grouping mask, the set of
+ * dimensions a cube cell is grouped by.
+ */
+public enum CubeDimension {
+    CATEGORY,
+    BRAND,
+    COLOR,
+    WAREHOUSE;
+
+    public static final int ALL = (1 << values().length) - 1;
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean in(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    public static int maskOf(Collection<CubeDimension> dimensions) {
+        int mask = 0;
+        for (CubeDimension dimension : dimensions) {
+            mask |= dimension.bit();
+        }
+        return mask;
+    }
+}
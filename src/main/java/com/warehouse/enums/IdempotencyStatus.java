@@ -0,0 +1,6 @@
+package com.warehouse.enums;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,8 @@
+package com.warehouse.enums;
+
+public enum StockThresholdCrossing {
+    LOW_STOCK_ENTERED,
+    LOW_STOCK_CLEARED,
+    OUT_OF_STOCK_ENTERED,
+    OUT_OF_STOCK_CLEARED
+}
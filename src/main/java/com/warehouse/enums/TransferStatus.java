@@ -4,6 +4,21 @@ public enum TransferStatus {
     PENDING,
     IN_TRANSIT,
     COMPLETED,
-    CANCELLED
-}
+    CANCELLED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == CANCELLED;
+    }
 
+    /**
+     * PENDING may be started, completed directly or cancelled; IN_TRANSIT may be completed or
+     * cancelled; COMPLETED and CANCELLED are final.
+     */
+    public boolean canTransitionTo(TransferStatus target) {
+        return switch (this) {
+            case PENDING -> target == IN_TRANSIT || target == COMPLETED || target == CANCELLED;
+            case IN_TRANSIT -> target == COMPLETED || target == CANCELLED;
+            case COMPLETED, CANCELLED -> false;
+        };
+    }
+}
@@ -0,0 +1,8 @@
+package com.warehouse.event;
+
+/**
+ * Published by ProductService whenever a product is created, updated or deleted.
+ * Listeners that cache product data should react after the transaction commits.
+ */
+public record ProductChangedEvent(Long productId) {
+}
@@ -0,0 +1,46 @@
+package com.warehouse.event;
+
+import com.warehouse.entity.Stock;
+
+/**
+ * Published by StockService and StockTransferService for every change to a stock row, with the
+ * deltas it applied and the row's quantity and minimum level afterwards. Changes made through the
+ * database are delivered after the transaction commits; changes served by the inventory engine
+ * ({@code writeBehind}) are delivered at once and reach the stocks table with the engine's next
+ * flush.
+ */
+public record StockChangedEvent(Long stockId,
+                                Long productId,
+                                Long warehouseId,
+                                int quantity,
+                                int reserved,
+                                int consigned,
+                                int quantityAfter,
+                                int minStockLevel,
+                                boolean writeBehind,
+                                boolean deleted) {
+
+    public static StockChangedEvent committed(Stock stock, int quantity, int reserved, int consigned) {
+        return of(stock, quantity, reserved, consigned, false, false);
+    }
+
+    public static StockChangedEvent writeBehind(Stock stock, int quantity, int reserved, int consigned) {
+        return of(stock, quantity, reserved, consigned, true, false);
+    }
+
+    public static StockChangedEvent deleted(Stock stock) {
+        return of(stock, -orZero(stock.getQuantity()), -orZero(stock.getReservedQuantity()),
+                -orZero(stock.getConsignedQuantity()), false, true);
+    }
+
+    private static StockChangedEvent of(Stock stock, int quantity, int reserved, int consigned,
+                                        boolean writeBehind, boolean deleted) {
+        return new StockChangedEvent(stock.getId(), stock.getProduct().getId(), stock.getWarehouse().getId(),
+                quantity, reserved, consigned, deleted ? 0 : orZero(stock.getQuantity()),
+                orZero(stock.getMinStockLevel()), writeBehind, deleted);
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.warehouse.event;
+
+import com.warehouse.enums.StockThresholdCrossing;
+
+/**
+ * Published by LowStockDetector when a stock row enters or leaves the low-stock
+ * ({@code quantity <= minStockLevel}) or out-of-stock ({@code quantity == 0}) set. Delivered
+ * synchronously on the thread that handled the stock change, after it committed; listeners that
+ * do slow work should hand it off. The quantities are null where only a reload noticed the
+ * crossing and the row's quantity outside the set is not known.
+ */
+public record StockThresholdCrossedEvent(StockThresholdCrossing crossing,
+                                         Long stockId,
+                                         Long productId,
+                                         Long warehouseId,
+                                         Integer previousQuantity,
+                                         Integer quantity,
+                                         int minStockLevel) {
+}
@@ -25,9 +25,11 @@ public class SimpleAuthFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        String path = request.getRequestURI();
+        // The decoded, normalised path the request is routed by; the raw URI may be percent-encoded.
+        // Only /api/* and the protected actuator endpoints are mapped to this filter.
+        String path = request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : "");
         // Public paths
-        if (path.startsWith("/api/auth/") || path.startsWith("/actuator") || path.startsWith("/api/info") || path.startsWith("/error")) {
+        if (path.startsWith("/api/auth/") || path.startsWith("/api/info") || path.startsWith("/error")) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -0,0 +1,233 @@
+package com.warehouse.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes mutations carrying an {@code Idempotency-Key} header safe to retry.
+ * <p>
+ * The first request with a key claims it, runs inside one transaction together with storing its
+ * response, and commits both or neither. Retries with the same key and the same request
+ * (method, path, query and body) get the stored response replayed with
+ * {@code Idempotent-Replayed: true}; a different request under a used key gets 422.
+ * Concurrent duplicates on this instance wait for the first one (single flight); on other
+ * instances they get 409 with Retry-After until it finishes. Failed or rolled back requests
+ * release their claim, so a retry runs them again.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String REQUESTS = "warehouse.idempotency.requests";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyService idempotencyService;
+    private final TransactionTemplate requestTransaction;
+    private final Duration duplicateWait;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inflight = new ConcurrentHashMap<>();
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, PlatformTransactionManager transactionManager,
+                             Duration duplicateWait, MeterRegistry registry) {
+        this.idempotencyService = idempotencyService;
+        this.requestTransaction = new TransactionTemplate(transactionManager);
+        this.duplicateWait = duplicateWait;
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return request.getHeader(HEADER) == null
+                || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            reject(response, 400, "invalid", "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cachedRequest);
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> leader = inflight.putIfAbsent(key, mine);
+        if (leader != null) {
+            follow(leader, fingerprint, response);
+            return;
+        }
+        StoredResponse result = null;
+        try {
+            result = lead(key, fingerprint, cachedRequest, response, filterChain);
+        } finally {
+            mine.complete(result);
+            inflight.remove(key, mine);
+        }
+    }
+
+    private StoredResponse lead(String key, String fingerprint, HttpServletRequest request,
+                                HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        IdempotencyService.Claim claim = idempotencyService.claim(key, fingerprint);
+        if (claim instanceof IdempotencyService.Replay replay) {
+            replay(replay.response(), response);
+            return replay.response();
+        }
+        if (claim instanceof IdempotencyService.Mismatch) {
+            reject(response, 422, "mismatch", "Idempotency-Key was already used for a different request");
+            return null;
+        }
+        if (claim instanceof IdempotencyService.InProgress) {
+            conflict(response);
+            return null;
+        }
+        String owner = ((IdempotencyService.Claimed) claim).owner();
+
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        boolean[] claimLost = {false};
+        StoredResponse stored;
+        try {
+            stored = requestTransaction.execute(tx -> {
+                try {
+                    filterChain.doFilter(request, captured);
+                } catch (IOException | ServletException e) {
+                    throw new ChainFailure(e);
+                }
+                // Server errors and requests whose work was rolled back leave nothing to replay
+                if (captured.getStatus() >= 500 || tx.isRollbackOnly()) {
+                    tx.setRollbackOnly();
+                    return null;
+                }
+                StoredResponse completed = idempotencyService.complete(key, owner, fingerprint,
+                        captured.getStatus(), captured.getContentType(), captured.getContentAsByteArray());
+                if (completed == null) {
+                    claimLost[0] = true;
+                    tx.setRollbackOnly();
+                }
+                return completed;
+            });
+        } catch (ChainFailure e) {
+            idempotencyService.release(key, owner);
+            if (e.getCause() instanceof ServletException servletException) {
+                throw servletException;
+            }
+            throw (IOException) e.getCause();
+        } catch (RuntimeException e) {
+            idempotencyService.release(key, owner);
+            throw e;
+        }
+
+        if (claimLost[0]) {
+            captured.resetBuffer();
+            conflict(response);
+            return null;
+        }
+        if (stored == null) {
+            idempotencyService.release(key, owner);
+        }
+        count(stored != null ? "executed" : "not_stored");
+        captured.copyBodyToResponse();
+        return stored;
+    }
+
+    private void follow(CompletableFuture<StoredResponse> leader, String fingerprint, HttpServletResponse response)
+            throws IOException {
+        StoredResponse stored;
+        try {
+            stored = leader.get(duplicateWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            stored = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stored = null;
+        }
+        if (stored == null) {
+            conflict(response);
+        } else if (!stored.fingerprint().equals(fingerprint)) {
+            reject(response, 422, "mismatch", "Idempotency-Key was already used for a different request");
+        } else {
+            replay(stored, response);
+        }
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        count("replayed");
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void conflict(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        reject(response, 409, "in_progress", "A request with this Idempotency-Key is still in progress");
+    }
+
+    private void reject(HttpServletResponse response, int status, String result, String message) throws IOException {
+        count(result);
+        response.setStatus(status);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+
+    private void count(String result) {
+        Counter.builder(REQUESTS)
+                .description("Requests carrying an Idempotency-Key, by result")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    private static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            digest.update(request.getBody());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class ChainFailure extends RuntimeException {
+        ChainFailure(Exception cause) {
+            super(cause);
+        }
+    }
+}
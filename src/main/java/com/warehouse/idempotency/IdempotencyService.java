@@ -0,0 +1,168 @@
+package com.warehouse.idempotency;
+
+import com.warehouse.entity.IdempotencyRecord;
+import com.warehouse.enums.IdempotencyStatus;
+import com.warehouse.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Claims, completes and looks up idempotency records. Claims and lookups run in their own short
+ * transactions; {@link #complete} must run inside the transaction of the request itself, so the
+ * stored response commits (or rolls back) together with the changes it describes.
+ * Completed responses are also kept in a bounded in-memory LRU to spare the database on retries.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public sealed interface Claim permits Claimed, Replay, InProgress, Mismatch {
+    }
+
+    public record Claimed(String owner) implements Claim {
+    }
+
+    public record Replay(StoredResponse response) implements Claim {
+    }
+
+    public record InProgress() implements Claim {
+    }
+
+    public record Mismatch() implements Claim {
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate newTransaction;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Map<String, StoredResponse> cache;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${app.idempotency.lease:PT30S}") Duration lease,
+                              @Value("${app.idempotency.cache-size:10000}") int cacheSize) {
+        this.repository = repository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = ttl;
+        this.lease = lease;
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public Claim claim(String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredResponse cached = cached(key, now);
+        if (cached != null) {
+            return cached.fingerprint().equals(fingerprint) ? new Replay(cached) : new Mismatch();
+        }
+
+        String owner = UUID.randomUUID().toString();
+        try {
+            newTransaction.executeWithoutResult(tx ->
+                    repository.insertClaim(key, fingerprint, owner, now.plus(lease), now, now.plus(ttl)));
+            return new Claimed(owner);
+        } catch (DataIntegrityViolationException e) {
+            // Someone used this key before; decide from their record
+        }
+
+        IdempotencyRecord existing = newTransaction.execute(tx -> repository.findById(key).orElse(null));
+        if (existing == null) {
+            // Released or purged between our insert and lookup; let the client retry
+            return new InProgress();
+        }
+        boolean expired = existing.getExpiresAt().isBefore(now);
+        if (!expired && !existing.getFingerprint().equals(fingerprint)) {
+            return new Mismatch();
+        }
+        if (!expired && existing.getStatus() == IdempotencyStatus.COMPLETED) {
+            StoredResponse response = toResponse(existing);
+            remember(key, response);
+            return new Replay(response);
+        }
+        Integer taken = newTransaction.execute(tx -> repository.takeOver(key, fingerprint, owner, now.plus(lease),
+                now, now.plus(ttl), IdempotencyStatus.IN_PROGRESS));
+        return taken != null && taken == 1 ? new Claimed(owner) : new InProgress();
+    }
+
+    /**
+     * Stores the response under the claim, in the caller's transaction. Returns null when the
+     * claim was lost (its lease ran out and another request took over); the caller must then
+     * roll back.
+     */
+    public StoredResponse complete(String key, String owner, String fingerprint,
+                                   int status, String contentType, byte[] body) {
+        int updated = repository.complete(key, owner, status, contentType, body, IdempotencyStatus.COMPLETED);
+        if (updated == 0) {
+            return null;
+        }
+        StoredResponse response = new StoredResponse(fingerprint, status, contentType, body, LocalDateTime.now().plus(ttl));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(key, response);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Gives the claim up after a failed or rolled back request so a retry runs it again.
+     */
+    public void release(String key, String owner) {
+        newTransaction.executeWithoutResult(tx -> repository.release(key, owner));
+    }
+
+    @Scheduled(cron = "${app.idempotency.purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        Integer purged = newTransaction.execute(tx -> repository.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private StoredResponse cached(String key, LocalDateTime now) {
+        synchronized (cache) {
+            StoredResponse response = cache.get(key);
+            if (response != null && response.isExpired(now)) {
+                cache.remove(key);
+                return null;
+            }
+            return response;
+        }
+    }
+
+    private void remember(String key, StoredResponse response) {
+        synchronized (cache) {
+            cache.put(key, response);
+        }
+    }
+
+    private static StoredResponse toResponse(IdempotencyRecord record) {
+        return new StoredResponse(record.getFingerprint(), record.getResponseStatus(), record.getContentType(),
+                record.getResponseBody() != null ? record.getResponseBody() : new byte[0], record.getExpiresAt());
+    }
+}
@@ -0,0 +1,14 @@
+package com.warehouse.idempotency;
+
+import java.time.LocalDateTime;
+
+/**
+ * The response of a completed idempotent request, kept for replay to its retries.
+ */
+public record StoredResponse(String fingerprint, int status, String contentType, byte[] body,
+                             LocalDateTime expiresAt) {
+
+    boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+}
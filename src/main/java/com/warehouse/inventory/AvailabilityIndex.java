@@ -0,0 +1,413 @@
+package com.warehouse.inventory;
+
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Stock;
+import com.warehouse.event.ProductChangedEvent;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Stock counters by (product, warehouse) in a primitive open-addressing table, for availability
+ * checks that should not load entities ({@code app.availability-index.enabled}).
+ * <p>
+ * The table is built at startup from one streaming scan of the stocks table and then follows
+ * {@link StockChangedEvent}s: database changes after they commit, inventory engine changes as
+ * they are made. Lookups take an optimistic read stamp and allocate nothing. Rows changed while
+ * the scan runs are read again once it finishes.
+ */
+@Component
+public class AvailabilityIndex implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    /** Returned by {@link #available} when the pair is not in the index. */
+    public static final int NOT_INDEXED = Integer.MIN_VALUE;
+
+    private final StockRepository stockRepository;
+    private final ProductRepository productRepository;
+    private final InventoryEngine inventoryEngine;
+    private final TransactionTemplate primaryTransaction;
+    private final boolean enabled;
+    private final int initialCapacity;
+    private final StampedLock lock = new StampedLock();
+    private final Set<Long> changedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+    private volatile Table table;
+    private volatile boolean building;
+    private volatile boolean running;
+
+    @Autowired
+    public AvailabilityIndex(StockRepository stockRepository,
+                             ProductRepository productRepository,
+                             InventoryEngine inventoryEngine,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry registry,
+                             @Value("${app.availability-index.enabled:true}") boolean enabled,
+                             @Value("${app.availability-index.initial-capacity:65536}") int initialCapacity) {
+        this.stockRepository = stockRepository;
+        this.productRepository = productRepository;
+        this.inventoryEngine = inventoryEngine;
+        // Read-write so the scan reads the primary, never a lagging replica
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.initialCapacity = Math.max(16, initialCapacity);
+
+        Gauge.builder("warehouse.availability.index.entries", this, AvailabilityIndex::size)
+                .description("Product and warehouse pairs held in the availability index")
+                .register(registry);
+    }
+
+    public boolean isReady() {
+        return running && table != null && !building;
+    }
+
+    /**
+     * Quantity minus reserved and consigned units, or {@link #NOT_INDEXED}.
+     */
+    public int available(long productId, long warehouseId) {
+        long key = pack(productId, warehouseId);
+        if (key == 0 || !isReady()) {
+            return NOT_INDEXED;
+        }
+        long stamp = lock.tryOptimisticRead();
+        int available = table.available(key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                available = table.available(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Copies quantity, reserved and consigned units into {@code into[0..2]}. Returns false, and
+     * leaves {@code into} unspecified, when the pair is not in the index.
+     */
+    public boolean read(long productId, long warehouseId, int[] into) {
+        long key = pack(productId, warehouseId);
+        if (key == 0 || !isReady()) {
+            return false;
+        }
+        long stamp = lock.tryOptimisticRead();
+        boolean found = table.copy(key, into);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = table.copy(key, into);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (!enabled || event.productId() == null || event.warehouseId() == null) {
+            return;
+        }
+        long key = pack(event.productId(), event.warehouseId());
+        if (key == 0) {
+            return;
+        }
+        if (building) {
+            changedWhileBuilding.add(key);
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (table == null) {
+                return;
+            }
+            if (event.deleted()) {
+                table.remove(key);
+            } else {
+                table = table.withRoomForOne();
+                table.add(key, event.quantity(), event.reserved(), event.consigned());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Deleting a product deletes its stocks without a stock event per row
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled || table == null || event.productId() == null) {
+            return;
+        }
+        Boolean exists = primaryTransaction.execute(tx -> productRepository.existsById(event.productId()));
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            table.removeProduct(event.productId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the index with a fresh scan of the stocks table.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        building = true;
+        changedWhileBuilding.clear();
+        try {
+            Table built = primaryTransaction.execute(tx -> scan());
+            long stamp = lock.writeLock();
+            try {
+                table = built;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            List<Long> changed = new ArrayList<>(changedWhileBuilding);
+            for (Long key : changed) {
+                refresh(key);
+            }
+            log.info("Availability index built with {} entries in {} ms ({} re-read)", built.size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), changed.size());
+        } finally {
+            building = false;
+            changedWhileBuilding.clear();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        rebuild();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // After the inventory engine has replayed its journal, before the web server accepts requests
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 3072;
+    }
+
+    private Table scan() {
+        Table scanned = new Table(initialCapacity);
+        try (Stream<StockLevelRow> rows = stockRepository.streamAllStockLevels()) {
+            Iterator<StockLevelRow> it = rows.iterator();
+            while (it.hasNext()) {
+                StockLevelRow row = it.next();
+                long key = pack(row.productId(), row.warehouseId());
+                if (key != 0) {
+                    scanned = scanned.withRoomForOne();
+                    scanned.put(key, row.quantityOrZero(), orZero(row.reservedQuantity()),
+                            orZero(row.consignedQuantity()));
+                }
+            }
+        }
+        return scanned;
+    }
+
+    // Sets the row to its current values, preferring the engine's view over the lagging table
+    private void refresh(long key) {
+        Optional<StockLevelRow> row = primaryTransaction.execute(tx ->
+                stockRepository.findStockLevel(key >>> 32, key & 0xFFFFFFFFL));
+        Stock cached = row.map(r -> inventoryEngine.snapshot(r.stockId())).orElse(null);
+        long stamp = lock.writeLock();
+        try {
+            if (row.isEmpty()) {
+                table.remove(key);
+            } else if (cached != null) {
+                table = table.withRoomForOne();
+                table.put(key, orZero(cached.getQuantity()), orZero(cached.getReservedQuantity()),
+                        orZero(cached.getConsignedQuantity()));
+            } else {
+                StockLevelRow r = row.get();
+                table = table.withRoomForOne();
+                table.put(key, r.quantityOrZero(), orZero(r.reservedQuantity()), orZero(r.consignedQuantity()));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int size() {
+        Table current = table;
+        return current != null ? current.size : 0;
+    }
+
+    // Both ids in one long; ids beyond 32 bits are left to the database
+    private static long pack(long productId, long warehouseId) {
+        if (productId <= 0 || warehouseId <= 0 || productId > 0xFFFFFFFFL || warehouseId > 0xFFFFFFFFL) {
+            return 0;
+        }
+        return productId << 32 | warehouseId;
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * Linear-probing table with three ints per slot; key 0 marks a free slot. Writers hold the
+     * index's write lock and replace the table rather than resize it in place, so an optimistic
+     * reader always sees arrays of matching size.
+     */
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+        int size;
+
+        Table(int capacity) {
+            int slots = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            keys = new long[slots];
+            values = new int[slots * 3];
+        }
+
+        int available(long key) {
+            int i = find(key);
+            return i < 0 ? NOT_INDEXED : values[i * 3] - values[i * 3 + 1] - values[i * 3 + 2];
+        }
+
+        boolean copy(long key, int[] into) {
+            int i = find(key);
+            if (i < 0) {
+                return false;
+            }
+            into[0] = values[i * 3];
+            into[1] = values[i * 3 + 1];
+            into[2] = values[i * 3 + 2];
+            return true;
+        }
+
+        Table withRoomForOne() {
+            if ((size + 1) * 4 <= keys.length * 3) {
+                return this;
+            }
+            Table grown = new Table(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    grown.put(keys[i], values[i * 3], values[i * 3 + 1], values[i * 3 + 2]);
+                }
+            }
+            return grown;
+        }
+
+        void put(long key, int quantity, int reserved, int consigned) {
+            int i = claim(key);
+            values[i * 3] = quantity;
+            values[i * 3 + 1] = reserved;
+            values[i * 3 + 2] = consigned;
+        }
+
+        void add(long key, int quantity, int reserved, int consigned) {
+            int i = claim(key);
+            values[i * 3] += quantity;
+            values[i * 3 + 1] += reserved;
+            values[i * 3 + 2] += consigned;
+        }
+
+        void remove(long key) {
+            int i = find(key);
+            if (i < 0) {
+                return;
+            }
+            int mask = keys.length - 1;
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!stays) {
+                    keys[i] = keys[j];
+                    System.arraycopy(values, j * 3, values, i * 3, 3);
+                    i = j;
+                }
+            }
+            keys[i] = 0;
+            values[i * 3] = 0;
+            values[i * 3 + 1] = 0;
+            values[i * 3 + 2] = 0;
+            size--;
+        }
+
+        void removeProduct(long productId) {
+            List<Long> doomed = new ArrayList<>();
+            for (long key : keys) {
+                if (key != 0 && key >>> 32 == productId) {
+                    doomed.add(key);
+                }
+            }
+            doomed.forEach(this::remove);
+        }
+
+        // Bounded so an optimistic reader racing a writer cannot spin forever
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (int probes = 0; probes < keys.length; probes++, i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == key) {
+                    return i;
+                }
+                if (k == 0) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private int claim(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == 0) {
+                    keys[i] = key;
+                    size++;
+                    return i;
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 29)) & mask;
+        }
+    }
+}
@@ -0,0 +1,811 @@
+package com.warehouse.inventory;
+
+import com.warehouse.entity.InventoryCheckpoint;
+import com.warehouse.entity.Product;
+import com.warehouse.entity.Stock;
+import com.warehouse.entity.Warehouse;
+import com.warehouse.event.ProductChangedEvent;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.repository.InventoryCheckpointRepository;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.service.CatalogCounterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Optional in-memory front for add, remove, reserve and release on hot stock rows
+ * ({@code app.inventory-engine.enabled}).
+ * <p>
+ * Counters live in lock-striped open-addressing tables keyed by stock id. An operation validates
+ * and applies its delta under the stripe lock and appends it to a local, memory-mapped
+ * {@link StockJournal} before returning, without touching the database. A background applier
+ * group-commits the accumulated deltas every {@code flush-interval} as relative UPDATEs, together
+ * with the catalog counters and the node's {@link InventoryCheckpoint}, the high-water mark of
+ * applied journal sequences. After a crash exactly the intact journal entries past it are replayed.
+ * <p>
+ * Stock changes that commit straight to the database, from {@link com.warehouse.service.StockService}
+ * and {@link com.warehouse.service.StockTransferService}, are journaled too once they commit (see
+ * {@link #onStockChanged}), so the journal holds every stock movement on this node in order.
+ * Replay skips them.
+ * <p>
+ * Any other code that writes a stock row calls {@link #fence(Long)} inside its transaction before
+ * reading the row: pending deltas are flushed, the cached row is dropped and the engine leaves the
+ * row to the database until that transaction completes. Operations the engine does not serve
+ * return {@code null} and the caller falls back to the database path.
+ */
+@Component
+public class InventoryEngine implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryEngine.class);
+
+    private enum Op { ADD, REMOVE, RESERVE, RELEASE }
+
+    private final InventoryEngineProperties properties;
+    private final StockRepository stockRepository;
+    private final InventoryCheckpointRepository checkpointRepository;
+    private final CatalogCounterService catalogCounterService;
+    private final TransactionTemplate primaryTransaction;
+    private final Stripe[] stripes;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ConcurrentHashMap<Long, Integer> fences = new ConcurrentHashMap<>();
+    private final AtomicInteger cellCount = new AtomicInteger();
+    private final List<Delta> carryOver = new ArrayList<>();
+    private final Timer flushTimer;
+    private final DistributionSummary flushRows;
+    private final Counter fallbacks;
+    private final Counter unjournaled;
+
+    private volatile StockJournal journal;
+    private volatile boolean running;
+    private volatile long checkpointed;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public InventoryEngine(InventoryEngineProperties properties,
+                           StockRepository stockRepository,
+                           InventoryCheckpointRepository checkpointRepository,
+                           CatalogCounterService catalogCounterService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry registry) {
+        this.properties = properties;
+        this.stockRepository = stockRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.catalogCounterService = catalogCounterService;
+        // Read-write so loads and flushes always go to the primary, never to a lagging replica
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, properties.getStripes() - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        this.flushTimer = Timer.builder("warehouse.inventory.engine.flush")
+                .description("Write-behind flushes of engine deltas to the stocks table")
+                .register(registry);
+        this.flushRows = DistributionSummary.builder("warehouse.inventory.engine.flush.rows")
+                .description("Stock rows written per flush")
+                .register(registry);
+        this.fallbacks = Counter.builder("warehouse.inventory.engine.fallbacks")
+                .description("Operations the engine left to the database path")
+                .register(registry);
+        this.unjournaled = Counter.builder("warehouse.inventory.engine.unjournaled")
+                .description("Committed stock changes that could not be appended to the journal")
+                .register(registry);
+        Gauge.builder("warehouse.inventory.engine.cells", cellCount, AtomicInteger::get)
+                .description("Stock rows held in memory")
+                .register(registry);
+        Gauge.builder("warehouse.inventory.engine.unflushed", this, InventoryEngine::unflushedEntries)
+                .description("Journal entries not yet written to the database")
+                .register(registry);
+        Gauge.builder("warehouse.inventory.engine.applied.sequence", this, engine -> engine.checkpointed)
+                .description("Highest journal sequence known to be applied to the database")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public Stock add(long stockId, int quantity) {
+        return apply(stockId, Op.ADD, quantity);
+    }
+
+    public Stock remove(long stockId, int quantity) {
+        return apply(stockId, Op.REMOVE, quantity);
+    }
+
+    public Stock reserve(long stockId, int quantity) {
+        return apply(stockId, Op.RESERVE, quantity);
+    }
+
+    public Stock release(long stockId, int quantity) {
+        return apply(stockId, Op.RELEASE, quantity);
+    }
+
+    /**
+     * The engine's current view of a row, or {@code null} if it does not hold the row.
+     */
+    public Stock snapshot(long stockId) {
+        if (!running) {
+            return null;
+        }
+        Stripe stripe = stripeFor(stockId);
+        stripe.lock.lock();
+        try {
+            Cell cell = stripe.get(stockId);
+            return cell != null && !cell.fenced ? cell.toStock() : null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Hands a stock row over to the database for the rest of the current transaction. Call it
+     * before reading the row, and before the transaction locks it, because pending deltas for the
+     * row are flushed in a separate transaction.
+     */
+    public void fence(Long stockId) {
+        if (stockId != null) {
+            fence(List.of(stockId));
+        }
+    }
+
+    /**
+     * {@link #fence(Long)} for several rows at once, with at most one flush.
+     */
+    public void fence(Collection<Long> stockIds) {
+        if (!running || stockIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(stockIds);
+        ids.forEach(id -> fences.merge(id, 1, Integer::sum));
+        boolean untilCompletion = TransactionSynchronizationManager.isSynchronizationActive();
+        if (untilCompletion) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(InventoryEngine.this::unfence);
+                }
+            });
+        }
+        try {
+            evict(ids);
+        } finally {
+            if (!untilCompletion) {
+                ids.forEach(this::unfence);
+            }
+        }
+    }
+
+    /**
+     * Journals stock changes that were committed straight to the database. They are only kept for
+     * the record: replay never applies them again.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        StockJournal current = journal;
+        if (!running || current == null || event.writeBehind() || event.stockId() == null
+                || (event.quantity() == 0 && event.reserved() == 0 && event.consigned() == 0)) {
+            return;
+        }
+        try {
+            current.append(StockJournal.Kind.COMMITTED, event.stockId(), event.productId(), event.quantity(),
+                    event.reserved(), event.consigned());
+        } catch (RuntimeException e) {
+            // The change itself is committed; losing its journal copy must not fail the caller
+            unjournaled.increment();
+            log.warn("Could not journal committed change of stock {}: {}", event.stockId(), e.getMessage());
+        }
+    }
+
+    // Product data is cached in the cells for responses; deleted products take their stocks along
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!running || event.productId() == null) {
+            return;
+        }
+        List<Long> stockIds = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.forEach(cell -> {
+                    if (cell.productId == event.productId()) {
+                        stockIds.add(cell.stockId);
+                    }
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (!stockIds.isEmpty()) {
+            evict(stockIds);
+        }
+    }
+
+    /**
+     * Writes all pending deltas and advances the checkpoint. Runs on the flusher thread and
+     * whenever a row is fenced.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the inventory journal", e);
+        }
+        long intervalMs = Math.max(1, properties.getFlushInterval().toMillis());
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "inventory-journal-applier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Inventory engine started with {} stripes, journal in {}", stripes.length,
+                properties.getJournalDirectory().toAbsolutePath());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // Taking every stripe lock waits for operations in flight; later ones see running == false
+        lockAll();
+        try {
+            running = false;
+        } finally {
+            unlockAll();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Final inventory flush failed; the journal is replayed on the next start", e);
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Could not close the inventory journal", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Start before the web server accepts requests and stop after it has drained them
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private Stock apply(long stockId, Op op, int amount) {
+        if (!running) {
+            return null;
+        }
+        Stripe stripe = stripeFor(stockId);
+        if (!contains(stripe, stockId) && !load(stripe, stockId)) {
+            fallbacks.increment();
+            return null;
+        }
+        stripe.lock.lock();
+        try {
+            Cell cell = stripe.get(stockId);
+            if (!running || cell == null || cell.fenced) {
+                fallbacks.increment();
+                return null;
+            }
+            int quantity = 0;
+            int reserved = 0;
+            switch (op) {
+                case ADD -> quantity = amount;
+                case REMOVE -> {
+                    if (cell.quantity < amount) {
+                        throw new RuntimeException("Insufficient stock. Quantity: " + cell.quantity + ", Requested: " + amount);
+                    }
+                    quantity = -amount;
+                }
+                case RESERVE -> {
+                    int available = cell.quantity - cell.reserved - cell.consigned;
+                    if (available < amount) {
+                        throw new RuntimeException("Insufficient available stock. Available: " + available + ", Requested: " + amount);
+                    }
+                    reserved = amount;
+                }
+                case RELEASE -> {
+                    if (cell.reserved < amount) {
+                        throw new RuntimeException("Cannot release more than reserved quantity. Reserved: " + cell.reserved + ", Requested: " + amount);
+                    }
+                    reserved = -amount;
+                }
+            }
+            journal.append(StockJournal.Kind.PENDING, stockId, cell.productId, quantity, reserved, 0);
+            cell.apply(quantity, reserved, 0);
+            if (!cell.dirty) {
+                cell.dirty = true;
+                stripe.dirty.add(cell);
+            }
+            return cell.toStock();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private boolean contains(Stripe stripe, long stockId) {
+        stripe.lock.lock();
+        try {
+            return stripe.get(stockId) != null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private boolean load(Stripe stripe, long stockId) {
+        if (cellCount.get() >= properties.getMaxCells() || fences.containsKey(stockId)) {
+            return false;
+        }
+        long epoch;
+        stripe.lock.lock();
+        try {
+            epoch = stripe.epoch;
+        } finally {
+            stripe.lock.unlock();
+        }
+        Stock view = primaryTransaction.execute(tx -> stockRepository.findDetachedView(stockId).orElse(null));
+        if (view == null) {
+            throw new RuntimeException("Stock not found with id: " + stockId);
+        }
+        stripe.lock.lock();
+        try {
+            if (stripe.get(stockId) != null) {
+                return true;
+            }
+            // A fence since we read the row means it may have changed underneath us
+            if (stripe.epoch != epoch || fences.containsKey(stockId)) {
+                return false;
+            }
+            stripe.put(stockId, new Cell(view));
+            cellCount.incrementAndGet();
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void evict(List<Long> stockIds) {
+        boolean pending = setFenced(stockIds, true);
+        if (pending) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // Keep the cells; their deltas are still pending or carried over to the next flush
+                setFenced(stockIds, false);
+                throw e;
+            }
+        }
+        for (Long stockId : stockIds) {
+            Stripe stripe = stripeFor(stockId);
+            stripe.lock.lock();
+            try {
+                if (stripe.remove(stockId) != null) {
+                    cellCount.decrementAndGet();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    // Returns whether any of the cells has deltas waiting for a flush
+    private boolean setFenced(List<Long> stockIds, boolean fenced) {
+        boolean pending = false;
+        for (Long stockId : stockIds) {
+            Stripe stripe = stripeFor(stockId);
+            stripe.lock.lock();
+            try {
+                stripe.epoch++;
+                Cell cell = stripe.get(stockId);
+                if (cell != null) {
+                    cell.fenced = fenced;
+                    pending |= cell.dirty;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return pending;
+    }
+
+    private void unfence(Long stockId) {
+        fences.computeIfPresent(stockId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Inventory flush failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    private void flushLocked() {
+        if (journal == null) {
+            return;
+        }
+        if (properties.getJournalSync() == InventoryEngineProperties.JournalSync.BATCH) {
+            journal.force();
+        }
+
+        List<Delta> batch = new ArrayList<>(carryOver);
+        carryOver.clear();
+        long cut;
+        // Stop the world for the swap only, so the batch holds exactly the entries up to the cut
+        lockAll();
+        try {
+            cut = journal.lastSequence();
+            for (Stripe stripe : stripes) {
+                for (Cell cell : stripe.dirty) {
+                    batch.add(cell.drain());
+                }
+                stripe.dirty.clear();
+            }
+        } finally {
+            unlockAll();
+        }
+        if (batch.isEmpty() && cut <= checkpointed) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<Long> missing;
+        try {
+            missing = primaryTransaction.execute(tx -> write(batch, cut));
+        } catch (RuntimeException e) {
+            carryOver.addAll(batch);
+            throw e;
+        }
+        checkpointed = cut;
+        journal.discardThrough(cut);
+        flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        flushRows.record(batch.size());
+
+        if (!missing.isEmpty()) {
+            log.warn("Dropped engine deltas for {} deleted stock rows: {}", missing.size(), missing);
+            for (Long stockId : missing) {
+                Stripe stripe = stripeFor(stockId);
+                stripe.lock.lock();
+                try {
+                    Cell cell = stripe.get(stockId);
+                    if (cell != null && !cell.dirty && stripe.remove(stockId) != null) {
+                        cellCount.decrementAndGet();
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Rows in id order so concurrent flushes and transactions lock them in the same order
+    private List<Long> write(List<Delta> batch, long cut) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> missing = new ArrayList<>();
+        Map<Long, Long> quantityByProduct = new HashMap<>();
+        batch.sort(Comparator.comparingLong(Delta::stockId));
+        for (Delta delta : batch) {
+            if (delta.isZero()) {
+                continue;
+            }
+            if (stockRepository.applyDelta(delta.stockId(), delta.quantity(), delta.reserved(),
+                    delta.consigned(), now) == 0) {
+                missing.add(delta.stockId());
+                continue;
+            }
+            if (delta.quantity() != 0) {
+                quantityByProduct.merge(delta.productId(), (long) delta.quantity(), Long::sum);
+            }
+        }
+        quantityByProduct.forEach(catalogCounterService::stockQuantityChanged);
+        checkpointRepository.advance(properties.getNodeId(), cut, now);
+        return missing;
+    }
+
+    private void recover() throws IOException {
+        String nodeId = properties.getNodeId();
+        long checkpoint = primaryTransaction.execute(tx -> checkpointRepository.findById(nodeId)
+                .orElseGet(() -> checkpointRepository.save(new InventoryCheckpoint(nodeId, 0, LocalDateTime.now()))))
+                .getAppliedSequence();
+
+        StockJournal.Contents contents = StockJournal.readAll(properties.getJournalDirectory());
+        if (contents.tornRecords() > 0) {
+            log.warn("Rejected {} torn inventory journal record(s); the entries before them are replayed",
+                    contents.tornRecords());
+        }
+        List<StockJournal.Entry> entries = contents.entries();
+        if (!entries.isEmpty() && entries.get(0).sequence() > checkpoint + 1) {
+            throw new IllegalStateException(String.format(
+                    "Inventory journal starts at sequence %d but the database has only applied up to %d",
+                    entries.get(0).sequence(), checkpoint));
+        }
+
+        Map<Long, Delta> unapplied = new LinkedHashMap<>();
+        long last = checkpoint;
+        int replayed = 0;
+        for (StockJournal.Entry entry : entries) {
+            if (entry.sequence() <= checkpoint) {
+                continue;
+            }
+            last = Math.max(last, entry.sequence());
+            if (entry.kind() == StockJournal.Kind.COMMITTED) {
+                continue;
+            }
+            Delta delta = new Delta(entry.stockId(), entry.productId(), entry.quantity(), entry.reserved(),
+                    entry.consigned());
+            unapplied.merge(entry.stockId(), delta, Delta::plus);
+            replayed++;
+        }
+        if (last > checkpoint) {
+            long through = last;
+            List<Long> missing = primaryTransaction.execute(tx -> write(new ArrayList<>(unapplied.values()), through));
+            log.info("Replayed {} inventory journal entries ({} stock rows) after checkpoint {}",
+                    replayed, unapplied.size(), checkpoint);
+            if (!missing.isEmpty()) {
+                log.warn("Skipped journal entries for {} deleted stock rows: {}", missing.size(), missing);
+            }
+        }
+        checkpointed = last;
+        journal = StockJournal.create(properties.getJournalDirectory(), last, properties.getJournalSegmentBytes(),
+                properties.getJournalSync() == InventoryEngineProperties.JournalSync.ALWAYS);
+    }
+
+    private long unflushedEntries() {
+        StockJournal current = journal;
+        return current != null ? current.lastSequence() - checkpointed : 0;
+    }
+
+    private Stripe stripeFor(long stockId) {
+        return stripes[(int) (mix(stockId) >>> 32) & (stripes.length - 1)];
+    }
+
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private record Delta(long stockId, long productId, int quantity, int reserved, int consigned) {
+
+        Delta plus(Delta other) {
+            return new Delta(stockId, productId, quantity + other.quantity, reserved + other.reserved,
+                    consigned + other.consigned);
+        }
+
+        boolean isZero() {
+            return quantity == 0 && reserved == 0 && consigned == 0;
+        }
+    }
+
+    /**
+     * One stock row. Guarded by its stripe's lock; the product and warehouse are detached,
+     * fully loaded copies used to build responses.
+     */
+    private static final class Cell {
+        final long stockId;
+        final long productId;
+        final Product product;
+        final Warehouse warehouse;
+        final Integer minStockLevel;
+        int quantity;
+        int reserved;
+        int consigned;
+        int pendingQuantity;
+        int pendingReserved;
+        int pendingConsigned;
+        boolean dirty;
+        boolean fenced;
+
+        Cell(Stock view) {
+            this.stockId = view.getId();
+            this.productId = view.getProduct().getId();
+            this.product = view.getProduct();
+            this.warehouse = view.getWarehouse();
+            this.minStockLevel = view.getMinStockLevel();
+            this.quantity = orZero(view.getQuantity());
+            this.reserved = orZero(view.getReservedQuantity());
+            this.consigned = orZero(view.getConsignedQuantity());
+        }
+
+        void apply(int quantityDelta, int reservedDelta, int consignedDelta) {
+            quantity += quantityDelta;
+            reserved += reservedDelta;
+            consigned += consignedDelta;
+            pendingQuantity += quantityDelta;
+            pendingReserved += reservedDelta;
+            pendingConsigned += consignedDelta;
+        }
+
+        Delta drain() {
+            Delta delta = new Delta(stockId, productId, pendingQuantity, pendingReserved, pendingConsigned);
+            pendingQuantity = 0;
+            pendingReserved = 0;
+            pendingConsigned = 0;
+            dirty = false;
+            return delta;
+        }
+
+        Stock toStock() {
+            Stock stock = new Stock();
+            stock.setId(stockId);
+            stock.setProduct(product);
+            stock.setWarehouse(warehouse);
+            stock.setQuantity(quantity);
+            stock.setMinStockLevel(minStockLevel);
+            stock.setReservedQuantity(reserved);
+            stock.setConsignedQuantity(consigned);
+            stock.setLastUpdated(LocalDateTime.now());
+            return stock;
+        }
+
+        private static int orZero(Integer value) {
+            return value != null ? value : 0;
+        }
+    }
+
+    /**
+     * Open-addressing map from stock id to cell with linear probing; id 0 marks a free slot.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final List<Cell> dirty = new ArrayList<>();
+        long epoch;
+        private long[] keys = new long[16];
+        private Cell[] cells = new Cell[16];
+        private int size;
+
+        Cell get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return cells[i];
+                }
+                if (keys[i] == 0) {
+                    return null;
+                }
+            }
+        }
+
+        void put(long key, Cell cell) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == 0) {
+                    keys[i] = key;
+                    cells[i] = cell;
+                    size++;
+                    return;
+                }
+                if (keys[i] == key) {
+                    cells[i] = cell;
+                    return;
+                }
+            }
+        }
+
+        Cell remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != key) {
+                if (keys[i] == 0) {
+                    return null;
+                }
+                i = (i + 1) & mask;
+            }
+            Cell removed = cells[i];
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!stays) {
+                    keys[i] = keys[j];
+                    cells[i] = cells[j];
+                    i = j;
+                }
+            }
+            keys[i] = 0;
+            cells[i] = null;
+            size--;
+            return removed;
+        }
+
+        void forEach(Consumer<Cell> action) {
+            for (Cell cell : cells) {
+                if (cell != null) {
+                    action.accept(cell);
+                }
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Cell[] oldCells = cells;
+            keys = new long[oldKeys.length * 2];
+            cells = new Cell[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldCells[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) mix(key) & mask;
+        }
+    }
+}
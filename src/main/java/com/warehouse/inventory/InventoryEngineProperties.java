@@ -0,0 +1,43 @@
+package com.warehouse.inventory;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * In-memory inventory engine settings ({@code app.inventory-engine.*}). The engine caches stock
+ * counters per node, so enable it on one instance only, or route stock traffic by stock id.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.inventory-engine")
+public class InventoryEngineProperties {
+
+    public enum JournalSync {
+        /** Force the journal once per flush; survives a process crash, a power loss may lose the last interval. */
+        BATCH,
+        /** Force the journal on every operation before acknowledging it. */
+        ALWAYS
+    }
+
+    private boolean enabled = false;
+
+    /** Identifies this node's journal checkpoint in the database. */
+    private String nodeId = "default";
+
+    /** Lock stripes; rounded up to a power of two. */
+    private int stripes = 64;
+
+    /** Stock rows kept in memory at most; operations on further rows go straight to the database. */
+    private int maxCells = 100_000;
+
+    /** How often accumulated deltas are written to the stocks table. */
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    private Path journalDirectory = Path.of("data", "inventory-journal");
+
+    private long journalSegmentBytes = 64L * 1024 * 1024;
+
+    private JournalSync journalSync = JournalSync.BATCH;
+}
@@ -0,0 +1,342 @@
+package com.warehouse.inventory;
+
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Stock;
+import com.warehouse.enums.StockThresholdCrossing;
+import com.warehouse.event.ProductChangedEvent;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.event.StockThresholdCrossedEvent;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Live set of the low-stock rows ({@code quantity <= minStockLevel}), and among them the
+ * out-of-stock ones ({@code quantity == 0}), for {@code /api/stocks/low-stock} and
+ * {@code /out-of-stock} ({@code app.low-stock.enabled}).
+ * <p>
+ * The set is loaded from the primary at startup and then follows {@link StockChangedEvent}s,
+ * which carry each row's quantity and minimum level after the change, so a change is checked
+ * against the threshold without reading anything. Every time a row enters or leaves either set a
+ * {@link StockThresholdCrossedEvent} is published, logged and counted.
+ * <p>
+ * Commits of the same row by two transactions can deliver their events in the other order, and
+ * this node does not see other nodes' changes, so the set is reloaded every
+ * {@code app.low-stock.resync-interval}; rows it corrects are announced as crossings then.
+ */
+@Component
+public class LowStockDetector implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockDetector.class);
+
+    public static final String THRESHOLD_CROSSINGS = "warehouse.stock.threshold.crossings";
+
+    private final StockRepository stockRepository;
+    private final ProductRepository productRepository;
+    private final InventoryEngine inventoryEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate primaryTransaction;
+    private final boolean enabled;
+    private final Map<StockThresholdCrossing, Counter> crossingCounters = new EnumMap<>(StockThresholdCrossing.class);
+    private final Set<Long> changedWhileLoading = ConcurrentHashMap.newKeySet();
+    private final Object loadLock = new Object();
+
+    private volatile ConcurrentHashMap<Long, Level> low = new ConcurrentHashMap<>();
+    private volatile boolean loading;
+    private volatile boolean running;
+
+    @Autowired
+    public LowStockDetector(StockRepository stockRepository,
+                            ProductRepository productRepository,
+                            InventoryEngine inventoryEngine,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry registry,
+                            @Value("${app.low-stock.enabled:true}") boolean enabled) {
+        this.stockRepository = stockRepository;
+        this.productRepository = productRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.eventPublisher = eventPublisher;
+        // Read-write so loads read the primary, never a lagging replica
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+
+        for (StockThresholdCrossing crossing : StockThresholdCrossing.values()) {
+            crossingCounters.put(crossing, Counter.builder(THRESHOLD_CROSSINGS)
+                    .description("Stock rows entering or leaving the low-stock and out-of-stock sets")
+                    .tag("crossing", crossing.name().toLowerCase())
+                    .register(registry));
+        }
+        Gauge.builder("warehouse.stock.low", this, d -> d.low.size())
+                .description("Stock rows at or below their minimum level")
+                .register(registry);
+        Gauge.builder("warehouse.stock.out", this, d -> d.outOfStockIds().size())
+                .description("Stock rows with nothing left")
+                .register(registry);
+    }
+
+    public boolean isReady() {
+        return running && !loading;
+    }
+
+    /**
+     * Ids of the low-stock rows, ascending.
+     */
+    public List<Long> lowStockIds() {
+        return low.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Ids of the low-stock rows in one warehouse, ascending.
+     */
+    public List<Long> lowStockIds(long warehouseId) {
+        return low.values().stream().filter(level -> level.warehouseId() == warehouseId)
+                .map(Level::stockId).sorted().toList();
+    }
+
+    /**
+     * Ids of the out-of-stock rows, ascending.
+     */
+    public List<Long> outOfStockIds() {
+        return low.values().stream().filter(Level::outOfStock).map(Level::stockId).sorted().toList();
+    }
+
+    public boolean isLowStock(long stockId) {
+        return low.containsKey(stockId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (!enabled || event.stockId() == null) {
+            return;
+        }
+        if (loading) {
+            changedWhileLoading.add(event.stockId());
+        }
+        Level next = event.deleted() ? null
+                : levelOf(event.stockId(), event.productId(), event.warehouseId(), event.quantityAfter(),
+                        event.minStockLevel());
+        apply(event.stockId(), next, event.quantityAfter() - event.quantity(), event.quantityAfter());
+    }
+
+    // Deleting a product deletes its stocks without a stock event per row
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled || event.productId() == null) {
+            return;
+        }
+        List<Long> affected = low.values().stream()
+                .filter(level -> level.productId() == event.productId()).map(Level::stockId).toList();
+        if (affected.isEmpty()) {
+            return;
+        }
+        Boolean exists = primaryTransaction.execute(tx -> productRepository.existsById(event.productId()));
+        if (!Boolean.TRUE.equals(exists)) {
+            affected.forEach(stockId -> apply(stockId, null, null, 0));
+        }
+    }
+
+    /**
+     * Replaces the set with a fresh load from the primary. Rows that differ from the set it
+     * replaces are announced as crossings, except on the first load.
+     */
+    public void reload() {
+        synchronized (loadLock) {
+            long started = System.nanoTime();
+            boolean announce = running;
+            // Write-behind changes would otherwise be read back as they were before
+            if (inventoryEngine.isEnabled()) {
+                inventoryEngine.flush();
+            }
+            loading = true;
+            changedWhileLoading.clear();
+            try {
+                ConcurrentHashMap<Long, Level> loaded = primaryTransaction.execute(tx -> scan());
+                ConcurrentHashMap<Long, Level> previous = low;
+                low = loaded;
+                List<Long> changed = new ArrayList<>(changedWhileLoading);
+                int corrected = 0;
+                if (announce) {
+                    Set<Long> ids = new HashSet<>(previous.keySet());
+                    ids.addAll(loaded.keySet());
+                    changed.forEach(ids::remove);
+                    for (Long stockId : ids) {
+                        Level before = previous.get(stockId);
+                        Level after = loaded.get(stockId);
+                        // The load only holds low rows, so a row that left the set has no quantity here
+                        if (announceCrossings(before, after, before != null ? before.quantity() : null,
+                                after != null ? after.quantity() : null)) {
+                            corrected++;
+                        }
+                    }
+                }
+                for (Long stockId : changed) {
+                    refresh(stockId);
+                }
+                if (corrected > 0) {
+                    log.warn("Low-stock reload corrected {} row(s) the events had missed", corrected);
+                }
+                log.info("Low-stock set loaded with {} rows in {} ms ({} re-read)", loaded.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), changed.size());
+            } finally {
+                loading = false;
+                changedWhileLoading.clear();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.low-stock.resync-interval:PT15M}",
+            initialDelayString = "${app.low-stock.resync-interval:PT15M}")
+    public void resync() {
+        if (running) {
+            reload();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        reload();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // After the inventory engine has replayed its journal, before the web server accepts requests
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 3072;
+    }
+
+    private ConcurrentHashMap<Long, Level> scan() {
+        ConcurrentHashMap<Long, Level> scanned = new ConcurrentHashMap<>();
+        try (Stream<StockLevelRow> rows = stockRepository.streamLowStockLevels()) {
+            Iterator<StockLevelRow> it = rows.iterator();
+            while (it.hasNext()) {
+                StockLevelRow row = it.next();
+                scanned.put(row.stockId(), new Level(row.stockId(), row.productId(), row.warehouseId(),
+                        row.quantityOrZero(), row.minStockLevelOrZero()));
+            }
+        }
+        return scanned;
+    }
+
+    // Sets the row to its current state, preferring the engine's view over the lagging table
+    private void refresh(Long stockId) {
+        Stock cached = inventoryEngine.snapshot(stockId);
+        Level next;
+        Integer quantity;
+        if (cached != null) {
+            quantity = orZero(cached.getQuantity());
+            next = levelOf(stockId, cached.getProduct().getId(), cached.getWarehouse().getId(), quantity,
+                    orZero(cached.getMinStockLevel()));
+        } else {
+            Optional<StockLevelRow> row = primaryTransaction.execute(tx -> stockRepository.findStockLevelById(stockId));
+            quantity = row.map(StockLevelRow::quantityOrZero).orElse(0);
+            next = row.map(r -> levelOf(stockId, r.productId(), r.warehouseId(), r.quantityOrZero(),
+                    r.minStockLevelOrZero())).orElse(null);
+        }
+        apply(stockId, next, null, quantity);
+    }
+
+    // Without a previous quantity, the one the set held is reported
+    private void apply(Long stockId, Level next, Integer previousQuantity, Integer quantity) {
+        Level[] previous = new Level[1];
+        low.compute(stockId, (id, current) -> {
+            previous[0] = current;
+            return next;
+        });
+        Integer before = previousQuantity != null ? previousQuantity
+                : previous[0] != null ? Integer.valueOf(previous[0].quantity()) : null;
+        announceCrossings(previous[0], next, before, quantity);
+    }
+
+    private boolean announceCrossings(Level before, Level after, Integer previousQuantity, Integer quantity) {
+        boolean wasLow = before != null;
+        boolean isLow = after != null;
+        boolean wasOut = wasLow && before.outOfStock();
+        boolean isOut = isLow && after.outOfStock();
+        Level row = after != null ? after : before;
+        if (row == null) {
+            return false;
+        }
+        boolean crossed = false;
+        if (!wasLow && isLow) {
+            crossed |= announce(StockThresholdCrossing.LOW_STOCK_ENTERED, row, previousQuantity, quantity);
+        }
+        if (!wasOut && isOut) {
+            crossed |= announce(StockThresholdCrossing.OUT_OF_STOCK_ENTERED, row, previousQuantity, quantity);
+        }
+        if (wasOut && !isOut) {
+            crossed |= announce(StockThresholdCrossing.OUT_OF_STOCK_CLEARED, row, previousQuantity, quantity);
+        }
+        if (wasLow && !isLow) {
+            crossed |= announce(StockThresholdCrossing.LOW_STOCK_CLEARED, row, previousQuantity, quantity);
+        }
+        return crossed;
+    }
+
+    private boolean announce(StockThresholdCrossing crossing, Level row, Integer previousQuantity, Integer quantity) {
+        crossingCounters.get(crossing).increment();
+        log.info("Stock {} (product {}, warehouse {}): {}, quantity {} -> {}, minimum {}", row.stockId(),
+                row.productId(), row.warehouseId(), crossing, previousQuantity, quantity, row.minStockLevel());
+        eventPublisher.publishEvent(new StockThresholdCrossedEvent(crossing, row.stockId(), row.productId(),
+                row.warehouseId(), previousQuantity, quantity, row.minStockLevel()));
+        return true;
+    }
+
+    private static Level levelOf(Long stockId, Long productId, Long warehouseId, int quantity, int minStockLevel) {
+        if (productId == null || warehouseId == null || quantity > minStockLevel) {
+            return null;
+        }
+        return new Level(stockId, productId, warehouseId, quantity, minStockLevel);
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private record Level(long stockId, long productId, long warehouseId, int quantity, int minStockLevel) {
+
+        boolean outOfStock() {
+            return quantity == 0;
+        }
+    }
+}
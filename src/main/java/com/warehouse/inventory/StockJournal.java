@@ -0,0 +1,273 @@
+package com.warehouse.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of stock deltas on memory-mapped segment files, each named after the first
+ * sequence number it holds and preallocated to {@code segmentBytes}. Appends are plain memory
+ * writes; {@link #force()} or a sync on each append makes them durable.
+ * <p>
+ * A segment starts with a 32-byte header (magic, format version, first sequence). Records are a
+ * fixed 48 bytes: a CRC32C of the remaining 44 bytes, the kind, the sequence, stock id, product id
+ * and the three deltas. Reading stops at the first record whose checksum or sequence does not
+ * match, so a record torn by a crash is rejected together with the unused tail of the segment.
+ */
+final class StockJournal implements Closeable {
+
+    static final int RECORD_BYTES = 48;
+    static final int HEADER_BYTES = 32;
+    private static final int MAGIC = 0x57484A4C; // "WHJL"
+    private static final int FORMAT = 2;
+    private static final String PREFIX = "stock-";
+    private static final String SUFFIX = ".journal";
+
+    enum Kind {
+        /** Applied in memory only; the applier still has to write it to the database. */
+        PENDING,
+        /** Already committed to the database by the transaction that made it; kept for the record. */
+        COMMITTED;
+
+        private static final Kind[] VALUES = values();
+
+        static Kind of(byte code) {
+            return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+        }
+    }
+
+    record Entry(long sequence, Kind kind, long stockId, long productId, int quantity, int reserved, int consigned) {
+    }
+
+    /**
+     * Records read back from disk, and how many segments ended in a record that failed its
+     * checksum rather than in unused space.
+     */
+    record Contents(List<Entry> entries, int tornRecords) {
+    }
+
+    private record Segment(Path path, long lastSequence) {
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncEachAppend;
+    private final byte[] record = new byte[RECORD_BYTES];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+    private final CRC32C crc = new CRC32C();
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private MappedByteBuffer mapped;
+    private Path mappedPath;
+    private int position;
+    private long lastSequence;
+    private boolean broken;
+
+    /**
+     * Starts a fresh journal after {@code lastSequence}, deleting existing segments. Callers
+     * replay and apply those first.
+     */
+    static StockJournal create(Path directory, long lastSequence, long segmentBytes, boolean syncEachAppend)
+            throws IOException {
+        Files.createDirectories(directory);
+        for (Path segment : segments(directory)) {
+            Files.delete(segment);
+        }
+        StockJournal journal = new StockJournal(directory, lastSequence, segmentBytes, syncEachAppend);
+        journal.openSegment();
+        return journal;
+    }
+
+    /**
+     * Reads every intact record from the segments in {@code directory}, oldest first. A segment
+     * that does not continue the sequence of the one before it means records were lost in
+     * between, and fails the read rather than replaying around the gap.
+     */
+    static Contents readAll(Path directory) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        int torn = 0;
+        if (!Files.isDirectory(directory)) {
+            return new Contents(entries, torn);
+        }
+        CRC32C crc = new CRC32C();
+        long expected = -1;
+        for (Path segment : segments(directory)) {
+            ByteBuffer bytes;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (bytes.capacity() < HEADER_BYTES || bytes.getInt(0) != MAGIC || bytes.getInt(4) != FORMAT) {
+                throw new IOException("Not a stock journal segment, or an unsupported format: " + segment);
+            }
+            long first = bytes.getLong(8);
+            if (expected >= 0 && first != expected) {
+                throw new IOException(String.format("Journal segment %s starts at sequence %d, expected %d",
+                        segment, first, expected));
+            }
+            expected = first;
+            for (int offset = HEADER_BYTES; offset + RECORD_BYTES <= bytes.capacity(); offset += RECORD_BYTES) {
+                Entry entry = decode(bytes, offset, crc);
+                if (entry == null || entry.sequence() != expected) {
+                    if (!isBlank(bytes, offset)) {
+                        torn++;
+                    }
+                    break;
+                }
+                entries.add(entry);
+                expected++;
+            }
+        }
+        return new Contents(entries, torn);
+    }
+
+    private StockJournal(Path directory, long lastSequence, long segmentBytes, boolean syncEachAppend) {
+        this.directory = directory;
+        this.lastSequence = lastSequence;
+        // A mapping is indexed by int; keep at least one record per segment
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(segmentBytes, HEADER_BYTES + RECORD_BYTES));
+        this.syncEachAppend = syncEachAppend;
+    }
+
+    /**
+     * Appends one delta and returns its sequence number. Once a write fails the journal refuses
+     * further appends, since the segment may end in a partial record.
+     */
+    synchronized long append(Kind kind, long stockId, long productId, int quantity, int reserved, int consigned) {
+        if (broken) {
+            throw new IllegalStateException("Stock journal is closed or unusable after an earlier write failure");
+        }
+        try {
+            if (position + RECORD_BYTES > segmentBytes) {
+                roll();
+            }
+            long sequence = lastSequence + 1;
+            recordBuffer.clear();
+            recordBuffer.putInt(0)
+                    .put((byte) kind.ordinal()).put((byte) 0).put((byte) 0).put((byte) 0)
+                    .putLong(sequence).putLong(stockId).putLong(productId)
+                    .putInt(quantity).putInt(reserved).putInt(consigned).putInt(0);
+            crc.reset();
+            crc.update(record, 4, RECORD_BYTES - 4);
+            recordBuffer.putInt(0, (int) crc.getValue());
+            mapped.put(position, record, 0, RECORD_BYTES);
+            if (syncEachAppend) {
+                mapped.force(position, RECORD_BYTES);
+            }
+            position += RECORD_BYTES;
+            lastSequence = sequence;
+            return sequence;
+        } catch (IOException e) {
+            broken = true;
+            throw new UncheckedIOException("Could not append to the stock journal", e);
+        } catch (UncheckedIOException e) {
+            broken = true;
+            throw new UncheckedIOException("Could not append to the stock journal", e.getCause());
+        }
+    }
+
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    synchronized void force() {
+        if (mapped == null) {
+            return;
+        }
+        try {
+            mapped.force();
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Could not sync the stock journal", e.getCause());
+        }
+    }
+
+    /**
+     * Deletes closed segments whose records are all at or below {@code sequence}.
+     */
+    synchronized void discardThrough(long sequence) {
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence() <= sequence) {
+            Path path = closedSegments.pollFirst().path();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete journal segment " + path, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mapped != null) {
+            try {
+                mapped.force();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            mapped = null;
+        }
+        broken = true;
+    }
+
+    private void roll() throws IOException {
+        mapped.force();
+        closedSegments.addLast(new Segment(mappedPath, lastSequence));
+        openSegment();
+    }
+
+    // The mapping outlives the channel; it is released when the buffer is collected
+    private void openSegment() throws IOException {
+        mappedPath = directory.resolve(String.format("%s%020d%s", PREFIX, lastSequence + 1, SUFFIX));
+        try (FileChannel channel = FileChannel.open(mappedPath, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        mapped.putInt(0, MAGIC).putInt(4, FORMAT).putLong(8, lastSequence + 1);
+        mapped.force(0, HEADER_BYTES);
+        position = HEADER_BYTES;
+    }
+
+    private static Entry decode(ByteBuffer bytes, int offset, CRC32C crc) {
+        crc.reset();
+        crc.update(bytes.slice(offset + 4, RECORD_BYTES - 4));
+        if ((int) crc.getValue() != bytes.getInt(offset)) {
+            return null;
+        }
+        Kind kind = Kind.of(bytes.get(offset + 4));
+        if (kind == null) {
+            return null;
+        }
+        return new Entry(bytes.getLong(offset + 8), kind, bytes.getLong(offset + 16), bytes.getLong(offset + 24),
+                bytes.getInt(offset + 32), bytes.getInt(offset + 36), bytes.getInt(offset + 40));
+    }
+
+    // Preallocated space past the last append reads as zeros
+    private static boolean isBlank(ByteBuffer bytes, int offset) {
+        for (int i = offset; i < offset + RECORD_BYTES; i++) {
+            if (bytes.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Zero-padded names sort in sequence order
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+}
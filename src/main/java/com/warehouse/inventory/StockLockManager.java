@@ -0,0 +1,194 @@
+package com.warehouse.inventory;
+
+import com.warehouse.entity.Stock;
+import com.warehouse.repository.StockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Takes the row locks of multi-row stock operations in one canonical order, so two operations
+ * over the same rows (transfers A to B and B to A of one product, say) queue behind each other
+ * instead of deadlocking. Rows are locked with {@code SELECT ... FOR UPDATE} in stock id order,
+ * after the inventory engine has handed them over to the database.
+ * <p>
+ * Operations that name their rows by product and warehouse first take an in-process lock
+ * striped by (product, warehouse), in stripe order, and hold it until their transaction
+ * completes. Contenders on this node then wait in memory rather than on database row locks. A
+ * stripe that cannot be had within {@code app.stock-locks.stripe-wait} fails the operation with
+ * {@link CannotAcquireLockException}, which transfer transitions retry like a lost row lock.
+ * <p>
+ * Wait times are recorded in {@code warehouse.stock.lock.wait}, tagged {@code lock=stripe} or
+ * {@code lock=row}; the row wait includes the locking query itself.
+ */
+@Component
+public class StockLockManager {
+
+    public static final String LOCK_WAIT = "warehouse.stock.lock.wait";
+
+    private final StockRepository stockRepository;
+    private final InventoryEngine inventoryEngine;
+    private final boolean striped;
+    private final ReentrantLock[] stripes;
+    private final long stripeWaitNanos;
+    private final Timer stripeWait;
+    private final Timer rowWait;
+    private final Counter stripeTimeouts;
+
+    @Autowired
+    public StockLockManager(StockRepository stockRepository,
+                            InventoryEngine inventoryEngine,
+                            MeterRegistry registry,
+                            @Value("${app.stock-locks.striped:true}") boolean striped,
+                            @Value("${app.stock-locks.stripes:256}") int stripes,
+                            @Value("${app.stock-locks.stripe-wait:PT5S}") Duration stripeWait) {
+        this.stockRepository = stockRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.striped = striped;
+        int stripeCount = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.stripeWaitNanos = stripeWait.toNanos();
+        this.stripeWait = lockWaitTimer(registry, "stripe");
+        this.rowWait = lockWaitTimer(registry, "row");
+        this.stripeTimeouts = Counter.builder("warehouse.stock.lock.timeouts")
+                .description("Stock operations that gave up waiting for an in-process stock lock")
+                .register(registry);
+    }
+
+    /**
+     * Locks the stock rows of one product in the given warehouses for the rest of the current
+     * transaction. Returns the rows by warehouse id; warehouses without a row are missing from
+     * the map, and with striping on stay locked in-process, so another creator of the same row
+     * (a transfer completing into the warehouse, or {@code StockService.createStock}) waits too.
+     * Take every row an operation needs in one call: rows locked by a later call are outside
+     * the canonical order.
+     */
+    public Map<Long, Stock> lockProductStocks(Long productId, Collection<Long> warehouseIds) {
+        requireTransaction();
+        if (striped) {
+            TreeSet<Integer> indexes = new TreeSet<>();
+            for (Long warehouseId : warehouseIds) {
+                indexes.add(stripeIndex(productId, warehouseId));
+            }
+            lockStripes(indexes, "product " + productId);
+        }
+        List<Long> stockIds = stockRepository.findIdsByProductAndWarehouses(productId, warehouseIds);
+        Map<Long, Stock> byWarehouse = new HashMap<>();
+        for (Stock stock : lockRows(stockIds)) {
+            byWarehouse.put(stock.getWarehouse().getId(), stock);
+        }
+        return byWarehouse;
+    }
+
+    /**
+     * Locks the given stock rows for the rest of the current transaction and returns them in
+     * id order. Rows that no longer exist are left out.
+     */
+    public List<Stock> lockStocks(Collection<Long> stockIds) {
+        requireTransaction();
+        return lockRows(new ArrayList<>(new TreeSet<>(stockIds)));
+    }
+
+    /**
+     * Locks the given stock rows, and the rows of {@code creatingProductIds} in one warehouse, for
+     * the rest of the current transaction and returns them in id order. For batches that create
+     * missing rows next to existing ones: the (product, warehouse) pairs to be created are taken
+     * by stripe first, so a row a concurrent creator added meanwhile is returned locked, and with
+     * striping on later creators wait until this transaction completes.
+     */
+    public List<Stock> lockStocks(Collection<Long> stockIds, Long warehouseId, Collection<Long> creatingProductIds) {
+        requireTransaction();
+        TreeSet<Long> ids = new TreeSet<>(stockIds);
+        if (!creatingProductIds.isEmpty()) {
+            if (striped) {
+                TreeSet<Integer> indexes = new TreeSet<>();
+                for (Long productId : creatingProductIds) {
+                    indexes.add(stripeIndex(productId, warehouseId));
+                }
+                lockStripes(indexes, "warehouse " + warehouseId);
+            }
+            ids.addAll(stockRepository.findIdsByWarehouseAndProducts(warehouseId, creatingProductIds));
+        }
+        return lockRows(new ArrayList<>(ids));
+    }
+
+    private List<Stock> lockRows(List<Long> stockIds) {
+        if (stockIds.isEmpty()) {
+            return List.of();
+        }
+        // The engine flushes pending deltas in its own transaction, so this must precede the lock
+        inventoryEngine.fence(stockIds);
+        long started = System.nanoTime();
+        List<Stock> rows = stockRepository.findAllByIdForUpdate(stockIds);
+        rowWait.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return rows;
+    }
+
+    private void lockStripes(TreeSet<Integer> indexes, String stock) {
+        List<ReentrantLock> held = new ArrayList<>(indexes.size());
+        // Registered first, so stripes already taken are released even if a later one times out
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                held.forEach(ReentrantLock::unlock);
+            }
+        });
+        long started = System.nanoTime();
+        try {
+            for (int index : indexes) {
+                ReentrantLock stripe = stripes[index];
+                long remaining = stripeWaitNanos - (System.nanoTime() - started);
+                if (!stripe.tryLock(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    stripeTimeouts.increment();
+                    throw new CannotAcquireLockException("Timed out waiting for the stock of " + stock);
+                }
+                held.add(stripe);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for the stock of " + stock, e);
+        } finally {
+            stripeWait.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int stripeIndex(Long productId, Long warehouseId) {
+        long h = productId * 0x9E3779B97F4A7C15L + warehouseId;
+        h = (h ^ (h >>> 31)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 29)) & (stripes.length - 1);
+    }
+
+    private static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock rows can only be locked inside a transaction");
+        }
+    }
+
+    private static Timer lockWaitTimer(MeterRegistry registry, String lock) {
+        return Timer.builder(LOCK_WAIT)
+                .description("Time spent waiting for stock locks")
+                .tag("lock", lock)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
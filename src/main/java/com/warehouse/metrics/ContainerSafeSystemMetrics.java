@@ -0,0 +1,66 @@
+package com.warehouse.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Replacement for the processor and uptime binders of {@code SystemMetricsAutoConfiguration},
+ * which stays excluded because the JDK's container support throws on some cgroup v2 hosts.
+ * Every reading is probed once at bind time and guarded afterwards: a metric the host cannot
+ * provide is skipped or reported as NaN instead of failing the scrape or the startup.
+ */
+@Component
+public class ContainerSafeSystemMetrics implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ContainerSafeSystemMetrics.class);
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+
+        register(registry, "system.cpu.count", "The number of processors available to the Java virtual machine",
+                os, OperatingSystemMXBean::getAvailableProcessors);
+        register(registry, "system.load.average.1m", "The system load average for the last minute",
+                os, OperatingSystemMXBean::getSystemLoadAverage);
+        register(registry, "process.uptime", "The uptime of the Java virtual machine in seconds",
+                runtime, r -> r.getUptime() / 1000.0);
+        register(registry, "process.start.time", "Start time of the process since unix epoch in seconds",
+                runtime, r -> r.getStartTime() / 1000.0);
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+            register(registry, "system.cpu.usage", "The recent cpu usage of the system the application is running in",
+                    sunOs, com.sun.management.OperatingSystemMXBean::getCpuLoad);
+            register(registry, "process.cpu.usage", "The recent cpu usage for the Java Virtual Machine process",
+                    sunOs, com.sun.management.OperatingSystemMXBean::getProcessCpuLoad);
+        }
+    }
+
+    private <T> void register(MeterRegistry registry, String name, String description,
+                              T source, ToDoubleFunction<T> reading) {
+        try {
+            reading.applyAsDouble(source);
+        } catch (Throwable e) {
+            log.info("Metric {} is not available on this host: {}", name, e.toString());
+            return;
+        }
+        Gauge.builder(name, source, s -> {
+                    try {
+                        return reading.applyAsDouble(s);
+                    } catch (Throwable e) {
+                        return Double.NaN;
+                    }
+                })
+                .description(description)
+                .register(registry);
+    }
+}
@@ -0,0 +1,127 @@
+package com.warehouse.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate top-k counter over long keys in fixed memory: a count-min sketch of
+ * {@code depth} rows by {@code width} counters, plus a min-heap of the {@code capacity} keys with
+ * the highest estimates. Estimates never undercount; they overcount by at most about
+ * {@code 2 * total / width} with high probability.
+ * <p>
+ * Sketch updates are lock-free. The heap is only locked for keys whose estimate reaches the
+ * smallest count in it, which after warm-up is the hot keys themselves. {@link #decay()} halves
+ * every counter, so older traffic fades with a half-life of one decay interval.
+ */
+final class HeavyHitterSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray cells;
+    private final int capacity;
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+    private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingLong(c -> c.count));
+    // Smallest count in a full heap, 0 while it has room
+    private volatile long floor;
+
+    HeavyHitterSketch(int depth, int width, int capacity) {
+        this.depth = Math.max(1, Math.min(depth, SEEDS.length));
+        this.width = Integer.highestOneBit(Math.max(16, width));
+        this.cells = new AtomicLongArray(this.depth * this.width);
+        this.capacity = Math.max(1, capacity);
+    }
+
+    void add(long key, long weight) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells.addAndGet(row * width + index(key, row), weight));
+        }
+        if (estimate >= floor) {
+            offer(key, estimate);
+        }
+    }
+
+    /**
+     * The tracked keys by estimate, highest first.
+     */
+    synchronized List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates.values()) {
+            entries.add(new Entry(candidate.key, candidate.count));
+        }
+        entries.sort(Comparator.comparingLong(Entry::estimate).reversed());
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    synchronized boolean contains(long key) {
+        return candidates.containsKey(key);
+    }
+
+    void decay() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.getAndUpdate(i, v -> v >> 1);
+        }
+        synchronized (this) {
+            heap.clear();
+            candidates.values().removeIf(candidate -> (candidate.count >>= 1) == 0);
+            heap.addAll(candidates.values());
+            updateFloor();
+        }
+    }
+
+    private synchronized void offer(long key, long estimate) {
+        Candidate candidate = candidates.get(key);
+        if (candidate != null) {
+            if (estimate > candidate.count) {
+                heap.remove(candidate);
+                candidate.count = estimate;
+                heap.add(candidate);
+            }
+        } else if (heap.size() < capacity) {
+            track(new Candidate(key, estimate));
+        } else if (estimate > heap.peek().count) {
+            candidates.remove(heap.poll().key);
+            track(new Candidate(key, estimate));
+        }
+        updateFloor();
+    }
+
+    private void track(Candidate candidate) {
+        candidates.put(candidate.key, candidate);
+        heap.add(candidate);
+    }
+
+    private void updateFloor() {
+        floor = heap.size() < capacity ? 0 : heap.peek().count;
+    }
+
+    private int index(long key, int row) {
+        long h = key ^ SEEDS[row];
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (h ^ (h >>> 31)) & (width - 1);
+    }
+
+    record Entry(long key, long estimate) {
+    }
+
+    private static final class Candidate {
+        final long key;
+        long count;
+
+        Candidate(long key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
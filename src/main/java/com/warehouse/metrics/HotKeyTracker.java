@@ -0,0 +1,148 @@
+package com.warehouse.metrics;
+
+import com.warehouse.entity.Product;
+import com.warehouse.entity.Stock;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.entity.Warehouse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tracks the products, warehouses and transfer lanes that see the most stock reads, stock
+ * mutations and transfer operations, in fixed memory. Counts are estimates from a
+ * {@link HeavyHitterSketch} and are halved every {@code app.hot-keys.decay-interval}, so the
+ * ranking follows recent traffic. Exposed at {@code /actuator/hotkeys}; other components can ask
+ * {@link #isHotProduct} or {@link #isHotWarehouse} to keep hot keys cached.
+ */
+@Component
+public class HotKeyTracker {
+
+    private final boolean enabled;
+    private final int topK;
+    private final Duration decayInterval;
+    private final HeavyHitterSketch products;
+    private final HeavyHitterSketch warehouses;
+    private final HeavyHitterSketch lanes;
+
+    @Autowired
+    public HotKeyTracker(@Value("${app.hot-keys.enabled:true}") boolean enabled,
+                         @Value("${app.hot-keys.top-k:20}") int topK,
+                         @Value("${app.hot-keys.width:2048}") int width,
+                         @Value("${app.hot-keys.depth:4}") int depth,
+                         @Value("${app.hot-keys.decay-interval:PT1M}") Duration decayInterval) {
+        this.enabled = enabled;
+        this.topK = Math.max(1, topK);
+        this.decayInterval = decayInterval;
+        this.products = new HeavyHitterSketch(depth, width, this.topK);
+        this.warehouses = new HeavyHitterSketch(depth, width, this.topK);
+        this.lanes = new HeavyHitterSketch(depth, width, this.topK);
+    }
+
+    /**
+     * Records a read or mutation of one product's stock, one warehouse's stock, or both. Either
+     * id may be null.
+     */
+    public void recordStockAccess(Long productId, Long warehouseId) {
+        if (!enabled) {
+            return;
+        }
+        if (productId != null) {
+            products.add(productId, 1);
+        }
+        if (warehouseId != null) {
+            warehouses.add(warehouseId, 1);
+        }
+    }
+
+    public void recordStockAccess(Stock stock) {
+        if (stock != null) {
+            recordStockAccess(idOf(stock.getProduct()), idOf(stock.getWarehouse()));
+        }
+    }
+
+    /**
+     * Records an operation on a transfer against its product, both warehouses and its lane.
+     */
+    public void recordTransfer(StockTransfer transfer) {
+        if (!enabled || transfer == null) {
+            return;
+        }
+        Long source = idOf(transfer.getSourceWarehouse());
+        Long destination = idOf(transfer.getDestinationWarehouse());
+        recordStockAccess(idOf(transfer.getProduct()), source);
+        if (destination != null) {
+            warehouses.add(destination, 1);
+        }
+        if (source != null && destination != null) {
+            lanes.add(laneKey(source, destination), 1);
+        }
+    }
+
+    public boolean isHotProduct(long productId) {
+        return enabled && products.contains(productId);
+    }
+
+    public boolean isHotWarehouse(long warehouseId) {
+        return enabled && warehouses.contains(warehouseId);
+    }
+
+    public List<HotKey> hottestProducts(int limit) {
+        return products.top(limit).stream().map(e -> new HotKey(e.key(), e.estimate())).toList();
+    }
+
+    public List<HotKey> hottestWarehouses(int limit) {
+        return warehouses.top(limit).stream().map(e -> new HotKey(e.key(), e.estimate())).toList();
+    }
+
+    public List<HotLane> hottestLanes(int limit) {
+        return lanes.top(limit).stream()
+                .map(e -> new HotLane(e.key() >>> 32, e.key() & 0xFFFFFFFFL, e.estimate()))
+                .toList();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public Duration getDecayInterval() {
+        return decayInterval;
+    }
+
+    @Scheduled(fixedDelayString = "${app.hot-keys.decay-interval:PT1M}",
+            initialDelayString = "${app.hot-keys.decay-interval:PT1M}")
+    public void decay() {
+        if (enabled) {
+            products.decay();
+            warehouses.decay();
+            lanes.decay();
+        }
+    }
+
+    // Warehouse ids come from a sequence and stay far below 2^32
+    private static long laneKey(long source, long destination) {
+        return (source << 32) | (destination & 0xFFFFFFFFL);
+    }
+
+    private static Long idOf(Product product) {
+        return product != null ? product.getId() : null;
+    }
+
+    private static Long idOf(Warehouse warehouse) {
+        return warehouse != null ? warehouse.getId() : null;
+    }
+
+    public record HotKey(long id, long estimate) {
+    }
+
+    public record HotLane(long sourceWarehouseId, long destinationWarehouseId, long estimate) {
+    }
+}
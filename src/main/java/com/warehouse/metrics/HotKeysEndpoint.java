@@ -0,0 +1,88 @@
+package com.warehouse.metrics;
+
+import com.warehouse.entity.Warehouse;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.WarehouseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/hotkeys}: the hottest products (with SKU), warehouses (with name) and
+ * transfer lanes by recent traffic, from {@link HotKeyTracker}. Protected by the admin
+ * credentials like the API.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final HotKeyTracker tracker;
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+
+    @Autowired
+    public HotKeysEndpoint(HotKeyTracker tracker,
+                           ProductRepository productRepository,
+                           WarehouseRepository warehouseRepository) {
+        this.tracker = tracker;
+        this.productRepository = productRepository;
+        this.warehouseRepository = warehouseRepository;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        int limit = tracker.getTopK();
+        List<HotKeyTracker.HotKey> products = tracker.hottestProducts(limit);
+        List<HotKeyTracker.HotKey> warehouses = tracker.hottestWarehouses(limit);
+        List<HotKeyTracker.HotLane> lanes = tracker.hottestLanes(limit);
+
+        Map<Long, String> skus = new HashMap<>();
+        List<Long> productIds = products.stream().map(HotKeyTracker.HotKey::id).toList();
+        if (!productIds.isEmpty()) {
+            productRepository.findKeys(productIds, List.of(""))
+                    .forEach(key -> skus.put(key.getId(), key.getSku()));
+        }
+        List<Long> warehouseIds = new ArrayList<>(warehouses.stream().map(HotKeyTracker.HotKey::id).toList());
+        lanes.forEach(lane -> {
+            warehouseIds.add(lane.sourceWarehouseId());
+            warehouseIds.add(lane.destinationWarehouseId());
+        });
+        Map<Long, String> names = new HashMap<>();
+        for (Warehouse warehouse : warehouseRepository.findAllById(warehouseIds)) {
+            names.put(warehouse.getId(), warehouse.getName());
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", tracker.isEnabled());
+        body.put("halfLife", tracker.getDecayInterval().toString());
+        body.put("products", products.stream().map(p -> row("productId", p.id(), "sku", skus.get(p.id()),
+                p.estimate())).toList());
+        body.put("warehouses", warehouses.stream().map(w -> row("warehouseId", w.id(), "name", names.get(w.id()),
+                w.estimate())).toList());
+        body.put("lanes", lanes.stream().map(lane -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sourceWarehouseId", lane.sourceWarehouseId());
+            row.put("sourceWarehouse", names.get(lane.sourceWarehouseId()));
+            row.put("destinationWarehouseId", lane.destinationWarehouseId());
+            row.put("destinationWarehouse", names.get(lane.destinationWarehouseId()));
+            row.put("estimate", lane.estimate());
+            return row;
+        }).toList());
+        return body;
+    }
+
+    private static Map<String, Object> row(String idName, long id, String labelName, String label, long estimate) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(idName, id);
+        row.put(labelName, label);
+        row.put("estimate", estimate);
+        return row;
+    }
+}
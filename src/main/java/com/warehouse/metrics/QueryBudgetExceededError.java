@@ -0,0 +1,12 @@
+package com.warehouse.metrics;
+
+/**
+ * Thrown by the {@link QueryCount.Scope} assertions. An {@link AssertionError} so test runners
+ * report it as a failure rather than an error.
+ */
+public class QueryBudgetExceededError extends AssertionError {
+
+    public QueryBudgetExceededError(String message) {
+        super(message);
+    }
+}
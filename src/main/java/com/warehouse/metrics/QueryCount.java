@@ -0,0 +1,158 @@
+package com.warehouse.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread. Scopes nest; a statement
+ * counts towards every open scope. Used per HTTP request by {@link QueryCountFilter} and as the
+ * assertion API for pinning query budgets:
+ *
+ * <pre>
+ * try (QueryCount.Scope scope = QueryCount.start()) {
+ *     mockMvc.perform(get("/api/stocks"));
+ *     scope.assertAtMost(2);
+ * }
+ * </pre>
+ */
+public final class QueryCount {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QueryCount() {
+    }
+
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * The innermost open scope on this thread, or {@code null}.
+     */
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    static void record(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        String shape = shapeOf(sql);
+        for (; scope != null; scope = scope.parent) {
+            scope.add(shape);
+        }
+    }
+
+    /**
+     * Reduces a statement to its shape so repeats with different parameters group together.
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private final Map<String, Integer> shapes = new HashMap<>();
+        private int count;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private void add(String shape) {
+            if (!closed) {
+                count++;
+                shapes.merge(shape, 1, Integer::sum);
+            }
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public Map<String, Integer> shapes() {
+            return Collections.unmodifiableMap(shapes);
+        }
+
+        /**
+         * Highest number of times a single statement shape ran; a large value usually means N+1.
+         */
+        public int maxRepeats() {
+            int max = 0;
+            for (int repeats : shapes.values()) {
+                max = Math.max(max, repeats);
+            }
+            return max;
+        }
+
+        public List<Map.Entry<String, Integer>> topShapes(int limit) {
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(shapes.entrySet());
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            return entries.subList(0, Math.min(limit, entries.size()));
+        }
+
+        public String describeTop(int limit) {
+            StringBuilder out = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : topShapes(limit)) {
+                out.append("\n  ").append(entry.getValue()).append("x ").append(entry.getKey());
+            }
+            return out.toString();
+        }
+
+        public Scope assertAtMost(int budget) {
+            if (count > budget) {
+                throw new QueryBudgetExceededError(
+                        "Expected at most " + budget + " statements but " + count + " ran:" + describeTop(5));
+            }
+            return this;
+        }
+
+        public Scope assertExactly(int expected) {
+            if (count != expected) {
+                throw new QueryBudgetExceededError(
+                        "Expected exactly " + expected + " statements but " + count + " ran:" + describeTop(5));
+            }
+            return this;
+        }
+
+        public Scope assertNoRepeatsAbove(int maxRepeats) {
+            if (maxRepeats() > maxRepeats) {
+                throw new QueryBudgetExceededError(
+                        "Expected no statement to repeat more than " + maxRepeats + " times:" + describeTop(5));
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (CURRENT.get() == this) {
+                if (parent != null) {
+                    CURRENT.set(parent);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.warehouse.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the statements run while handling each API request, including lazy loads triggered by
+ * JSON serialisation. Every request is recorded in the {@code warehouse.http.statements}
+ * histogram; requests above the statement threshold, or with one statement repeated often
+ * enough to look like N+1, are logged with their most frequent SQL shapes.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String HTTP_STATEMENTS = "warehouse.http.statements";
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+    private static final int TOP_SHAPES = 5;
+
+    private final MeterRegistry registry;
+    private final int warnThreshold;
+    private final int repeatThreshold;
+
+    public QueryCountFilter(MeterRegistry registry, int warnThreshold, int repeatThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (QueryCount.Scope scope = QueryCount.start()) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                report(request, scope);
+            }
+        }
+    }
+
+    private void report(HttpServletRequest request, QueryCount.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder(HTTP_STATEMENTS)
+                .description("SQL statements executed per HTTP request")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(scope.count());
+
+        int repeats = scope.maxRepeats();
+        if (repeats >= repeatThreshold) {
+            log.warn("Possible N+1 on {} {}: {} statements, one shape repeated {} times{}",
+                    request.getMethod(), uri, scope.count(), repeats, scope.describeTop(TOP_SHAPES));
+        } else if (scope.count() >= warnThreshold) {
+            log.warn("{} {} executed {} statements{}",
+                    request.getMethod(), uri, scope.count(), scope.describeTop(TOP_SHAPES));
+        }
+    }
+}
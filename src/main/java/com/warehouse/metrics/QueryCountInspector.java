@@ -0,0 +1,15 @@
+package com.warehouse.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Feeds every statement Hibernate prepares into {@link QueryCount}; the SQL is returned unchanged.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCount.record(sql);
+        return sql;
+    }
+}
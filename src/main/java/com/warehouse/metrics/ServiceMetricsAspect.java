@@ -0,0 +1,67 @@
+package com.warehouse.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public operation of the stock, transfer and product services, tagged by service,
+ * operation and outcome. Ordered outside the transaction advice so commit time and commit
+ * failures are included.
+ */
+@Aspect
+@Component
+@Order(0)
+public class ServiceMetricsAspect {
+
+    public static final String SERVICE_OPERATION = "warehouse.service.operation";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.warehouse.service.StockService.*(..))"
+            + " || execution(public * com.warehouse.service.StockTransferService.*(..))"
+            + " || execution(public * com.warehouse.service.ProductService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long started = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            TimerKey key = new TimerKey(joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                    joinPoint.getSignature().getName(), exception);
+            timers.computeIfAbsent(key, this::register).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(SERVICE_OPERATION)
+                .description("Service operation latency")
+                .tag("service", key.service())
+                .tag("operation", key.operation())
+                .tag("outcome", "none".equals(key.exception()) ? "success" : "error")
+                .tag("exception", key.exception())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private record TimerKey(String service, String operation, String exception) {
+    }
+}
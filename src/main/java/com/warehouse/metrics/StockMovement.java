@@ -0,0 +1,21 @@
+package com.warehouse.metrics;
+
+import java.util.Locale;
+
+/**
+ * Kinds of stock unit movement counted by {@link WarehouseMetrics#recordStockMovement}.
+ */
+public enum StockMovement {
+    RECEIVED,
+    ISSUED,
+    ADJUSTED_UP,
+    ADJUSTED_DOWN,
+    RESERVED,
+    RELEASED,
+    TRANSFER_SHIPPED,
+    TRANSFER_RECEIVED;
+
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
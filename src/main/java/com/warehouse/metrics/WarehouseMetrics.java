@@ -0,0 +1,62 @@
+package com.warehouse.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Business counters. Movements recorded inside a transaction are only counted once it commits,
+ * so rolled back requests do not inflate the unit totals.
+ */
+@Component
+public class WarehouseMetrics {
+
+    public static final String STOCK_MOVEMENT_UNITS = "warehouse.stock.movement.units";
+
+    private final Map<StockMovement, Counter> movementCounters = new EnumMap<>(StockMovement.class);
+
+    @Autowired
+    public WarehouseMetrics(MeterRegistry registry) {
+        for (StockMovement movement : StockMovement.values()) {
+            movementCounters.put(movement, Counter.builder(STOCK_MOVEMENT_UNITS)
+                    .description("Stock units moved, by kind of movement")
+                    .baseUnit("units")
+                    .tag("movement", movement.tagValue())
+                    .register(registry));
+        }
+    }
+
+    public void recordStockMovement(StockMovement movement, long units) {
+        if (units <= 0) {
+            return;
+        }
+        Counter counter = movementCounters.get(movement);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.increment(units);
+                }
+            });
+        } else {
+            counter.increment(units);
+        }
+    }
+
+    /**
+     * Records a signed quantity change as an adjustment in the matching direction.
+     */
+    public void recordAdjustment(long delta) {
+        if (delta > 0) {
+            recordStockMovement(StockMovement.ADJUSTED_UP, delta);
+        } else if (delta < 0) {
+            recordStockMovement(StockMovement.ADJUSTED_DOWN, -delta);
+        }
+    }
+}
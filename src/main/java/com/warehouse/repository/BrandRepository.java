@@ -2,6 +2,7 @@ package com.warehouse.repository;
 
 import com.warehouse.entity.Brand;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,6 +21,26 @@ public interface BrandRepository extends JpaRepository<Brand, Long> {
 
     @Query("SELECT b FROM Brand b WHERE LOWER(b.name) LIKE LOWER(CONCAT('%', :name, '%')) AND b.isActive = true")
     List<Brand> searchActiveByName(@Param("name") String name);
-}
-
 
+    @Modifying
+    @Query(value = "UPDATE brands SET product_count = product_count + :total, " +
+                   "active_product_count = active_product_count + :active WHERE id = :id", nativeQuery = true)
+    int adjustProductCounts(@Param("id") Long id, @Param("total") long total, @Param("active") long active);
+
+    @Modifying
+    @Query(value = "UPDATE brands SET total_stock_quantity = total_stock_quantity + :delta WHERE id = :id", nativeQuery = true)
+    int adjustStockQuantity(@Param("id") Long id, @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "UPDATE brands SET total_stock_quantity = total_stock_quantity + :delta " +
+                   "WHERE id = (SELECT p.brand_id FROM products p WHERE p.id = :productId)", nativeQuery = true)
+    int adjustStockQuantityByProduct(@Param("productId") Long productId, @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "UPDATE brands t SET " +
+                   "product_count = (SELECT COUNT(*) FROM products p WHERE p.brand_id = t.id), " +
+                   "active_product_count = (SELECT COUNT(*) FROM products p WHERE p.brand_id = t.id AND p.is_active = TRUE), " +
+                   "total_stock_quantity = (SELECT COALESCE(SUM(s.quantity), 0) FROM stocks s " +
+                   "JOIN products p ON p.id = s.product_id WHERE p.brand_id = t.id)", nativeQuery = true)
+    int rebuildCounters();
+}
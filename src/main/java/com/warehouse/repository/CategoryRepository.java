@@ -2,7 +2,9 @@ package com.warehouse.repository;
 
 import com.warehouse.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -20,11 +22,25 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     @Query("SELECT c FROM Category c LEFT JOIN FETCH c.products WHERE c.id = :id")
     Optional<Category> findByIdWithProducts(Long id);
 
-    @Query("SELECT c.id AS categoryId, COUNT(p.id) AS productCount FROM Category c LEFT JOIN c.products p GROUP BY c.id")
-    List<CategoryProductCount> fetchCategoryProductCounts();
-
-    interface CategoryProductCount {
-        Long getCategoryId();
-        Long getProductCount();
-    }
+    @Modifying
+    @Query(value = "UPDATE categories SET product_count = product_count + :total, " +
+                   "active_product_count = active_product_count + :active WHERE id = :id", nativeQuery = true)
+    int adjustProductCounts(@Param("id") Long id, @Param("total") long total, @Param("active") long active);
+
+    @Modifying
+    @Query(value = "UPDATE categories SET total_stock_quantity = total_stock_quantity + :delta WHERE id = :id", nativeQuery = true)
+    int adjustStockQuantity(@Param("id") Long id, @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "UPDATE categories SET total_stock_quantity = total_stock_quantity + :delta " +
+                   "WHERE id = (SELECT p.category_id FROM products p WHERE p.id = :productId)", nativeQuery = true)
+    int adjustStockQuantityByProduct(@Param("productId") Long productId, @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "UPDATE categories t SET " +
+                   "product_count = (SELECT COUNT(*) FROM products p WHERE p.category_id = t.id), " +
+                   "active_product_count = (SELECT COUNT(*) FROM products p WHERE p.category_id = t.id AND p.is_active = TRUE), " +
+                   "total_stock_quantity = (SELECT COALESCE(SUM(s.quantity), 0) FROM stocks s " +
+                   "JOIN products p ON p.id = s.product_id WHERE p.category_id = t.id)", nativeQuery = true)
+    int rebuildCounters();
 }
@@ -0,0 +1,63 @@
+package com.warehouse.repository;
+
+import com.warehouse.entity.IdempotencyRecord;
+import com.warehouse.enums.IdempotencyStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Plain INSERT (not save/merge) so a duplicate key fails instead of overwriting the existing claim
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_records " +
+                   "(idempotency_key, fingerprint, status, owner_token, lease_until, created_at, expires_at) " +
+                   "VALUES (:key, :fingerprint, 'IN_PROGRESS', :owner, :leaseUntil, :now, :expiresAt)",
+           nativeQuery = true)
+    int insertClaim(@Param("key") String key,
+                    @Param("fingerprint") String fingerprint,
+                    @Param("owner") String owner,
+                    @Param("leaseUntil") LocalDateTime leaseUntil,
+                    @Param("now") LocalDateTime now,
+                    @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Takes over a claim whose holder let its lease run out, or a record that has expired.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.fingerprint = :fingerprint, r.status = :inProgress, " +
+           "r.ownerToken = :owner, r.leaseUntil = :leaseUntil, r.responseStatus = null, r.contentType = null, " +
+           "r.responseBody = null, r.createdAt = :now, r.expiresAt = :expiresAt " +
+           "WHERE r.idempotencyKey = :key AND ((r.status = :inProgress AND r.leaseUntil < :now) OR r.expiresAt < :now)")
+    int takeOver(@Param("key") String key,
+                 @Param("fingerprint") String fingerprint,
+                 @Param("owner") String owner,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("now") LocalDateTime now,
+                 @Param("expiresAt") LocalDateTime expiresAt,
+                 @Param("inProgress") IdempotencyStatus inProgress);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :completed, r.responseStatus = :responseStatus, " +
+           "r.contentType = :contentType, r.responseBody = :body, r.ownerToken = null, r.leaseUntil = null " +
+           "WHERE r.idempotencyKey = :key AND r.ownerToken = :owner")
+    int complete(@Param("key") String key,
+                 @Param("owner") String owner,
+                 @Param("responseStatus") int responseStatus,
+                 @Param("contentType") String contentType,
+                 @Param("body") byte[] body,
+                 @Param("completed") IdempotencyStatus completed);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.ownerToken = :owner")
+    int release(@Param("key") String key, @Param("owner") String owner);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
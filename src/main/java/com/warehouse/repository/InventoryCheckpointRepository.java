@@ -0,0 +1,19 @@
+package com.warehouse.repository;
+
+import com.warehouse.entity.InventoryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface InventoryCheckpointRepository extends JpaRepository<InventoryCheckpoint, String> {
+
+    @Modifying
+    @Query("UPDATE InventoryCheckpoint c SET c.appliedSequence = :sequence, c.updatedAt = :now " +
+           "WHERE c.nodeId = :nodeId AND c.appliedSequence < :sequence")
+    int advance(@Param("nodeId") String nodeId, @Param("sequence") long sequence, @Param("now") LocalDateTime now);
+}
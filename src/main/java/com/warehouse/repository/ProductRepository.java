@@ -5,9 +5,12 @@ import com.warehouse.entity.Category;
 import com.warehouse.entity.Brand;
 import com.warehouse.entity.Color;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,4 +35,30 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT p FROM Product p WHERE (:brand IS NULL OR p.brand = :brand) AND (:color IS NULL OR p.color = :color) AND p.isActive = true ORDER BY p.name")
     List<Product> findActiveByBrandAndColor(@Param("brand") Brand brand, @Param("color") Color color);
+
+    @Query("SELECT p FROM Product p WHERE p.desi >= :minDesi AND p.desi <= :maxDesi ORDER BY p.desi DESC")
+    List<Product> findByDesiRange(@Param("minDesi") double minDesi, @Param("maxDesi") double maxDesi);
+
+    @Query("SELECT p.id AS id, p.sku AS sku, p.desi AS desi, p.shippingRate AS shippingRate FROM Product p ORDER BY p.id")
+    List<ShippingDimensions> findAllShippingDimensions();
+
+    @Query("SELECT p.id AS id, p.sku AS sku FROM Product p WHERE p.id IN :ids OR p.sku IN :skus")
+    List<ProductKey> findKeys(@Param("ids") Collection<Long> ids, @Param("skus") Collection<String> skus);
+
+    @Modifying
+    @Query(value = "UPDATE products SET desi = COALESCE(length_cm, 0) * COALESCE(width_cm, 0) * COALESCE(height_cm, 0) / 3000.0 " +
+                   "WHERE desi IS NULL", nativeQuery = true)
+    int backfillDesi();
+
+    interface ProductKey {
+        Long getId();
+        String getSku();
+    }
+
+    interface ShippingDimensions {
+        Long getId();
+        String getSku();
+        Double getDesi();
+        BigDecimal getShippingRate();
+    }
 }
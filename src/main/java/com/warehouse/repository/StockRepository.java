@@ -1,14 +1,28 @@
 package com.warehouse.repository;
 
+import com.warehouse.dto.AvailableStockRow;
+import com.warehouse.dto.StockCubeFactRow;
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.dto.WarehouseShortfallRow;
 import com.warehouse.entity.Stock;
 import com.warehouse.entity.Product;
 import com.warehouse.entity.Warehouse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, Long> {
@@ -21,13 +35,13 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     @Query("SELECT s FROM Stock s WHERE s.warehouse = :warehouse ORDER BY s.product.name")
     List<Stock> findByWarehouse(@Param("warehouse") Warehouse warehouse);
 
-    @Query("SELECT s FROM Stock s WHERE s.quantity <= s.minStockLevel")
+    @Query("SELECT s FROM Stock s WHERE s.quantity <= COALESCE(s.minStockLevel, 0)")
     List<Stock> findLowStockItems();
 
     @Query("SELECT s FROM Stock s WHERE s.quantity = 0")
     List<Stock> findOutOfStockItems();
 
-    @Query("SELECT s FROM Stock s WHERE s.warehouse = :warehouse AND s.quantity <= s.minStockLevel")
+    @Query("SELECT s FROM Stock s WHERE s.warehouse = :warehouse AND s.quantity <= COALESCE(s.minStockLevel, 0)")
     List<Stock> findLowStockItemsByWarehouse(@Param("warehouse") Warehouse warehouse);
 
     @Query("SELECT SUM(s.quantity) FROM Stock s WHERE s.product = :product")
@@ -35,4 +49,151 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
 
     @Query("SELECT SUM(s.quantity) FROM Stock s WHERE s.warehouse = :warehouse")
     Long getTotalQuantityByWarehouse(@Param("warehouse") Warehouse warehouse);
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) " +
+           "FROM Stock s WHERE s.warehouse.isActive = true ORDER BY s.product.id, s.warehouse.id")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<StockLevelRow> streamActiveStockLevelsByProduct();
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) FROM Stock s")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<StockLevelRow> streamAllStockLevels();
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) " +
+           "FROM Stock s WHERE s.id >= :fromId AND s.id < :toId")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<StockLevelRow> streamStockLevelsByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) FROM Stock s WHERE s.quantity <= COALESCE(s.minStockLevel, 0)")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<StockLevelRow> streamLowStockLevels();
+
+    @Query("SELECT new com.warehouse.dto.StockCubeFactRow(p.category.id, b.id, c.id, s.warehouse.id, s.quantity, " +
+           "s.reservedQuantity, s.consignedQuantity, s.minStockLevel) " +
+           "FROM Stock s JOIN s.product p LEFT JOIN p.brand b LEFT JOIN p.color c")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<StockCubeFactRow> streamCubeFacts();
+
+    // PostgreSQL only. GROUPING() has a bit per argument, first argument highest, set where the
+    // column is rolled up; the empty set is the grand total.
+    @Query(value = "SELECT p.category_id AS \"categoryId\", p.brand_id AS \"brandId\", p.color_id AS \"colorId\", " +
+                   "s.warehouse_id AS \"warehouseId\", " +
+                   "GROUPING(p.category_id, p.brand_id, p.color_id, s.warehouse_id) AS \"rolledUp\", " +
+                   "COUNT(*) AS \"stockRows\", SUM(s.quantity) AS \"quantity\", " +
+                   "SUM(COALESCE(s.reserved_quantity, 0)) AS \"reservedQuantity\", " +
+                   "SUM(COALESCE(s.consigned_quantity, 0)) AS \"consignedQuantity\", " +
+                   "SUM(CASE WHEN s.quantity <= COALESCE(s.min_stock_level, 0) THEN 1 ELSE 0 END) AS \"lowStockRows\" " +
+                   "FROM stocks s JOIN products p ON p.id = s.product_id " +
+                   "GROUP BY GROUPING SETS (" +
+                   "(p.category_id, p.brand_id, p.color_id, s.warehouse_id), " +
+                   "(p.category_id, p.brand_id, p.color_id), (p.category_id, p.brand_id, s.warehouse_id), " +
+                   "(p.category_id, p.color_id, s.warehouse_id), (p.brand_id, p.color_id, s.warehouse_id), " +
+                   "(p.category_id, p.brand_id), (p.category_id, p.color_id), (p.category_id, s.warehouse_id), " +
+                   "(p.brand_id, p.color_id), (p.brand_id, s.warehouse_id), (p.color_id, s.warehouse_id), " +
+                   "(p.category_id), (p.brand_id), (p.color_id), (s.warehouse_id), ())",
+           nativeQuery = true)
+    List<CubeCell> findCubeCells();
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) FROM Stock s WHERE s.id = :id")
+    Optional<StockLevelRow> findStockLevelById(@Param("id") Long id);
+
+    @Query("SELECT MIN(s.id) FROM Stock s")
+    Long findMinId();
+
+    @Query("SELECT MAX(s.id) FROM Stock s")
+    Long findMaxId();
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) " +
+           "FROM Stock s WHERE s.product.id = :productId AND s.warehouse.id = :warehouseId")
+    Optional<StockLevelRow> findStockLevel(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId);
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) " +
+           "FROM Stock s WHERE s.product.id IN :productIds AND s.warehouse.isActive = true")
+    List<StockLevelRow> findActiveStockLevelsByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT new com.warehouse.dto.StockLevelRow(s.id, s.product.id, s.warehouse.id, s.quantity, " +
+           "s.minStockLevel, s.reservedQuantity, s.consignedQuantity) " +
+           "FROM Stock s WHERE s.warehouse.id = :warehouseId AND s.product.id IN :productIds")
+    List<StockLevelRow> findStockLevelsByWarehouseAndProductIds(@Param("warehouseId") Long warehouseId,
+                                                                @Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT new com.warehouse.dto.AvailableStockRow(s.id, p.id, p.sku, p.name, w.id, w.name, s.quantity, " +
+           "s.reservedQuantity, s.consignedQuantity, s.availableQuantity, s.minStockLevel) " +
+           "FROM Stock s JOIN s.product p JOIN s.warehouse w " +
+           "WHERE s.availableQuantity >= :min AND s.availableQuantity <= :max " +
+           "AND (:warehouseId IS NULL OR w.id = :warehouseId) AND (:productId IS NULL OR p.id = :productId)")
+    List<AvailableStockRow> findByAvailableQuantityBetween(@Param("min") int min,
+                                                           @Param("max") int max,
+                                                           @Param("warehouseId") Long warehouseId,
+                                                           @Param("productId") Long productId,
+                                                           Pageable pageable);
+
+    @Query("SELECT new com.warehouse.dto.AvailableStockRow(s.id, p.id, p.sku, p.name, w.id, w.name, s.quantity, " +
+           "s.reservedQuantity, s.consignedQuantity, s.availableQuantity, s.minStockLevel) " +
+           "FROM Stock s JOIN s.product p JOIN s.warehouse w " +
+           "WHERE s.availableQuantity < s.minStockLevel AND (:warehouseId IS NULL OR w.id = :warehouseId) " +
+           "ORDER BY s.minStockLevel - s.availableQuantity DESC, s.id")
+    List<AvailableStockRow> findAvailableBelowMinStockLevel(@Param("warehouseId") Long warehouseId, Pageable pageable);
+
+    @Query("SELECT new com.warehouse.dto.WarehouseShortfallRow(w.id, w.name, COUNT(s), " +
+           "SUM(s.minStockLevel - s.availableQuantity)) " +
+           "FROM Stock s JOIN s.warehouse w WHERE s.availableQuantity < s.minStockLevel " +
+           "GROUP BY w.id, w.name ORDER BY SUM(s.minStockLevel - s.availableQuantity) DESC")
+    List<WarehouseShortfallRow> findWarehousesWithAvailableBelowMinStockLevel();
+
+    @Query("SELECT s.id FROM Stock s WHERE s.product.id = :productId AND s.warehouse.id IN :warehouseIds")
+    List<Long> findIdsByProductAndWarehouses(@Param("productId") Long productId,
+                                             @Param("warehouseIds") Collection<Long> warehouseIds);
+
+    @Query("SELECT s.id FROM Stock s WHERE s.warehouse.id = :warehouseId AND s.product.id IN :productIds")
+    List<Long> findIdsByWarehouseAndProducts(@Param("warehouseId") Long warehouseId,
+                                             @Param("productIds") Collection<Long> productIds);
+
+    // Rows come back, and are locked, in id order, so lockers of overlapping sets cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Stock s WHERE s.id IN :ids ORDER BY s.id")
+    List<Stock> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Everything a detached Stock needs to be serialised without a session
+    @Query("SELECT s FROM Stock s JOIN FETCH s.product p JOIN FETCH p.category LEFT JOIN FETCH p.brand " +
+           "LEFT JOIN FETCH p.color JOIN FETCH s.warehouse WHERE s.id = :id")
+    Optional<Stock> findDetachedView(@Param("id") Long id);
+
+    @Query("SELECT s FROM Stock s JOIN FETCH s.product p JOIN FETCH p.category LEFT JOIN FETCH p.brand " +
+           "LEFT JOIN FETCH p.color JOIN FETCH s.warehouse WHERE s.id IN :ids ORDER BY s.id")
+    List<Stock> findDetachedViews(@Param("ids") Collection<Long> ids);
+
+    // The right-hand sides see the old values, so available is recomputed from them plus the deltas
+    @Modifying
+    @Query("UPDATE Stock s SET s.quantity = s.quantity + :quantity, " +
+           "s.reservedQuantity = COALESCE(s.reservedQuantity, 0) + :reserved, " +
+           "s.consignedQuantity = COALESCE(s.consignedQuantity, 0) + :consigned, " +
+           "s.availableQuantity = s.quantity + :quantity - COALESCE(s.reservedQuantity, 0) - :reserved " +
+           "- COALESCE(s.consignedQuantity, 0) - :consigned, s.lastUpdated = :now " +
+           "WHERE s.id = :id")
+    int applyDelta(@Param("id") Long id,
+                   @Param("quantity") int quantity,
+                   @Param("reserved") int reserved,
+                   @Param("consigned") int consigned,
+                   @Param("now") LocalDateTime now);
+
+    interface CubeCell {
+        Long getCategoryId();
+        Long getBrandId();
+        Long getColorId();
+        Long getWarehouseId();
+        Integer getRolledUp();
+        Long getStockRows();
+        Long getQuantity();
+        Long getReservedQuantity();
+        Long getConsignedQuantity();
+        Long getLowStockRows();
+    }
 }
@@ -1,16 +1,22 @@
 package com.warehouse.repository;
 
+import com.warehouse.dto.ActiveTransferRow;
+import com.warehouse.dto.TransferFactRow;
 import com.warehouse.entity.StockTransfer;
 import com.warehouse.entity.Warehouse;
 import com.warehouse.entity.Product;
 import com.warehouse.enums.TransferStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockTransferRepository extends JpaRepository<StockTransfer, Long> {
@@ -88,5 +94,19 @@ public interface StockTransferRepository extends JpaRepository<StockTransfer, Lo
            "WHERE st.destinationWarehouse = :destinationWarehouse AND st.status = :status")
     List<StockTransfer> findByDestinationWarehouseAndStatus(@Param("destinationWarehouse") Warehouse destinationWarehouse, 
                                                              @Param("status") TransferStatus status);
-}
 
+    @Query("SELECT new com.warehouse.dto.ActiveTransferRow(st.id, st.product.id, st.sourceWarehouse.id, " +
+           "st.destinationWarehouse.id, st.quantity, st.status) " +
+           "FROM StockTransfer st WHERE st.status IN ('PENDING', 'IN_TRANSIT')")
+    List<ActiveTransferRow> findActiveTransferRows();
+
+    @Query("SELECT COALESCE(SUM(st.quantity), 0) FROM StockTransfer st WHERE st.product.id = :productId " +
+           "AND st.sourceWarehouse.id = :warehouseId AND st.status = 'IN_TRANSIT'")
+    long sumInTransitQuantity(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId);
+
+    @Query("SELECT new com.warehouse.dto.TransferFactRow(st.transferDate, st.completedDate, st.sourceWarehouse.id, " +
+           "st.destinationWarehouse.id, st.product.category.id, st.status, st.quantity) " +
+           "FROM StockTransfer st")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<TransferFactRow> streamTransferFacts();
+}
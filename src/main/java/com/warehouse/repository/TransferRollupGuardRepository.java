@@ -0,0 +1,23 @@
+package com.warehouse.repository;
+
+import com.warehouse.entity.TransferRollupGuard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TransferRollupGuardRepository extends JpaRepository<TransferRollupGuard, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT g FROM TransferRollupGuard g WHERE g.id = :id")
+    Optional<TransferRollupGuard> findForShare(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM TransferRollupGuard g WHERE g.id = :id")
+    Optional<TransferRollupGuard> findForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,74 @@
+package com.warehouse.repository;
+
+import com.warehouse.dto.TransferLaneStatDto;
+import com.warehouse.entity.TransferRollup;
+import com.warehouse.enums.RollupGranularity;
+import com.warehouse.enums.TransferStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TransferRollupRepository extends JpaRepository<TransferRollup, Long> {
+
+    @Modifying
+    @Query("UPDATE TransferRollup r SET r.transferCount = r.transferCount + :transfers, " +
+           "r.unitCount = r.unitCount + :units, r.transitSecondsTotal = r.transitSecondsTotal + :transitSeconds " +
+           "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart " +
+           "AND r.sourceWarehouseId = :sourceId AND r.destinationWarehouseId = :destinationId " +
+           "AND r.categoryId = :categoryId AND r.status = :status")
+    int applyDelta(@Param("granularity") RollupGranularity granularity,
+                   @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("sourceId") Long sourceId,
+                   @Param("destinationId") Long destinationId,
+                   @Param("categoryId") Long categoryId,
+                   @Param("status") TransferStatus status,
+                   @Param("transfers") long transfers,
+                   @Param("units") long units,
+                   @Param("transitSeconds") long transitSeconds);
+
+    @Modifying
+    @Query("DELETE FROM TransferRollup r")
+    int deleteAllRollups();
+
+    @Query("SELECT new com.warehouse.dto.TransferLaneStatDto(r.bucketStart, r.sourceWarehouseId, r.destinationWarehouseId, " +
+           "SUM(r.transferCount), SUM(r.unitCount), " +
+           "SUM(CASE WHEN r.status = com.warehouse.enums.TransferStatus.COMPLETED THEN r.transferCount ELSE 0 END), " +
+           "SUM(r.transitSecondsTotal)) " +
+           "FROM TransferRollup r " +
+           "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "AND (:status IS NULL OR r.status = :status) " +
+           "AND (:sourceId IS NULL OR r.sourceWarehouseId = :sourceId) " +
+           "AND (:destinationId IS NULL OR r.destinationWarehouseId = :destinationId) " +
+           "AND (:categoryId IS NULL OR r.categoryId = :categoryId) " +
+           "GROUP BY r.bucketStart, r.sourceWarehouseId, r.destinationWarehouseId " +
+           "ORDER BY r.bucketStart, r.sourceWarehouseId, r.destinationWarehouseId")
+    List<TransferLaneStatDto> findLaneSeries(@Param("granularity") RollupGranularity granularity,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("status") TransferStatus status,
+                                             @Param("sourceId") Long sourceId,
+                                             @Param("destinationId") Long destinationId,
+                                             @Param("categoryId") Long categoryId);
+
+    @Query("SELECT new com.warehouse.dto.TransferLaneStatDto(r.sourceWarehouseId, r.destinationWarehouseId, " +
+           "SUM(r.transferCount), SUM(r.unitCount), " +
+           "SUM(CASE WHEN r.status = com.warehouse.enums.TransferStatus.COMPLETED THEN r.transferCount ELSE 0 END), " +
+           "SUM(r.transitSecondsTotal)) " +
+           "FROM TransferRollup r " +
+           "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+           "AND (:status IS NULL OR r.status = :status) " +
+           "AND (:categoryId IS NULL OR r.categoryId = :categoryId) " +
+           "GROUP BY r.sourceWarehouseId, r.destinationWarehouseId " +
+           "ORDER BY SUM(r.unitCount) DESC")
+    List<TransferLaneStatDto> findLaneTotals(@Param("granularity") RollupGranularity granularity,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("status") TransferStatus status,
+                                             @Param("categoryId") Long categoryId);
+}
@@ -19,18 +19,22 @@ public class BrandService {
         this.brandRepository = brandRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<Brand> getAllBrands() {
         return brandRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Brand> getAllActiveBrands() {
         return brandRepository.findAllActive();
     }
 
+    @Transactional(readOnly = true)
     public List<Brand> searchActiveBrands(String name) {
         return brandRepository.searchActiveByName(name);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Brand> getBrandById(Long id) {
         return brandRepository.findById(id);
     }
@@ -60,7 +64,7 @@ public class BrandService {
         Brand brand = brandRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Brand not found with id: " + id));
 
-        if (brand.getProducts() != null && !brand.getProducts().isEmpty()) {
+        if (brand.getProductCount() > 0) {
             throw new RuntimeException("Cannot delete brand with existing products");
         }
         brandRepository.delete(brand);
@@ -0,0 +1,163 @@
+package com.warehouse.service;
+
+import com.warehouse.entity.Product;
+import com.warehouse.repository.BrandRepository;
+import com.warehouse.repository.CategoryRepository;
+import com.warehouse.repository.ColorRepository;
+import com.warehouse.repository.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Objects;
+
+/**
+ * Keeps the product and stock counters on categories, brands and colors in sync.
+ * Every write is a single relative UPDATE so concurrent writers never lose increments;
+ * {@link #rebuildAll()} recomputes everything from the products and stocks tables.
+ */
+@Service
+@Transactional
+public class CatalogCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogCounterService.class);
+
+    private enum Dimension { CATEGORY, BRAND, COLOR }
+
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final ColorRepository colorRepository;
+    private final StockRepository stockRepository;
+
+    @Autowired
+    public CatalogCounterService(CategoryRepository categoryRepository,
+                                 BrandRepository brandRepository,
+                                 ColorRepository colorRepository,
+                                 StockRepository stockRepository) {
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.colorRepository = colorRepository;
+        this.stockRepository = stockRepository;
+    }
+
+    /**
+     * The counter-relevant state of a product, captured before an update.
+     */
+    public record ProductKeys(Long categoryId, Long brandId, Long colorId, boolean active) {
+
+        public static ProductKeys of(Product product) {
+            return new ProductKeys(
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getBrand() != null ? product.getBrand().getId() : null,
+                    product.getColor() != null ? product.getColor().getId() : null,
+                    product.isActive());
+        }
+
+        Long idOf(Dimension dimension) {
+            return switch (dimension) {
+                case CATEGORY -> categoryId;
+                case BRAND -> brandId;
+                case COLOR -> colorId;
+            };
+        }
+    }
+
+    public void productCreated(Product product) {
+        ProductKeys keys = ProductKeys.of(product);
+        long active = keys.active() ? 1 : 0;
+        for (Dimension dimension : Dimension.values()) {
+            adjustProducts(dimension, keys.idOf(dimension), 1, active);
+        }
+    }
+
+    public void productDeleted(Product product) {
+        ProductKeys keys = ProductKeys.of(product);
+        long active = keys.active() ? -1 : 0;
+        long stockTotal = productStockTotal(product);
+        for (Dimension dimension : Dimension.values()) {
+            adjustProducts(dimension, keys.idOf(dimension), -1, active);
+            adjustStock(dimension, keys.idOf(dimension), -stockTotal);
+        }
+    }
+
+    public void productChanged(ProductKeys before, Product product) {
+        ProductKeys after = ProductKeys.of(product);
+        if (before.equals(after)) {
+            return;
+        }
+
+        long wasActive = before.active() ? 1 : 0;
+        long isActive = after.active() ? 1 : 0;
+        Long stockTotal = null;
+
+        for (Dimension dimension : Dimension.values()) {
+            Long from = before.idOf(dimension);
+            Long to = after.idOf(dimension);
+            if (Objects.equals(from, to)) {
+                adjustProducts(dimension, to, 0, isActive - wasActive);
+                continue;
+            }
+            adjustProducts(dimension, from, -1, -wasActive);
+            adjustProducts(dimension, to, 1, isActive);
+
+            if (stockTotal == null) {
+                stockTotal = productStockTotal(product);
+            }
+            adjustStock(dimension, from, -stockTotal);
+            adjustStock(dimension, to, stockTotal);
+        }
+    }
+
+    public void stockQuantityChanged(Long productId, long delta) {
+        if (productId == null || delta == 0) {
+            return;
+        }
+        categoryRepository.adjustStockQuantityByProduct(productId, delta);
+        brandRepository.adjustStockQuantityByProduct(productId, delta);
+        colorRepository.adjustStockQuantityByProduct(productId, delta);
+    }
+
+    /**
+     * Repair job: recomputes every counter from the source tables. Runs once at startup
+     * (which also backfills the columns after the schema update) and then on a schedule.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.counters.repair-cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        int categories = categoryRepository.rebuildCounters();
+        int brands = brandRepository.rebuildCounters();
+        int colors = colorRepository.rebuildCounters();
+        log.info("Rebuilt catalog counters for {} categories, {} brands, {} colors", categories, brands, colors);
+    }
+
+    private long productStockTotal(Product product) {
+        Long total = stockRepository.getTotalQuantityByProduct(product);
+        return total != null ? total : 0L;
+    }
+
+    private void adjustProducts(Dimension dimension, Long id, long total, long active) {
+        if (id == null || (total == 0 && active == 0)) {
+            return;
+        }
+        switch (dimension) {
+            case CATEGORY -> categoryRepository.adjustProductCounts(id, total, active);
+            case BRAND -> brandRepository.adjustProductCounts(id, total, active);
+            case COLOR -> colorRepository.adjustProductCounts(id, total, active);
+        }
+    }
+
+    private void adjustStock(Dimension dimension, Long id, long delta) {
+        if (id == null || delta == 0) {
+            return;
+        }
+        switch (dimension) {
+            case CATEGORY -> categoryRepository.adjustStockQuantity(id, delta);
+            case BRAND -> brandRepository.adjustStockQuantity(id, delta);
+            case COLOR -> colorRepository.adjustStockQuantity(id, delta);
+        }
+    }
+}
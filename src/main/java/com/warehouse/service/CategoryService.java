@@ -19,22 +19,27 @@ public class CategoryService {
         this.categoryRepository = categoryRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Category> getAllActiveCategories() {
         return categoryRepository.findAllActive();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Category> getCategoryById(Long id) {
         return categoryRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Category> getCategoryByIdWithProducts(Long id) {
         return categoryRepository.findByIdWithProducts(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Category> getCategoryByName(String name) {
         return categoryRepository.findByName(name);
     }
@@ -66,13 +71,14 @@ public class CategoryService {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
 
-        if (!category.getProducts().isEmpty()) {
+        if (category.getProductCount() > 0) {
             throw new RuntimeException("Cannot delete category with existing products");
         }
 
         categoryRepository.delete(category);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsByName(String name) {
         return categoryRepository.existsByName(name);
     }
@@ -19,18 +19,22 @@ public class ColorService {
         this.colorRepository = colorRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<Color> getAllColors() {
         return colorRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Color> getAllActiveColors() {
         return colorRepository.findAllActive();
     }
 
+    @Transactional(readOnly = true)
     public List<Color> searchActiveColors(String name) {
         return colorRepository.searchActiveByName(name);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Color> getColorById(Long id) {
         return colorRepository.findById(id);
     }
@@ -60,7 +64,7 @@ public class ColorService {
         Color color = colorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Color not found with id: " + id));
 
-        if (color.getProducts() != null && !color.getProducts().isEmpty()) {
+        if (color.getProductCount() > 0) {
             throw new RuntimeException("Cannot delete color with existing products");
         }
         colorRepository.delete(color);
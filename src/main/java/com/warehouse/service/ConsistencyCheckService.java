@@ -0,0 +1,381 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.ActiveTransferRow;
+import com.warehouse.dto.ConsistencyReportDto;
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Stock;
+import com.warehouse.enums.ConsistencyViolationType;
+import com.warehouse.enums.TransferStatus;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.inventory.InventoryEngine;
+import com.warehouse.inventory.StockLockManager;
+import com.warehouse.metrics.WarehouseMetrics;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.repository.StockTransferRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Checks the stock invariants that no constraint enforces: quantity, reserved and consigned are
+ * not negative, nothing is reserved beyond the quantity, and a source row has reserved at least
+ * what its IN_TRANSIT transfers took. Reserved may be higher than that, since reservations are
+ * also made directly. Active transfers are checked too: a positive quantity, two different
+ * warehouses, and a source stock row for every IN_TRANSIT one.
+ * <p>
+ * The stocks table is split into id ranges that a fork/join pool of {@code app.consistency.parallelism}
+ * threads streams from the primary, each range in its own transaction. The repair re-reads every
+ * flagged row under a row lock and re-sums its in-transit transfers before changing it, so rows
+ * that only looked broken while the scan ran are left alone.
+ */
+@Service
+public class ConsistencyCheckService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsistencyCheckService.class);
+
+    private final StockRepository stockRepository;
+    private final StockTransferRepository stockTransferRepository;
+    private final InventoryEngine inventoryEngine;
+    private final StockLockManager stockLocks;
+    private final CatalogCounterService catalogCounterService;
+    private final WarehouseMetrics warehouseMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate primaryTransaction;
+    private final int parallelism;
+    private final long chunkSize;
+    private final int maxReported;
+    private final int repairBatchSize;
+
+    @Autowired
+    public ConsistencyCheckService(StockRepository stockRepository,
+                                   StockTransferRepository stockTransferRepository,
+                                   InventoryEngine inventoryEngine,
+                                   StockLockManager stockLocks,
+                                   CatalogCounterService catalogCounterService,
+                                   WarehouseMetrics warehouseMetrics,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.consistency.parallelism:4}") int parallelism,
+                                   @Value("${app.consistency.chunk-size:100000}") long chunkSize,
+                                   @Value("${app.consistency.max-reported:10000}") int maxReported,
+                                   @Value("${app.consistency.repair-batch-size:500}") int repairBatchSize) {
+        this.stockRepository = stockRepository;
+        this.stockTransferRepository = stockTransferRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.stockLocks = stockLocks;
+        this.catalogCounterService = catalogCounterService;
+        this.warehouseMetrics = warehouseMetrics;
+        this.eventPublisher = eventPublisher;
+        // Read-write so scans read the primary, never a lagging replica
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(1000, chunkSize);
+        this.maxReported = Math.max(0, maxReported);
+        this.repairBatchSize = Math.max(1, repairBatchSize);
+    }
+
+    /**
+     * Scans every stock row and active transfer. With {@code apply} the repairable stock
+     * violations are fixed afterwards; otherwise nothing is written.
+     */
+    public ConsistencyReportDto check(boolean apply) {
+        long started = System.nanoTime();
+        // Write-behind deltas would otherwise show up as differences
+        if (inventoryEngine.isEnabled()) {
+            inventoryEngine.flush();
+        }
+
+        Findings findings = new Findings(maxReported);
+        List<ActiveTransferRow> transfers = primaryTransaction.execute(tx -> stockTransferRepository.findActiveTransferRows());
+        Map<SourceKey, Long> inTransit = new HashMap<>();
+        for (ActiveTransferRow transfer : transfers) {
+            if (transfer.quantity() == null || transfer.quantity() <= 0 || transfer.productId() == null
+                    || transfer.sourceWarehouseId() == null
+                    || transfer.sourceWarehouseId().equals(transfer.destinationWarehouseId())) {
+                findings.add(transferViolation(ConsistencyViolationType.INVALID_TRANSFER, transfer, null));
+            } else if (transfer.status() == TransferStatus.IN_TRANSIT) {
+                inTransit.merge(new SourceKey(transfer.productId(), transfer.sourceWarehouseId()),
+                        (long) transfer.quantity(), Long::sum);
+            }
+        }
+
+        Long minId = primaryTransaction.execute(tx -> stockRepository.findMinId());
+        Long maxId = primaryTransaction.execute(tx -> stockRepository.findMaxId());
+        Set<SourceKey> stocked = ConcurrentHashMap.newKeySet();
+        if (minId != null && maxId != null) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new RangeScan(minId, maxId + 1, inTransit, stocked, findings));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        for (ActiveTransferRow transfer : transfers) {
+            if (transfer.status() != TransferStatus.IN_TRANSIT || transfer.productId() == null
+                    || transfer.sourceWarehouseId() == null) {
+                continue;
+            }
+            SourceKey key = new SourceKey(transfer.productId(), transfer.sourceWarehouseId());
+            if (inTransit.containsKey(key) && !stocked.contains(key)) {
+                findings.add(transferViolation(ConsistencyViolationType.TRANSFER_WITHOUT_SOURCE_STOCK, transfer,
+                        inTransit.get(key)));
+            }
+        }
+
+        int repaired = 0;
+        int alreadyConsistent = 0;
+        int needManualRepair = 0;
+        if (apply && !findings.repairable.isEmpty()) {
+            List<Long> ids = findings.repairable.stream().sorted().toList();
+            for (int from = 0; from < ids.size(); from += repairBatchSize) {
+                List<Long> batch = ids.subList(from, Math.min(ids.size(), from + repairBatchSize));
+                RepairOutcome outcome = primaryTransaction.execute(tx -> repair(batch));
+                repaired += outcome.changed();
+                needManualRepair += outcome.manual();
+                alreadyConsistent += batch.size() - outcome.changed() - outcome.manual();
+            }
+        }
+
+        Map<ConsistencyViolationType, Long> counts = new EnumMap<>(ConsistencyViolationType.class);
+        findings.counts.forEach((type, count) -> {
+            if (count.sum() > 0) {
+                counts.put(type, count.sum());
+            }
+        });
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        if (total > 0) {
+            log.warn("Consistency check found {} violation(s) in {} stock rows and {} active transfers: {}{}",
+                    total, findings.rows.sum(), transfers.size(), counts,
+                    apply ? String.format("; repaired %d stock row(s)", repaired) : "");
+        } else {
+            log.info("Consistency check: {} stock rows and {} active transfers consistent ({} ms)",
+                    findings.rows.sum(), transfers.size(), elapsedMs);
+        }
+        return new ConsistencyReportDto(apply, findings.rows.sum(), transfers.size(), counts, total,
+                new ArrayList<>(findings.reported), findings.truncated.get(), repaired, alreadyConsistent, needManualRepair, elapsedMs);
+    }
+
+    private void checkRow(StockLevelRow row, Map<SourceKey, Long> inTransit, Set<SourceKey> stocked,
+                          Findings findings) {
+        SourceKey key = new SourceKey(row.productId(), row.warehouseId());
+        long transit = 0;
+        if (!inTransit.isEmpty()) {
+            Long sum = inTransit.get(key);
+            if (sum != null) {
+                transit = sum;
+                stocked.add(key);
+            }
+        }
+        Levels levels = new Levels(row.quantityOrZero(), orZero(row.reservedQuantity()), orZero(row.consignedQuantity()),
+                transit);
+        List<ConsistencyViolationType> violations = levels.violations();
+        // A row is only repaired as a whole, when the result breaks no invariant at all
+        boolean repairable = !violations.isEmpty() && levels.repairable();
+        for (ConsistencyViolationType type : violations) {
+            findings.add(new ConsistencyReportDto.Violation(type, row.stockId(), null, row.productId(),
+                    row.warehouseId(), row.quantity(), row.reservedQuantity(), row.consignedQuantity(), transit,
+                    repairable));
+        }
+        if (repairable) {
+            findings.repairable.add(row.stockId());
+        }
+    }
+
+    // Runs in one transaction; rows are locked in id order, like every other multi-row locker
+    private RepairOutcome repair(List<Long> stockIds) {
+        int changed = 0;
+        int manual = 0;
+        for (Stock stock : stockLocks.lockStocks(stockIds)) {
+            Long productId = stock.getProduct().getId();
+            Long warehouseId = stock.getWarehouse().getId();
+            Levels levels = new Levels(orZero(stock.getQuantity()), orZero(stock.getReservedQuantity()),
+                    orZero(stock.getConsignedQuantity()), stockTransferRepository.sumInTransitQuantity(productId, warehouseId));
+            Levels fixed = levels.repaired();
+            if (fixed.equals(levels)) {
+                continue;
+            }
+            if (!fixed.violations().isEmpty()) {
+                // Changed since the scan into a state the repair cannot fully fix
+                log.warn("Stock {} needs manual repair: quantity {}, reserved {}, consigned {} ({} in transit)",
+                        stock.getId(), levels.quantity(), levels.reserved(), levels.consigned(), levels.inTransit());
+                manual++;
+                continue;
+            }
+            stock.setQuantity(fixed.quantity());
+            stock.setReservedQuantity(fixed.reserved());
+            stock.setConsignedQuantity(fixed.consigned());
+            Stock saved = stockRepository.save(stock);
+            int quantityDelta = fixed.quantity() - levels.quantity();
+            eventPublisher.publishEvent(StockChangedEvent.committed(saved, quantityDelta,
+                    fixed.reserved() - levels.reserved(), fixed.consigned() - levels.consigned()));
+            if (quantityDelta != 0) {
+                catalogCounterService.stockQuantityChanged(productId, quantityDelta);
+                warehouseMetrics.recordAdjustment(quantityDelta);
+            }
+            log.info("Repaired stock {}: quantity {} -> {}, reserved {} -> {}, consigned {} -> {} ({} in transit)",
+                    stock.getId(), levels.quantity(), fixed.quantity(), levels.reserved(), fixed.reserved(),
+                    levels.consigned(), fixed.consigned(), levels.inTransit());
+            changed++;
+        }
+        return new RepairOutcome(changed, manual);
+    }
+
+    private static ConsistencyReportDto.Violation transferViolation(ConsistencyViolationType type,
+                                                                    ActiveTransferRow transfer, Long inTransit) {
+        return new ConsistencyReportDto.Violation(type, null, transfer.transferId(), transfer.productId(),
+                transfer.sourceWarehouseId(), transfer.quantity(), null, null, inTransit, false);
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private record SourceKey(long productId, long warehouseId) {
+    }
+
+    private record RepairOutcome(int changed, int manual) {
+    }
+
+    /**
+     * One row's levels and the sum of the IN_TRANSIT transfers leaving it.
+     */
+    record Levels(int quantity, int reserved, int consigned, long inTransit) {
+
+        List<ConsistencyViolationType> violations() {
+            List<ConsistencyViolationType> found = new ArrayList<>(2);
+            if (quantity < 0) {
+                found.add(ConsistencyViolationType.NEGATIVE_QUANTITY);
+            }
+            if (reserved < 0) {
+                found.add(ConsistencyViolationType.NEGATIVE_RESERVED);
+            }
+            if (consigned < 0) {
+                found.add(ConsistencyViolationType.NEGATIVE_CONSIGNED);
+            }
+            if (reserved > quantity) {
+                found.add(ConsistencyViolationType.RESERVED_ABOVE_QUANTITY);
+            } else if ((long) quantity - reserved - consigned < 0) {
+                // Reserved above quantity already implies this
+                found.add(ConsistencyViolationType.NEGATIVE_AVAILABLE);
+            }
+            if (reserved < inTransit) {
+                found.add(ConsistencyViolationType.RESERVED_BELOW_IN_TRANSIT);
+            }
+            return found;
+        }
+
+        /**
+         * Negative levels become zero and reserved is brought into [in transit, quantity]. Units
+         * in transit are never released, and a consigned quantity that leaves nothing available
+         * is left for a person to sort out.
+         */
+        Levels repaired() {
+            int q = Math.max(0, quantity);
+            int c = Math.max(0, consigned);
+            int transit = (int) Math.min(Integer.MAX_VALUE, inTransit);
+            int r = Math.max(transit, Math.min(Math.max(0, reserved), q));
+            return new Levels(q, r, c, inTransit);
+        }
+
+        /**
+         * Whether {@link #repaired()} satisfies every invariant. When more units are in transit
+         * than the row holds, for example, reserved cannot be both above the one and below the
+         * other, and the row is left for a person.
+         */
+        boolean repairable() {
+            return repaired().violations().isEmpty();
+        }
+    }
+
+    /**
+     * Shared by all range tasks: exact counts per type, and the first violations up to the cap.
+     */
+    private static final class Findings {
+        final Map<ConsistencyViolationType, LongAdder> counts = new EnumMap<>(ConsistencyViolationType.class);
+        final Queue<ConsistencyReportDto.Violation> reported = new ConcurrentLinkedQueue<>();
+        final Queue<Long> repairable = new ConcurrentLinkedQueue<>();
+        final LongAdder rows = new LongAdder();
+        final AtomicInteger slots;
+        final AtomicBoolean truncated = new AtomicBoolean();
+
+        Findings(int maxReported) {
+            for (ConsistencyViolationType type : ConsistencyViolationType.values()) {
+                counts.put(type, new LongAdder());
+            }
+            this.slots = new AtomicInteger(maxReported);
+        }
+
+        void add(ConsistencyReportDto.Violation violation) {
+            counts.get(violation.getType()).increment();
+            if (slots.getAndDecrement() > 0) {
+                reported.add(violation);
+            } else {
+                truncated.set(true);
+            }
+        }
+    }
+
+    /**
+     * Halves its id range until it is at most {@code chunkSize} ids wide, then streams that range.
+     */
+    private final class RangeScan extends RecursiveAction {
+        private final long fromId;
+        private final long toId;
+        private final Map<SourceKey, Long> inTransit;
+        private final Set<SourceKey> stocked;
+        private final Findings findings;
+
+        RangeScan(long fromId, long toId, Map<SourceKey, Long> inTransit, Set<SourceKey> stocked, Findings findings) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.inTransit = inTransit;
+            this.stocked = stocked;
+            this.findings = findings;
+        }
+
+        @Override
+        protected void compute() {
+            if (toId - fromId > chunkSize) {
+                long middle = fromId + (toId - fromId) / 2;
+                invokeAll(new RangeScan(fromId, middle, inTransit, stocked, findings),
+                        new RangeScan(middle, toId, inTransit, stocked, findings));
+                return;
+            }
+            primaryTransaction.executeWithoutResult(tx -> {
+                try (Stream<StockLevelRow> rows = stockRepository.streamStockLevelsByIdRange(fromId, toId)) {
+                    Iterator<StockLevelRow> it = rows.iterator();
+                    while (it.hasNext()) {
+                        checkRow(it.next(), inTransit, stocked, findings);
+                        findings.rows.increment();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.CycleCountReportDto;
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Stock;
+import com.warehouse.entity.Warehouse;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.inventory.InventoryEngine;
+import com.warehouse.inventory.StockLockManager;
+import com.warehouse.metrics.WarehouseMetrics;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.repository.WarehouseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciles a physical count of one warehouse against its stock rows. The count file is read
+ * as a stream of {@code sku,countedQuantity} lines and handled {@code app.cycle-count.chunk-size}
+ * lines at a time: one query resolves the chunk's SKUs, one reads its stock rows, and with
+ * {@code apply} one transaction locks those rows in id order and sets them to the counted
+ * quantities. Only the current chunk, the product ids seen so far and the bounded report lists
+ * are held in memory.
+ * <p>
+ * Counted products without a stock row get one. Rows that are not in the file are left alone.
+ */
+@Service
+public class CycleCountService {
+
+    private static final Logger log = LoggerFactory.getLogger(CycleCountService.class);
+    private static final Comparator<CycleCountReportDto.Variance> BY_SIZE =
+            Comparator.comparingInt(v -> Math.abs(v.getDifference()));
+
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final StockRepository stockRepository;
+    private final InventoryEngine inventoryEngine;
+    private final StockLockManager stockLocks;
+    private final CatalogCounterService catalogCounterService;
+    private final WarehouseMetrics warehouseMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final int maxReported;
+
+    @Autowired
+    public CycleCountService(ProductRepository productRepository,
+                             WarehouseRepository warehouseRepository,
+                             StockRepository stockRepository,
+                             InventoryEngine inventoryEngine,
+                             StockLockManager stockLocks,
+                             CatalogCounterService catalogCounterService,
+                             WarehouseMetrics warehouseMetrics,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.cycle-count.chunk-size:1000}") int chunkSize,
+                             @Value("${app.cycle-count.max-reported:100}") int maxReported) {
+        this.productRepository = productRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.stockRepository = stockRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.stockLocks = stockLocks;
+        this.catalogCounterService = catalogCounterService;
+        this.warehouseMetrics = warehouseMetrics;
+        this.eventPublisher = eventPublisher;
+        // Read-write so counts are compared with the primary, never a lagging replica
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxReported = Math.max(0, maxReported);
+    }
+
+    /**
+     * Compares the counted quantities in {@code counts} with the warehouse's stock. Without
+     * {@code apply} nothing is written. With it every chunk commits on its own, so a failure part
+     * way through leaves the chunks before it applied; the report up to that point is logged.
+     */
+    public CycleCountReportDto reconcile(Long warehouseId, InputStream counts, boolean apply) {
+        long started = System.nanoTime();
+        Warehouse warehouse = warehouseRepository.findById(warehouseId)
+                .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + warehouseId));
+        if (apply && !warehouse.isActive()) {
+            throw new RuntimeException("Cannot apply a count to an inactive warehouse");
+        }
+        if (inventoryEngine.isEnabled()) {
+            inventoryEngine.flush();
+        }
+
+        Run run = new Run(warehouse, apply);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(counts, StandardCharsets.UTF_8))) {
+            List<CountLine> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                run.linesRead++;
+                CountLine parsed = parse(line, run);
+                if (parsed != null) {
+                    chunk.add(parsed);
+                }
+                if (chunk.size() == chunkSize) {
+                    process(chunk, run);
+                    chunk.clear();
+                }
+            }
+            process(chunk, run);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the count file: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            log.warn("Cycle count of warehouse {} stopped at line {} after adjusting {} stock(s): {}",
+                    warehouseId, run.linesRead, run.adjusted, e.getMessage());
+            throw e;
+        }
+
+        List<CycleCountReportDto.Variance> largest = new ArrayList<>(run.largest);
+        largest.sort(BY_SIZE.reversed());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("Cycle count of warehouse {} ({}): {} lines, {} matched, {} over (+{}), {} under (-{}), {} new, "
+                        + "{} rejected, {} adjusted in {} ms", warehouseId, apply ? "applied" : "dry run",
+                run.linesRead, run.matched, run.over, run.unitsOver, run.under, run.unitsUnder, run.newStocks,
+                run.rejectedLines, run.adjusted, elapsedMs);
+        return new CycleCountReportDto(warehouseId, apply, run.linesRead, run.linesCounted, run.matched, run.over,
+                run.under, run.newStocks, run.unitsOver, run.unitsUnder, run.adjusted, run.rejectedLines, largest,
+                run.rejected, elapsedMs);
+    }
+
+    // Accepts "sku,quantity" with a comma, semicolon or tab, optional quotes and an optional header
+    private CountLine parse(String line, Run run) {
+        String trimmed = (run.linesRead == 1 && line.startsWith("\uFEFF") ? line.substring(1) : line).strip();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        String[] fields = trimmed.split("[,;\t]", -1);
+        String sku = fields.length > 0 ? unquote(fields[0]) : "";
+        String quantity = fields.length > 1 ? unquote(fields[1]) : "";
+        if (run.linesRead == 1 && sku.equalsIgnoreCase("sku")) {
+            return null;
+        }
+        if (fields.length != 2 || sku.isEmpty()) {
+            run.reject(run.linesRead, sku, "Expected a SKU and a counted quantity");
+            return null;
+        }
+        int counted;
+        try {
+            counted = Integer.parseInt(quantity);
+        } catch (NumberFormatException e) {
+            run.reject(run.linesRead, sku, "Counted quantity is not a whole number: " + quantity);
+            return null;
+        }
+        if (counted < 0) {
+            run.reject(run.linesRead, sku, "Counted quantity cannot be negative");
+            return null;
+        }
+        return new CountLine(run.linesRead, sku, counted);
+    }
+
+    private void process(List<CountLine> chunk, Run run) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<String, Long> productIds = new HashMap<>();
+        List<String> skus = chunk.stream().map(CountLine::sku).distinct().toList();
+        // IN () is not valid SQL; a placeholder keeps the query simple
+        for (ProductRepository.ProductKey key : productRepository.findKeys(List.of(-1L), skus)) {
+            productIds.put(key.getSku(), key.getId());
+        }
+
+        List<Counted> counted = new ArrayList<>(chunk.size());
+        for (CountLine line : chunk) {
+            Long productId = productIds.get(line.sku());
+            if (productId == null) {
+                run.reject(line.number(), line.sku(), "Unknown SKU");
+            } else if (!run.seen.add(productId)) {
+                run.reject(line.number(), line.sku(), "SKU was already counted on an earlier line");
+            } else {
+                counted.add(new Counted(line, productId));
+            }
+        }
+        if (counted.isEmpty()) {
+            return;
+        }
+        List<Long> ids = counted.stream().map(Counted::productId).toList();
+        chunkTransaction.executeWithoutResult(tx -> reconcileChunk(counted, ids, run));
+    }
+
+    private void reconcileChunk(List<Counted> counted, List<Long> productIds, Run run) {
+        Long warehouseId = run.warehouse.getId();
+        Map<Long, Integer> systemQuantity = new HashMap<>();
+        Map<Long, Long> stockIds = new HashMap<>();
+        for (StockLevelRow row : stockRepository.findStockLevelsByWarehouseAndProductIds(warehouseId, productIds)) {
+            systemQuantity.put(row.productId(), row.quantityOrZero());
+            stockIds.put(row.productId(), row.stockId());
+        }
+
+        // Under lock the counted rows are re-read, so the differences are against the current values.
+        // Rows to be created are locked by stripe with them, so a transfer completing into the
+        // warehouse cannot insert the same row and abort the chunk on the unique constraint.
+        Map<Long, Stock> locked = new HashMap<>();
+        if (run.apply) {
+            List<Long> creating = counted.stream()
+                    .filter(line -> !stockIds.containsKey(line.productId()) && line.line().counted() != 0)
+                    .map(Counted::productId)
+                    .toList();
+            for (Stock stock : stockLocks.lockStocks(stockIds.values(), warehouseId, creating)) {
+                Long productId = stock.getProduct().getId();
+                locked.put(productId, stock);
+                stockIds.put(productId, stock.getId());
+                systemQuantity.put(productId, stock.getQuantity() != null ? stock.getQuantity() : 0);
+            }
+        }
+
+        for (Counted line : counted) {
+            Long productId = line.productId();
+            int count = line.line().counted();
+            boolean exists = systemQuantity.containsKey(productId);
+            int system = exists ? systemQuantity.get(productId) : 0;
+            int difference = count - system;
+            run.linesCounted++;
+            if (difference == 0) {
+                run.matched++;
+                continue;
+            }
+            if (difference > 0) {
+                run.over++;
+                run.unitsOver += difference;
+            } else {
+                run.under++;
+                run.unitsUnder -= difference;
+            }
+            if (!exists) {
+                run.newStocks++;
+            }
+            run.offer(new CycleCountReportDto.Variance(line.line().sku(), productId, stockIds.get(productId), system,
+                    count, difference));
+
+            if (!run.apply) {
+                continue;
+            }
+            Stock stock = locked.get(productId);
+            if (stock == null) {
+                stock = new Stock();
+                stock.setProduct(productRepository.getReferenceById(productId));
+                stock.setWarehouse(run.warehouse);
+            }
+            stock.setQuantity(count);
+            Stock saved = stockRepository.save(stock);
+            eventPublisher.publishEvent(StockChangedEvent.committed(saved, difference, 0, 0));
+            catalogCounterService.stockQuantityChanged(productId, difference);
+            warehouseMetrics.recordAdjustment(difference);
+            run.adjusted++;
+        }
+    }
+
+    private static String unquote(String field) {
+        String value = field.strip();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).strip();
+        }
+        return value;
+    }
+
+    private record CountLine(long number, String sku, int counted) {
+    }
+
+    private record Counted(CountLine line, Long productId) {
+    }
+
+    /**
+     * Totals and bounded report lists for one file.
+     */
+    private final class Run {
+        final Warehouse warehouse;
+        final boolean apply;
+        final Set<Long> seen = new HashSet<>();
+        final PriorityQueue<CycleCountReportDto.Variance> largest = new PriorityQueue<>(BY_SIZE);
+        final List<CycleCountReportDto.RejectedLine> rejected = new ArrayList<>();
+        long linesRead;
+        long linesCounted;
+        long matched;
+        long over;
+        long under;
+        long newStocks;
+        long unitsOver;
+        long unitsUnder;
+        long adjusted;
+        long rejectedLines;
+
+        Run(Warehouse warehouse, boolean apply) {
+            this.warehouse = warehouse;
+            this.apply = apply;
+        }
+
+        void reject(long lineNumber, String sku, String reason) {
+            rejectedLines++;
+            if (rejected.size() < maxReported) {
+                rejected.add(new CycleCountReportDto.RejectedLine(lineNumber, sku, reason));
+            }
+        }
+
+        // Keeps the maxReported largest differences; the smallest is at the head
+        void offer(CycleCountReportDto.Variance variance) {
+            if (maxReported == 0) {
+                return;
+            }
+            if (largest.size() < maxReported) {
+                largest.add(variance);
+            } else if (BY_SIZE.compare(variance, largest.peek()) > 0) {
+                largest.poll();
+                largest.add(variance);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.FulfilmentOptionsDto;
+import com.warehouse.dto.FulfilmentRequest;
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Warehouse;
+import com.warehouse.inventory.AvailabilityIndex;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.repository.WarehouseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers "which warehouses can ship this basket". An option is a set of at most
+ * {@code maxSplits} active warehouses that together have every line available and where no
+ * member could be dropped, ranked as described in {@link WarehouseSetSearch}.
+ * <p>
+ * Available units (quantity minus reserved and consigned) come from the {@link AvailabilityIndex},
+ * one lookup per line and warehouse. While the index is building they are read with a single
+ * projection query instead.
+ */
+@Service
+@Transactional
+public class FulfilmentService {
+
+    private static final int DEFAULT_SPLITS = 2;
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_LINES = 200;
+
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final StockRepository stockRepository;
+    private final AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    public FulfilmentService(ProductRepository productRepository,
+                             WarehouseRepository warehouseRepository,
+                             StockRepository stockRepository,
+                             AvailabilityIndex availabilityIndex) {
+        this.productRepository = productRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.stockRepository = stockRepository;
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    @Transactional(readOnly = true)
+    public FulfilmentOptionsDto findOptions(Long productId, String sku, Integer quantity, Integer maxSplits,
+                                            Integer limit) {
+        FulfilmentRequest.Line line = new FulfilmentRequest.Line(productId, sku, quantity);
+        return findOptions(new FulfilmentRequest(List.of(line), maxSplits, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public FulfilmentOptionsDto findOptions(FulfilmentRequest request) {
+        long started = System.nanoTime();
+        if (request == null || request.getLines() == null || request.getLines().isEmpty()) {
+            throw new RuntimeException("At least one line is required");
+        }
+        if (request.getLines().size() > MAX_LINES) {
+            throw new RuntimeException("A basket can have at most " + MAX_LINES + " lines");
+        }
+        int maxSplits = request.getMaxSplits() != null ? request.getMaxSplits() : DEFAULT_SPLITS;
+        if (maxSplits < 1 || maxSplits > WarehouseSetSearch.MAX_SPLITS) {
+            throw new RuntimeException("maxSplits must be between 1 and " + WarehouseSetSearch.MAX_SPLITS);
+        }
+        int limit = request.getLimit() != null ? request.getLimit() : DEFAULT_LIMIT;
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new RuntimeException("limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        // Lines for the same product are fulfilled together
+        Map<Long, Integer> wanted = new LinkedHashMap<>();
+        Map<Long, String> skus = new HashMap<>();
+        Map<String, Long> idsBySku = new HashMap<>();
+        loadProductKeys(request.getLines(), skus, idsBySku);
+        for (FulfilmentRequest.Line line : request.getLines()) {
+            Long productId = resolve(line, skus, idsBySku);
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new RuntimeException("Quantity must be greater than 0 for product " + productId);
+            }
+            wanted.merge(productId, line.getQuantity(), Integer::sum);
+        }
+        long[] productIds = wanted.keySet().stream().mapToLong(Long::longValue).toArray();
+        int[] quantities = wanted.values().stream().mapToInt(Integer::intValue).toArray();
+
+        List<Warehouse> warehouses = warehouseRepository.findAllActive();
+        boolean fromIndex = availabilityIndex.isReady();
+        int[][] available = fromIndex
+                ? availableFromIndex(warehouses, productIds)
+                : availableFromDatabase(warehouses, productIds);
+
+        List<FulfilmentOptionsDto.Line> lines = new ArrayList<>(productIds.length);
+        for (int i = 0; i < productIds.length; i++) {
+            long everywhere = 0;
+            for (int[] row : available) {
+                everywhere += row[i];
+            }
+            lines.add(new FulfilmentOptionsDto.Line(productIds[i], skus.get(productIds[i]), quantities[i], everywhere));
+        }
+
+        List<WarehouseSetSearch.Option> ranked = WarehouseSetSearch.rank(available, quantities, maxSplits);
+        List<FulfilmentOptionsDto.Option> options = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (WarehouseSetSearch.Option option : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            options.add(toOption(option, warehouses, productIds, quantities, available));
+        }
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        return new FulfilmentOptionsDto(lines, options, warehouses.size(), fromIndex, elapsedMicros);
+    }
+
+    // One query for every product the basket names, instead of one per line
+    private void loadProductKeys(List<FulfilmentRequest.Line> lines, Map<Long, String> skus, Map<String, Long> idsBySku) {
+        List<Long> ids = new ArrayList<>();
+        List<String> lineSkus = new ArrayList<>();
+        for (FulfilmentRequest.Line line : lines) {
+            if (line == null) {
+                continue;
+            }
+            if (line.getProductId() != null) {
+                ids.add(line.getProductId());
+            } else if (line.getSku() != null && !line.getSku().isBlank()) {
+                lineSkus.add(line.getSku().trim());
+            }
+        }
+        // IN () is not valid SQL; a placeholder keeps the query simple
+        for (ProductRepository.ProductKey key : productRepository.findKeys(
+                ids.isEmpty() ? List.of(-1L) : ids, lineSkus.isEmpty() ? List.of("") : lineSkus)) {
+            skus.put(key.getId(), key.getSku());
+            idsBySku.put(key.getSku(), key.getId());
+        }
+    }
+
+    private Long resolve(FulfilmentRequest.Line line, Map<Long, String> skus, Map<String, Long> idsBySku) {
+        if (line == null || (line.getProductId() == null && (line.getSku() == null || line.getSku().isBlank()))) {
+            throw new RuntimeException("Product id or SKU is required on every line");
+        }
+        if (line.getProductId() != null) {
+            if (!skus.containsKey(line.getProductId())) {
+                throw new RuntimeException("Product not found with id: " + line.getProductId());
+            }
+            return line.getProductId();
+        }
+        Long productId = idsBySku.get(line.getSku().trim());
+        if (productId == null) {
+            throw new RuntimeException("Product not found with SKU: " + line.getSku());
+        }
+        return productId;
+    }
+
+    private int[][] availableFromIndex(List<Warehouse> warehouses, long[] productIds) {
+        int[][] available = new int[warehouses.size()][productIds.length];
+        for (int w = 0; w < warehouses.size(); w++) {
+            long warehouseId = warehouses.get(w).getId();
+            for (int i = 0; i < productIds.length; i++) {
+                int units = availabilityIndex.available(productIds[i], warehouseId);
+                available[w][i] = units == AvailabilityIndex.NOT_INDEXED ? 0 : Math.max(0, units);
+            }
+        }
+        return available;
+    }
+
+    private int[][] availableFromDatabase(List<Warehouse> warehouses, long[] productIds) {
+        int[][] available = new int[warehouses.size()][productIds.length];
+        Map<Long, Integer> warehouseIndex = new HashMap<>();
+        for (int w = 0; w < warehouses.size(); w++) {
+            warehouseIndex.put(warehouses.get(w).getId(), w);
+        }
+        Map<Long, Integer> productIndex = new HashMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            productIndex.put(productIds[i], i);
+        }
+        for (StockLevelRow row : stockRepository.findActiveStockLevelsByProductIds(productIndex.keySet())) {
+            Integer w = warehouseIndex.get(row.warehouseId());
+            if (w != null) {
+                available[w][productIndex.get(row.productId())] = Math.max(0, row.availableQuantity());
+            }
+        }
+        return available;
+    }
+
+    private static FulfilmentOptionsDto.Option toOption(WarehouseSetSearch.Option option, List<Warehouse> warehouses,
+                                                        long[] productIds, int[] quantities, int[][] available) {
+        int[] members = option.members();
+        List<Long> warehouseIds = new ArrayList<>(members.length);
+        List<String> warehouseNames = new ArrayList<>(members.length);
+        for (int w : members) {
+            warehouseIds.add(warehouses.get(w).getId());
+            warehouseNames.add(warehouses.get(w).getName());
+        }
+
+        int[][] take = WarehouseSetSearch.allocate(option, available, quantities);
+        List<FulfilmentOptionsDto.Allocation> allocations = new ArrayList<>();
+        for (int i = 0; i < productIds.length; i++) {
+            for (int k = 0; k < members.length; k++) {
+                if (take[i][k] > 0) {
+                    allocations.add(new FulfilmentOptionsDto.Allocation(productIds[i],
+                            warehouses.get(members[k]).getId(), take[i][k]));
+                }
+            }
+        }
+        return new FulfilmentOptionsDto.Option(warehouseIds, warehouseNames, members.length,
+                option.availableUnits(), allocations);
+    }
+}
@@ -0,0 +1,403 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.InventoryCubeDto;
+import com.warehouse.dto.StockCubeFactRow;
+import com.warehouse.entity.Brand;
+import com.warehouse.entity.Category;
+import com.warehouse.entity.Color;
+import com.warehouse.entity.Warehouse;
+import com.warehouse.enums.CubeDimension;
+import com.warehouse.event.ProductChangedEvent;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.inventory.InventoryEngine;
+import com.warehouse.repository.BrandRepository;
+import com.warehouse.repository.CategoryRepository;
+import com.warehouse.repository.ColorRepository;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.repository.WarehouseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Stock totals by every combination of category, brand, color and warehouse, for pivot reports.
+ * The whole cube (all 16 groupings) is computed in one pass over the stocks table: a
+ * {@code GROUPING SETS} query on PostgreSQL, a single streamed scan elsewhere. Any slice or
+ * drill-down is then answered from memory.
+ * <p>
+ * Committed stock and product changes mark the cube stale. A stale cube is recomputed on the next
+ * read, but at most once per {@code min-refresh-interval}; readers arriving while it recomputes
+ * get the previous cube, flagged stale. Changes made on other nodes are picked up when the cube
+ * reaches {@code max-age}.
+ */
+@Service
+public class InventoryCubeService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryCubeService.class);
+
+    public static final int MAX_CUBE_ROWS = 10000;
+
+    private final StockRepository stockRepository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final ColorRepository colorRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final InventoryEngine inventoryEngine;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate primaryTransaction;
+    private final Duration minRefreshInterval;
+    private final Duration maxAge;
+    private final Timer refreshTimer;
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Cube cube;
+    private volatile Boolean groupingSets;
+
+    @Autowired
+    public InventoryCubeService(StockRepository stockRepository,
+                                CategoryRepository categoryRepository,
+                                BrandRepository brandRepository,
+                                ColorRepository colorRepository,
+                                WarehouseRepository warehouseRepository,
+                                InventoryEngine inventoryEngine,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry registry,
+                                @Value("${app.inventory-cube.min-refresh-interval:PT5S}") Duration minRefreshInterval,
+                                @Value("${app.inventory-cube.max-age:PT5M}") Duration maxAge) {
+        this.stockRepository = stockRepository;
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.colorRepository = colorRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.jdbc = new JdbcTemplate(dataSource);
+        // Read-write so the cube is computed on the primary; a lagging replica would leave out
+        // the very changes that invalidated it
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.minRefreshInterval = minRefreshInterval;
+        this.maxAge = maxAge;
+        this.refreshTimer = Timer.builder("warehouse.inventory.cube.refresh")
+                .description("Time to compute the inventory cube")
+                .register(registry);
+        Gauge.builder("warehouse.inventory.cube.cells", this, s -> s.cube != null ? s.cube.size() : 0)
+                .description("Cells in the cached inventory cube")
+                .register(registry);
+    }
+
+    /**
+     * Totals grouped by {@code groupBy}, restricted to the given dimension values. A filtered
+     * dimension is part of the grouping too, so drilling down is adding a filter for the row
+     * picked and a dimension to group by.
+     */
+    public InventoryCubeDto slice(Collection<CubeDimension> groupBy, Long categoryId, Long brandId, Long colorId,
+                                  Long warehouseId, Integer limit) {
+        int rowLimit = limit != null ? limit : MAX_CUBE_ROWS;
+        if (rowLimit < 1 || rowLimit > MAX_CUBE_ROWS) {
+            throw new RuntimeException("limit must be between 1 and " + MAX_CUBE_ROWS);
+        }
+        EnumSet<CubeDimension> dimensions = groupBy == null || groupBy.isEmpty()
+                ? EnumSet.noneOf(CubeDimension.class) : EnumSet.copyOf(groupBy);
+        Long[] filter = new Long[CubeDimension.values().length];
+        filter[CubeDimension.CATEGORY.ordinal()] = categoryId;
+        filter[CubeDimension.BRAND.ordinal()] = brandId;
+        filter[CubeDimension.COLOR.ordinal()] = colorId;
+        filter[CubeDimension.WAREHOUSE.ordinal()] = warehouseId;
+        int mask = CubeDimension.maskOf(dimensions);
+        for (CubeDimension dimension : CubeDimension.values()) {
+            if (filter[dimension.ordinal()] != null) {
+                mask |= dimension.bit();
+            }
+        }
+
+        Cube current = current();
+        List<Cell> matching = new ArrayList<>();
+        for (Cell cell : current.cells(mask)) {
+            if (cell.matches(filter)) {
+                matching.add(cell);
+            }
+        }
+        matching.sort(Comparator.comparingLong((Cell cell) -> cell.quantity).reversed());
+        List<InventoryCubeDto.Row> rows = new ArrayList<>(Math.min(matching.size(), rowLimit));
+        for (Cell cell : matching.subList(0, Math.min(matching.size(), rowLimit))) {
+            rows.add(current.toRow(cell));
+        }
+        return new InventoryCubeDto(new ArrayList<>(dimensions), current.computedAt,
+                generation.get() != current.generation, matching.size(), matching.size() > rowLimit, rows);
+    }
+
+    /**
+     * Recomputes the cube now, whether or not it is stale. Returns the number of cells.
+     */
+    public int refresh() {
+        refreshLock.lock();
+        try {
+            return load().size();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    // A product moving to another category, brand or color moves its stock between cells
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    private Cube current() {
+        Cube current = cube;
+        if (current != null && !needsRefresh(current)) {
+            return current;
+        }
+        if (current != null) {
+            // Someone else is already recomputing; the previous cube will do until they finish
+            if (!refreshLock.tryLock()) {
+                return current;
+            }
+        } else {
+            refreshLock.lock();
+        }
+        try {
+            current = cube;
+            return current != null && !needsRefresh(current) ? current : load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private boolean needsRefresh(Cube current) {
+        Duration age = Duration.between(current.computedAt, LocalDateTime.now());
+        if (age.compareTo(maxAge) >= 0) {
+            return true;
+        }
+        return generation.get() != current.generation && age.compareTo(minRefreshInterval) >= 0;
+    }
+
+    // Callers hold refreshLock
+    private Cube load() {
+        long loadedAt = generation.get();
+        LocalDateTime computedAt = LocalDateTime.now();
+        // Write-behind deltas only reach the stocks table when the engine flushes
+        if (inventoryEngine.isEnabled()) {
+            inventoryEngine.flush();
+        }
+        boolean postgres = usesGroupingSets();
+        Timer.Sample sample = Timer.start();
+        Cube loaded = primaryTransaction.execute(tx -> {
+            Map<Long, String> categories = names(categoryRepository.findAll(), Category::getId, Category::getName);
+            Map<Long, String> brands = names(brandRepository.findAll(), Brand::getId, Brand::getName);
+            Map<Long, String> colors = names(colorRepository.findAll(), Color::getId, Color::getName);
+            Map<Long, String> warehouses = names(warehouseRepository.findAll(), Warehouse::getId, Warehouse::getName);
+            Map<CellKey, Cell> cells = postgres ? groupInDatabase() : groupInMemory();
+            return new Cube(cells.values(), categories, brands, colors, warehouses, loadedAt, computedAt);
+        });
+        long elapsed = sample.stop(refreshTimer);
+        // Changes committed while we were loading have already bumped the generation, so the
+        // new cube starts out stale rather than hiding them
+        cube = loaded;
+        log.info("Computed inventory cube: {} cells in {} ms ({})", loaded.size(),
+                Duration.ofNanos(elapsed).toMillis(), postgres ? "grouping sets" : "streamed");
+        return loaded;
+    }
+
+    private Map<CellKey, Cell> groupInDatabase() {
+        int last = CubeDimension.values().length - 1;
+        Map<CellKey, Cell> cells = new HashMap<>();
+        for (StockRepository.CubeCell row : stockRepository.findCubeCells()) {
+            int mask = 0;
+            for (CubeDimension dimension : CubeDimension.values()) {
+                if ((row.getRolledUp() >> (last - dimension.ordinal()) & 1) == 0) {
+                    mask |= dimension.bit();
+                }
+            }
+            Cell cell = new Cell(CellKey.of(mask, row.getCategoryId(), row.getBrandId(), row.getColorId(),
+                    row.getWarehouseId()));
+            cell.stockRows = orZero(row.getStockRows());
+            cell.quantity = orZero(row.getQuantity());
+            cell.reservedQuantity = orZero(row.getReservedQuantity());
+            cell.consignedQuantity = orZero(row.getConsignedQuantity());
+            cell.lowStockRows = orZero(row.getLowStockRows());
+            cells.put(cell.key, cell);
+        }
+        return cells;
+    }
+
+    private Map<CellKey, Cell> groupInMemory() {
+        Map<CellKey, Cell> cells = new HashMap<>();
+        try (Stream<StockCubeFactRow> facts = stockRepository.streamCubeFacts()) {
+            facts.forEach(fact -> {
+                int quantity = orZero(fact.quantity());
+                int reserved = orZero(fact.reservedQuantity());
+                int consigned = orZero(fact.consignedQuantity());
+                boolean low = quantity <= orZero(fact.minStockLevel());
+                for (int mask = 0; mask <= CubeDimension.ALL; mask++) {
+                    CellKey key = CellKey.of(mask, fact.categoryId(), fact.brandId(), fact.colorId(),
+                            fact.warehouseId());
+                    Cell cell = cells.computeIfAbsent(key, Cell::new);
+                    cell.stockRows++;
+                    cell.quantity += quantity;
+                    cell.reservedQuantity += reserved;
+                    cell.consignedQuantity += consigned;
+                    if (low) {
+                        cell.lowStockRows++;
+                    }
+                }
+            });
+        }
+        return cells;
+    }
+
+    private boolean usesGroupingSets() {
+        Boolean known = groupingSets;
+        if (known == null) {
+            String database = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            known = "PostgreSQL".equalsIgnoreCase(database);
+            groupingSets = known;
+        }
+        return known;
+    }
+
+    private static <T> Map<Long, String> names(List<T> entities, Function<T, Long> id, Function<T, String> name) {
+        Map<Long, String> names = new HashMap<>();
+        for (T entity : entities) {
+            names.put(id.apply(entity), name.apply(entity));
+        }
+        return names;
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    /** Dimension values of a cell; those outside its mask are null. */
+    private record CellKey(int mask, Long categoryId, Long brandId, Long colorId, Long warehouseId) {
+
+        static CellKey of(int mask, Long categoryId, Long brandId, Long colorId, Long warehouseId) {
+            return new CellKey(mask,
+                    CubeDimension.CATEGORY.in(mask) ? categoryId : null,
+                    CubeDimension.BRAND.in(mask) ? brandId : null,
+                    CubeDimension.COLOR.in(mask) ? colorId : null,
+                    CubeDimension.WAREHOUSE.in(mask) ? warehouseId : null);
+        }
+
+        Long value(CubeDimension dimension) {
+            return switch (dimension) {
+                case CATEGORY -> categoryId;
+                case BRAND -> brandId;
+                case COLOR -> colorId;
+                case WAREHOUSE -> warehouseId;
+            };
+        }
+    }
+
+    private static final class Cell {
+        final CellKey key;
+        long stockRows;
+        long quantity;
+        long reservedQuantity;
+        long consignedQuantity;
+        long lowStockRows;
+
+        Cell(CellKey key) {
+            this.key = key;
+        }
+
+        boolean matches(Long[] filter) {
+            for (CubeDimension dimension : CubeDimension.values()) {
+                Long wanted = filter[dimension.ordinal()];
+                if (wanted != null && !wanted.equals(key.value(dimension))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** An immutable computed cube, its cells bucketed by grouping mask. */
+    private static final class Cube {
+        private final List<List<Cell>> byMask = new ArrayList<>(CubeDimension.ALL + 1);
+        private final Map<Long, String> categories;
+        private final Map<Long, String> brands;
+        private final Map<Long, String> colors;
+        private final Map<Long, String> warehouses;
+        private final long generation;
+        private final LocalDateTime computedAt;
+        private final int size;
+
+        Cube(Collection<Cell> cells, Map<Long, String> categories, Map<Long, String> brands,
+             Map<Long, String> colors, Map<Long, String> warehouses, long generation, LocalDateTime computedAt) {
+            for (int mask = 0; mask <= CubeDimension.ALL; mask++) {
+                byMask.add(new ArrayList<>());
+            }
+            for (Cell cell : cells) {
+                byMask.get(cell.key.mask()).add(cell);
+            }
+            this.categories = categories;
+            this.brands = brands;
+            this.colors = colors;
+            this.warehouses = warehouses;
+            this.generation = generation;
+            this.computedAt = computedAt;
+            this.size = cells.size();
+        }
+
+        List<Cell> cells(int mask) {
+            return byMask.get(mask);
+        }
+
+        int size() {
+            return size;
+        }
+
+        InventoryCubeDto.Row toRow(Cell cell) {
+            CellKey key = cell.key;
+            return new InventoryCubeDto.Row(
+                    key.categoryId(), label(categories, key.categoryId()),
+                    key.brandId(), label(brands, key.brandId()),
+                    key.colorId(), label(colors, key.colorId()),
+                    key.warehouseId(), label(warehouses, key.warehouseId()),
+                    cell.stockRows, cell.quantity, cell.reservedQuantity, cell.consignedQuantity,
+                    cell.quantity - cell.reservedQuantity - cell.consignedQuantity, cell.lowStockRows);
+        }
+
+        private static String label(Map<Long, String> names, Long id) {
+            return id != null ? names.get(id) : null;
+        }
+    }
+}
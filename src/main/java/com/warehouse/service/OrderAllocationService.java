@@ -0,0 +1,388 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.AllocationBatchRequest;
+import com.warehouse.dto.AllocationBatchResultDto;
+import com.warehouse.dto.FulfilmentRequest;
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Stock;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.inventory.StockLockManager;
+import com.warehouse.metrics.StockMovement;
+import com.warehouse.metrics.WarehouseMetrics;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reserves batches of multi-line orders, each order completely or not at all.
+ * <p>
+ * Orders that share a product are chained into one partition (a union-find over product ids) and
+ * run in batch order on one worker. Partitions run in parallel on {@code app.allocation.workers}
+ * threads, so orders for different SKUs never wait for each other. Each order runs in its own
+ * transaction. It locks every active stock row of its products with SELECT ... FOR UPDATE in
+ * stock id order, so it cannot deadlock with another locker that follows the same order. It then
+ * picks warehouses on the locked values with {@link WarehouseSetSearch}: the fewest warehouses
+ * that cover the whole order, then the most headroom.
+ */
+@Service
+public class OrderAllocationService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAllocationService.class);
+    private static final int DEFAULT_SPLITS = 2;
+
+    private final ProductRepository productRepository;
+    private final StockRepository stockRepository;
+    private final StockLockManager stockLocks;
+    private final WarehouseMetrics warehouseMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate orderTransaction;
+    private final MeterRegistry registry;
+    private final Timer batchTimer;
+    private final int workerCount;
+    private final int maxOrders;
+
+    private volatile ExecutorService workers;
+
+    @Autowired
+    public OrderAllocationService(ProductRepository productRepository,
+                                  StockRepository stockRepository,
+                                  StockLockManager stockLocks,
+                                  WarehouseMetrics warehouseMetrics,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry registry,
+                                  @Value("${app.allocation.workers:0}") int workers,
+                                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                  @Value("${app.allocation.max-orders:1000}") int maxOrders) {
+        this.productRepository = productRepository;
+        this.stockRepository = stockRepository;
+        this.stockLocks = stockLocks;
+        this.warehouseMetrics = warehouseMetrics;
+        this.eventPublisher = eventPublisher;
+        this.orderTransaction = new TransactionTemplate(transactionManager);
+        this.orderTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.registry = registry;
+        this.workerCount = workers > 0 ? workers : defaultWorkers(poolSize);
+        this.maxOrders = maxOrders;
+        this.batchTimer = Timer.builder("warehouse.allocation.batch")
+                .description("Time to allocate one batch of orders")
+                .register(registry);
+    }
+
+    public AllocationBatchResultDto allocate(AllocationBatchRequest request) {
+        long started = System.nanoTime();
+        if (request == null || request.getOrders() == null || request.getOrders().isEmpty()) {
+            throw new RuntimeException("At least one order is required");
+        }
+        if (request.getOrders().size() > maxOrders) {
+            throw new RuntimeException("A batch can have at most " + maxOrders + " orders");
+        }
+        int maxSplits = request.getMaxSplits() != null ? request.getMaxSplits() : DEFAULT_SPLITS;
+        if (maxSplits < 1 || maxSplits > WarehouseSetSearch.MAX_SPLITS) {
+            throw new RuntimeException("maxSplits must be between 1 and " + WarehouseSetSearch.MAX_SPLITS);
+        }
+        ExecutorService pool = workers;
+        if (pool == null) {
+            throw new RuntimeException("Order allocation is not running");
+        }
+
+        List<AllocationBatchRequest.Order> orders = request.getOrders();
+        AllocationBatchResultDto.OrderResult[] results = new AllocationBatchResultDto.OrderResult[orders.size()];
+        List<PreparedOrder> prepared = prepare(orders, results);
+
+        Map<Long, long[]> stockIdsByProduct = stockIdsByProduct(prepared);
+        List<List<PreparedOrder>> partitions = partition(prepared);
+
+        List<Future<?>> running = new ArrayList<>(partitions.size());
+        for (List<PreparedOrder> partition : partitions) {
+            running.add(pool.submit(() -> {
+                for (PreparedOrder order : partition) {
+                    results[order.index()] = allocateOrder(order, stockIdsByProduct, maxSplits);
+                }
+            }));
+        }
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while allocating orders", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Order allocation failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        int allocated = 0;
+        for (AllocationBatchResultDto.OrderResult result : results) {
+            if (result.isAllocated()) {
+                allocated++;
+            }
+        }
+        int rejected = results.length - allocated;
+        long elapsedNanos = System.nanoTime() - started;
+        batchTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        count("allocated", allocated);
+        count("rejected", rejected);
+        double ordersPerSecond = results.length / Math.max(elapsedNanos / 1e9, 1e-9);
+        return new AllocationBatchResultDto(Arrays.asList(results), allocated, rejected, partitions.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), ordersPerSecond);
+    }
+
+    @Override
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "order-allocation-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void stop() {
+        ExecutorService pool = workers;
+        workers = null;
+        if (pool != null) {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return workers != null;
+    }
+
+    // Resolves SKUs and merges lines per product; orders that cannot be resolved are rejected here
+    private List<PreparedOrder> prepare(List<AllocationBatchRequest.Order> orders,
+                                        AllocationBatchResultDto.OrderResult[] results) {
+        List<Long> ids = new ArrayList<>();
+        List<String> skus = new ArrayList<>();
+        for (AllocationBatchRequest.Order order : orders) {
+            if (order != null && order.getLines() != null) {
+                for (FulfilmentRequest.Line line : order.getLines()) {
+                    if (line != null && line.getProductId() != null) {
+                        ids.add(line.getProductId());
+                    } else if (line != null && line.getSku() != null) {
+                        skus.add(line.getSku().trim());
+                    }
+                }
+            }
+        }
+        Map<String, Long> idsBySku = new HashMap<>();
+        Map<Long, Boolean> known = new HashMap<>();
+        // IN () is not valid SQL; a placeholder keeps the query simple
+        for (ProductRepository.ProductKey key : productRepository.findKeys(
+                ids.isEmpty() ? List.of(-1L) : ids, skus.isEmpty() ? List.of("") : skus)) {
+            known.put(key.getId(), Boolean.TRUE);
+            idsBySku.put(key.getSku(), key.getId());
+        }
+
+        List<PreparedOrder> prepared = new ArrayList<>(orders.size());
+        for (int index = 0; index < orders.size(); index++) {
+            AllocationBatchRequest.Order order = orders.get(index);
+            String orderRef = order != null && order.getOrderRef() != null ? order.getOrderRef() : "#" + index;
+            if (order == null || order.getLines() == null || order.getLines().isEmpty()) {
+                results[index] = rejected(orderRef, "Order has no lines");
+                continue;
+            }
+            Map<Long, Integer> wanted = new LinkedHashMap<>();
+            String problem = null;
+            for (FulfilmentRequest.Line line : order.getLines()) {
+                Long productId = line == null ? null
+                        : line.getProductId() != null ? line.getProductId()
+                        : line.getSku() != null ? idsBySku.get(line.getSku().trim()) : null;
+                if (productId == null || !known.containsKey(productId)) {
+                    problem = line == null || (line.getProductId() == null && line.getSku() == null)
+                            ? "Product id or SKU is required on every line"
+                            : "Product not found: " + (line.getProductId() != null ? line.getProductId() : line.getSku());
+                    break;
+                }
+                if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                    problem = "Quantity must be greater than 0 for product " + productId;
+                    break;
+                }
+                wanted.merge(productId, line.getQuantity(), Integer::sum);
+            }
+            if (problem != null) {
+                results[index] = rejected(orderRef, problem);
+                continue;
+            }
+            prepared.add(new PreparedOrder(index, orderRef,
+                    wanted.keySet().stream().mapToLong(Long::longValue).toArray(),
+                    wanted.values().stream().mapToInt(Integer::intValue).toArray()));
+        }
+        return prepared;
+    }
+
+    // Row ids only; the values are read again under lock
+    private Map<Long, long[]> stockIdsByProduct(List<PreparedOrder> orders) {
+        TreeSet<Long> productIds = new TreeSet<>();
+        for (PreparedOrder order : orders) {
+            for (long productId : order.productIds()) {
+                productIds.add(productId);
+            }
+        }
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (StockLevelRow row : stockRepository.findActiveStockLevelsByProductIds(productIds)) {
+                grouped.computeIfAbsent(row.productId(), id -> new ArrayList<>()).add(row.stockId());
+            }
+        }
+        Map<Long, long[]> stockIds = new HashMap<>();
+        grouped.forEach((productId, ids) -> stockIds.put(productId, ids.stream().mapToLong(Long::longValue).toArray()));
+        return stockIds;
+    }
+
+    // Orders connected through a shared product end up in the same partition, in batch order
+    private static List<List<PreparedOrder>> partition(List<PreparedOrder> orders) {
+        Map<Long, Integer> firstOrderOfProduct = new HashMap<>();
+        int[] parent = new int[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            parent[i] = i;
+            for (long productId : orders.get(i).productIds()) {
+                Integer other = firstOrderOfProduct.putIfAbsent(productId, i);
+                if (other != null) {
+                    parent[find(parent, i)] = find(parent, other);
+                }
+            }
+        }
+        Map<Integer, List<PreparedOrder>> byRoot = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            byRoot.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(orders.get(i));
+        }
+        // Largest partitions first so they do not end up running alone at the end
+        List<List<PreparedOrder>> partitions = new ArrayList<>(byRoot.values());
+        partitions.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        return partitions;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private AllocationBatchResultDto.OrderResult allocateOrder(PreparedOrder order, Map<Long, long[]> stockIdsByProduct,
+                                                               int maxSplits) {
+        TreeSet<Long> stockIds = new TreeSet<>();
+        for (long productId : order.productIds()) {
+            for (long stockId : stockIdsByProduct.getOrDefault(productId, new long[0])) {
+                stockIds.add(stockId);
+            }
+        }
+        if (stockIds.isEmpty()) {
+            return rejected(order.orderRef(), "None of the products is stocked in an active warehouse");
+        }
+        try {
+            return orderTransaction.execute(tx -> reserve(order, new ArrayList<>(stockIds), maxSplits));
+        } catch (RuntimeException e) {
+            log.debug("Order {} not allocated: {}", order.orderRef(), e.getMessage());
+            return rejected(order.orderRef(), e.getMessage());
+        }
+    }
+
+    private AllocationBatchResultDto.OrderResult reserve(PreparedOrder order, List<Long> stockIds, int maxSplits) {
+        List<Stock> rows = stockLocks.lockStocks(stockIds);
+
+        Map<Long, Integer> lineOf = new HashMap<>();
+        for (int i = 0; i < order.productIds().length; i++) {
+            lineOf.put(order.productIds()[i], i);
+        }
+        Map<Long, Integer> warehouseOf = new LinkedHashMap<>();
+        for (Stock row : rows) {
+            warehouseOf.putIfAbsent(row.getWarehouse().getId(), warehouseOf.size());
+        }
+        int lines = order.productIds().length;
+        Stock[][] cells = new Stock[warehouseOf.size()][lines];
+        int[][] available = new int[warehouseOf.size()][lines];
+        for (Stock row : rows) {
+            int w = warehouseOf.get(row.getWarehouse().getId());
+            int i = lineOf.get(row.getProduct().getId());
+            cells[w][i] = row;
+            available[w][i] = Math.max(0, row.getAvailableQuantity());
+        }
+
+        WarehouseSetSearch.Option best = WarehouseSetSearch.best(available, order.quantities(), maxSplits);
+        if (best == null) {
+            throw new RuntimeException("Not enough available stock within " + maxSplits + " warehouse(s)");
+        }
+        int[] members = best.members();
+        int[][] take = WarehouseSetSearch.allocate(best, available, order.quantities());
+        List<AllocationBatchResultDto.Allocation> allocations = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            for (int k = 0; k < members.length; k++) {
+                int units = take[i][k];
+                if (units == 0) {
+                    continue;
+                }
+                Stock stock = cells[members[k]][i];
+                stock.setReservedQuantity(stock.getReservedQuantity() + units);
+                stockRepository.save(stock);
+                eventPublisher.publishEvent(StockChangedEvent.committed(stock, 0, units, 0));
+                warehouseMetrics.recordStockMovement(StockMovement.RESERVED, units);
+                allocations.add(new AllocationBatchResultDto.Allocation(order.productIds()[i],
+                        stock.getWarehouse().getId(), stock.getId(), units));
+            }
+        }
+        return new AllocationBatchResultDto.OrderResult(order.orderRef(), true, null, members.length, allocations);
+    }
+
+    /**
+     * Every worker holds a pooled connection while its order's transaction runs, on top of the
+     * caller's own. A quarter of the pool per batch leaves room for the two bulk requests
+     * admission control lets through at once and for ordinary reads and writes.
+     */
+    static int defaultWorkers(int poolSize) {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize / 4));
+    }
+
+    private static AllocationBatchResultDto.OrderResult rejected(String orderRef, String reason) {
+        return new AllocationBatchResultDto.OrderResult(orderRef, false, reason, 0, List.of());
+    }
+
+    private void count(String outcome, int orders) {
+        if (orders > 0) {
+            Counter.builder("warehouse.allocation.orders")
+                    .description("Orders processed by batch allocation")
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .increment(orders);
+        }
+    }
+
+    private record PreparedOrder(int index, String orderRef, long[] productIds, int[] quantities) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.warehouse.service;
+
+import com.warehouse.event.ProductChangedEvent;
+import com.warehouse.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-mostly table of per-product shipping dimensions held in parallel primitive arrays
+ * sorted by product id. Rebuilt lazily after any committed product change.
+ */
+@Component
+public class ProductDimensionCache {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate primaryTransaction;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile DimensionTable table;
+
+    @Autowired
+    public ProductDimensionCache(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        // Loaded in a read-write transaction so it always hits the primary; a lagging read
+        // replica would otherwise pin stale dimensions until the next product change
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public DimensionTable table() {
+        DimensionTable current = table;
+        if (current == null) {
+            synchronized (this) {
+                current = table;
+                if (current == null) {
+                    long loadedAt = generation.get();
+                    current = primaryTransaction.execute(tx -> DimensionTable.from(productRepository.findAllShippingDimensions()));
+                    // Only publish if no product changed while we were loading
+                    if (generation.get() == loadedAt) {
+                        table = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        table = null;
+    }
+
+    public static final class DimensionTable {
+
+        private final long[] productIds;
+        private final String[] skus;
+        private final double[] desi;
+        private final long[] rateKurus;
+
+        private DimensionTable(long[] productIds, String[] skus, double[] desi, long[] rateKurus) {
+            this.productIds = productIds;
+            this.skus = skus;
+            this.desi = desi;
+            this.rateKurus = rateKurus;
+        }
+
+        static DimensionTable from(List<ProductRepository.ShippingDimensions> rows) {
+            int n = rows.size();
+            long[] ids = new long[n];
+            String[] skus = new String[n];
+            double[] desi = new double[n];
+            long[] rates = new long[n];
+            for (int i = 0; i < n; i++) {
+                ProductRepository.ShippingDimensions row = rows.get(i);
+                ids[i] = row.getId();
+                skus[i] = row.getSku();
+                desi[i] = row.getDesi() != null ? row.getDesi() : 0.0;
+                rates[i] = toKurus(row.getShippingRate());
+            }
+            return new DimensionTable(ids, skus, desi, rates);
+        }
+
+        private static long toKurus(BigDecimal rate) {
+            if (rate == null) {
+                return 0L;
+            }
+            return rate.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+
+        /** Returns the slot of the product, or a negative value if it is unknown. */
+        public int indexOf(long productId) {
+            return Arrays.binarySearch(productIds, productId);
+        }
+
+        public String sku(int index) {
+            return skus[index];
+        }
+
+        public double desi(int index) {
+            return desi[index];
+        }
+
+        /** Shipping rate per desi in kuruş (1/100 TL). */
+        public long rateKurus(int index) {
+            return rateKurus[index];
+        }
+
+        public int size() {
+            return productIds.length;
+        }
+    }
+
+}
@@ -4,11 +4,13 @@ import com.warehouse.entity.Product;
 import com.warehouse.entity.Category;
 import com.warehouse.entity.Brand;
 import com.warehouse.entity.Color;
+import com.warehouse.event.ProductChangedEvent;
 import com.warehouse.repository.ProductRepository;
 import com.warehouse.repository.CategoryRepository;
 import com.warehouse.repository.BrandRepository;
 import com.warehouse.repository.ColorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -22,36 +24,48 @@ public class ProductService {
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final ColorRepository colorRepository;
+    private final CatalogCounterService catalogCounterService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
-                          BrandRepository brandRepository, ColorRepository colorRepository) {
+                          BrandRepository brandRepository, ColorRepository colorRepository,
+                          CatalogCounterService catalogCounterService,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.brandRepository = brandRepository;
         this.colorRepository = colorRepository;
+        this.catalogCounterService = catalogCounterService;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Product> getAllActiveProducts() {
         return productRepository.findAllActive();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Product> getProductById(Long id) {
         return productRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Product> getProductByIdWithStocks(Long id) {
         return productRepository.findByIdWithStocks(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Product> getProductBySku(String sku) {
         return productRepository.findBySku(sku);
     }
 
+    @Transactional(readOnly = true)
     public List<Product> getProductsByCategory(Long categoryId) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + categoryId));
@@ -59,6 +73,7 @@ public class ProductService {
         return productRepository.findByCategoryAndActive(category);
     }
 
+    @Transactional(readOnly = true)
     public List<Product> searchProductsByName(String name) {
         return productRepository.findByNameContainingIgnoreCaseAndActive(name);
     }
@@ -94,12 +109,16 @@ public class ProductService {
         } else {
             product.setColor(null);
         }
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCounterService.productCreated(saved);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
+        return saved;
     }
 
     public Product updateProduct(Long id, Product productDetails) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        CatalogCounterService.ProductKeys before = CatalogCounterService.ProductKeys.of(product);
 
         // Validate category exists if being changed
         if (productDetails.getCategory() != null && productDetails.getCategory().getId() != null) {
@@ -148,7 +167,10 @@ public class ProductService {
         product.setShippingRate(productDetails.getShippingRate());
         product.setActive(productDetails.isActive());
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCounterService.productChanged(before, saved);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
+        return saved;
     }
 
     public void deleteProduct(Long id) {
@@ -159,29 +181,37 @@ public class ProductService {
             throw new RuntimeException("Stok içeren ürün silinemez");
         }
 
+        catalogCounterService.productDeleted(product);
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 
     public void deactivateProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
+        CatalogCounterService.ProductKeys before = CatalogCounterService.ProductKeys.of(product);
         product.setActive(false);
         productRepository.save(product);
+        catalogCounterService.productChanged(before, product);
     }
 
     public void activateProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
+        CatalogCounterService.ProductKeys before = CatalogCounterService.ProductKeys.of(product);
         product.setActive(true);
         productRepository.save(product);
+        catalogCounterService.productChanged(before, product);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsBySku(String sku) {
         return productRepository.existsBySku(sku);
     }
 
+    @Transactional(readOnly = true)
     public List<Product> filterProductsByBrandAndColor(Long brandId, Long colorId) {
         Brand brand = null;
         Color color = null;
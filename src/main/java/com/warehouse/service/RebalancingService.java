@@ -0,0 +1,290 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.ActiveTransferRow;
+import com.warehouse.dto.RebalanceExecuteRequest;
+import com.warehouse.dto.RebalancePlanDto;
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.enums.TransferStatus;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.repository.StockTransferRepository;
+import com.warehouse.repository.WarehouseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Proposes transfers that move surplus stock to warehouses below their minimum level.
+ * <p>
+ * Stock rows are streamed once into primitive arrays grouped by product, then each product
+ * is planned independently on the fork/join pool. Per product the planner serves the largest
+ * deficits first and prefers a single donor that can cover a deficit on its own (best fit),
+ * falling back to the largest donor, which keeps the number of transfers close to minimal.
+ * Active transfers are taken into account: inbound quantities count towards the destination
+ * and PENDING outbound quantities are not offered again.
+ */
+@Service
+@Transactional
+public class RebalancingService {
+
+    private static final int PRODUCTS_PER_TASK = 256;
+    private static final String DEFAULT_NOTES = "Created by stock rebalancing plan";
+
+    private final StockRepository stockRepository;
+    private final StockTransferRepository stockTransferRepository;
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final StockTransferService stockTransferService;
+
+    @Autowired
+    public RebalancingService(StockRepository stockRepository,
+                              StockTransferRepository stockTransferRepository,
+                              ProductRepository productRepository,
+                              WarehouseRepository warehouseRepository,
+                              StockTransferService stockTransferService) {
+        this.stockRepository = stockRepository;
+        this.stockTransferRepository = stockTransferRepository;
+        this.productRepository = productRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.stockTransferService = stockTransferService;
+    }
+
+    @Transactional(readOnly = true)
+    public RebalancePlanDto planRebalance() {
+        long started = System.nanoTime();
+
+        StockLevels levels = loadStockLevels();
+        PlanChunk plan = ForkJoinPool.commonPool().invoke(new PlanTask(levels, 0, levels.groups));
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return new RebalancePlanDto(plan.transfers, levels.rows, levels.groups, plan.unitsMoved, plan.unmetUnits, elapsedMs);
+    }
+
+    /**
+     * Creates the planned transfers through {@link StockTransferService#createTransfer}, so each
+     * one passes the same checks as a transfer created through the API. If any is rejected the
+     * whole execution rolls back.
+     */
+    public List<StockTransfer> executeRebalance(RebalanceExecuteRequest request) {
+        RebalancePlanDto plan = planRebalance();
+
+        List<StockTransfer> created = new ArrayList<>(plan.getTransfers().size());
+        for (RebalancePlanDto.ProposedTransfer proposed : plan.getTransfers()) {
+            StockTransfer transfer = new StockTransfer();
+            transfer.setProduct(productRepository.getReferenceById(proposed.getProductId()));
+            transfer.setSourceWarehouse(warehouseRepository.getReferenceById(proposed.getSourceWarehouseId()));
+            transfer.setDestinationWarehouse(warehouseRepository.getReferenceById(proposed.getDestinationWarehouseId()));
+            transfer.setQuantity(proposed.getQuantity());
+            transfer.setDriverName(request.getDriverName());
+            transfer.setDriverTcId(request.getDriverTcId());
+            transfer.setDriverPhone(request.getDriverPhone());
+            transfer.setVehiclePlate(request.getVehiclePlate());
+            transfer.setNotes(request.getNotes() != null ? request.getNotes() : DEFAULT_NOTES);
+            created.add(stockTransferService.createTransfer(transfer));
+        }
+        return created;
+    }
+
+    private StockLevels loadStockLevels() {
+        Map<LaneKey, Integer> inbound = new HashMap<>();
+        Map<LaneKey, Integer> pendingOutbound = new HashMap<>();
+        for (ActiveTransferRow row : stockTransferRepository.findActiveTransferRows()) {
+            inbound.merge(new LaneKey(row.productId(), row.destinationWarehouseId()), row.quantity(), Integer::sum);
+            // IN_TRANSIT quantities are already reserved and therefore excluded from available
+            if (row.status() == TransferStatus.PENDING) {
+                pendingOutbound.merge(new LaneKey(row.productId(), row.sourceWarehouseId()), row.quantity(), Integer::sum);
+            }
+        }
+
+        StockLevels levels = new StockLevels();
+        try (Stream<StockLevelRow> rows = stockRepository.streamActiveStockLevelsByProduct()) {
+            rows.forEach(row -> {
+                int inboundQty = 0;
+                int pendingOutQty = 0;
+                if (!inbound.isEmpty() || !pendingOutbound.isEmpty()) {
+                    LaneKey key = new LaneKey(row.productId(), row.warehouseId());
+                    inboundQty = inbound.getOrDefault(key, 0);
+                    pendingOutQty = pendingOutbound.getOrDefault(key, 0);
+                }
+                levels.add(row.productId(), row.warehouseId(), balanceOf(row, inboundQty, pendingOutQty));
+            });
+        }
+        levels.seal();
+        return levels;
+    }
+
+    /**
+     * Positive: units the warehouse can give away without dropping below its minimum.
+     * Negative: units missing to reach the minimum. Zero: nothing to do.
+     */
+    private static int balanceOf(StockLevelRow row, int inbound, int pendingOutbound) {
+        int quantity = row.quantityOrZero();
+        int minLevel = row.minStockLevelOrZero();
+        int projected = quantity + inbound;
+        if (projected < minLevel) {
+            return projected - minLevel;
+        }
+        int surplus = Math.min(quantity - minLevel, row.availableQuantity() - pendingOutbound);
+        return Math.max(surplus, 0);
+    }
+
+    private record LaneKey(long productId, long warehouseId) {
+    }
+
+    /**
+     * Stock rows packed into parallel arrays; rows of one product are contiguous and
+     * group g spans [groupStart[g], groupStart[g + 1]).
+     */
+    private static final class StockLevels {
+        long[] warehouseIds = new long[1024];
+        int[] balance = new int[1024];
+        long[] groupProductIds = new long[256];
+        int[] groupStart = new int[257];
+        int rows;
+        int groups;
+
+        void add(long productId, long warehouseId, int rowBalance) {
+            if (groups == 0 || groupProductIds[groups - 1] != productId) {
+                if (groups == groupProductIds.length) {
+                    groupProductIds = Arrays.copyOf(groupProductIds, groups * 2);
+                    groupStart = Arrays.copyOf(groupStart, groups * 2 + 1);
+                }
+                groupProductIds[groups] = productId;
+                groupStart[groups] = rows;
+                groups++;
+            }
+            if (rows == warehouseIds.length) {
+                warehouseIds = Arrays.copyOf(warehouseIds, rows * 2);
+                balance = Arrays.copyOf(balance, rows * 2);
+            }
+            warehouseIds[rows] = warehouseId;
+            balance[rows] = rowBalance;
+            rows++;
+        }
+
+        void seal() {
+            groupStart[groups] = rows;
+        }
+    }
+
+    private static final class PlanChunk {
+        final List<RebalancePlanDto.ProposedTransfer> transfers = new ArrayList<>();
+        long unitsMoved;
+        long unmetUnits;
+
+        PlanChunk merge(PlanChunk other) {
+            transfers.addAll(other.transfers);
+            unitsMoved += other.unitsMoved;
+            unmetUnits += other.unmetUnits;
+            return this;
+        }
+    }
+
+    private static final class PlanTask extends RecursiveTask<PlanChunk> {
+        private final StockLevels levels;
+        private final int fromGroup;
+        private final int toGroup;
+
+        PlanTask(StockLevels levels, int fromGroup, int toGroup) {
+            this.levels = levels;
+            this.fromGroup = fromGroup;
+            this.toGroup = toGroup;
+        }
+
+        @Override
+        protected PlanChunk compute() {
+            if (toGroup - fromGroup <= PRODUCTS_PER_TASK) {
+                PlanChunk chunk = new PlanChunk();
+                for (int g = fromGroup; g < toGroup; g++) {
+                    planProduct(g, chunk);
+                }
+                return chunk;
+            }
+            int mid = (fromGroup + toGroup) >>> 1;
+            PlanTask left = new PlanTask(levels, fromGroup, mid);
+            left.fork();
+            PlanChunk right = new PlanTask(levels, mid, toGroup).compute();
+            return left.join().merge(right);
+        }
+
+        private void planProduct(int group, PlanChunk out) {
+            int from = levels.groupStart[group];
+            int to = levels.groupStart[group + 1];
+
+            int donorCount = 0;
+            int receiverCount = 0;
+            for (int i = from; i < to; i++) {
+                if (levels.balance[i] > 0) {
+                    donorCount++;
+                } else if (levels.balance[i] < 0) {
+                    receiverCount++;
+                }
+            }
+            if (receiverCount == 0) {
+                return;
+            }
+
+            int[] donorRows = new int[donorCount];
+            int[] donorLeft = new int[donorCount];
+            // (deficit << 32 | row) so a plain sort orders receivers by deficit
+            long[] receivers = new long[receiverCount];
+            int d = 0;
+            int r = 0;
+            for (int i = from; i < to; i++) {
+                int b = levels.balance[i];
+                if (b > 0) {
+                    donorRows[d] = i;
+                    donorLeft[d++] = b;
+                } else if (b < 0) {
+                    receivers[r++] = ((long) -b << 32) | i;
+                }
+            }
+            Arrays.sort(receivers);
+
+            long productId = levels.groupProductIds[group];
+            for (int k = receiverCount - 1; k >= 0; k--) {
+                int need = (int) (receivers[k] >>> 32);
+                int receiverRow = (int) receivers[k];
+
+                while (need > 0) {
+                    int bestFit = -1;
+                    int largest = -1;
+                    for (int j = 0; j < donorCount; j++) {
+                        int left = donorLeft[j];
+                        if (left <= 0) {
+                            continue;
+                        }
+                        if (left >= need && (bestFit < 0 || left < donorLeft[bestFit])) {
+                            bestFit = j;
+                        }
+                        if (largest < 0 || left > donorLeft[largest]) {
+                            largest = j;
+                        }
+                    }
+                    int donor = bestFit >= 0 ? bestFit : largest;
+                    if (donor < 0) {
+                        break;
+                    }
+                    int moved = Math.min(need, donorLeft[donor]);
+                    donorLeft[donor] -= moved;
+                    need -= moved;
+                    out.unitsMoved += moved;
+                    out.transfers.add(new RebalancePlanDto.ProposedTransfer(productId,
+                            levels.warehouseIds[donorRows[donor]], levels.warehouseIds[receiverRow], moved));
+                }
+                out.unmetUnits += need;
+            }
+        }
+    }
+}
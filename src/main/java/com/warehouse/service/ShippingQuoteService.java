@@ -0,0 +1,131 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.ShippingQuoteDto;
+import com.warehouse.dto.ShippingQuoteRequest;
+import com.warehouse.entity.Product;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockTransferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@Transactional
+public class ShippingQuoteService {
+
+    private final ProductRepository productRepository;
+    private final StockTransferRepository stockTransferRepository;
+    private final ProductDimensionCache dimensionCache;
+
+    @Autowired
+    public ShippingQuoteService(ProductRepository productRepository,
+                                StockTransferRepository stockTransferRepository,
+                                ProductDimensionCache dimensionCache) {
+        this.productRepository = productRepository;
+        this.stockTransferRepository = stockTransferRepository;
+        this.dimensionCache = dimensionCache;
+    }
+
+    @Transactional(readOnly = true)
+    public ShippingQuoteDto quote(ShippingQuoteRequest request) {
+        if (request == null || request.getLines() == null || request.getLines().isEmpty()) {
+            throw new RuntimeException("At least one line is required");
+        }
+
+        int n = request.getLines().size();
+        long[] productIds = new long[n];
+        int[] quantities = new int[n];
+        for (int i = 0; i < n; i++) {
+            ShippingQuoteRequest.Line line = request.getLines().get(i);
+            if (line == null || line.getProductId() == null) {
+                throw new RuntimeException("Product is required on every line");
+            }
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new RuntimeException("Quantity must be greater than 0 for product " + line.getProductId());
+            }
+            productIds[i] = line.getProductId();
+            quantities[i] = line.getQuantity();
+        }
+        return quote(productIds, quantities);
+    }
+
+    @Transactional(readOnly = true)
+    public ShippingQuoteDto quoteTransfers(List<Long> transferIds) {
+        if (transferIds == null || transferIds.isEmpty()) {
+            throw new RuntimeException("At least one transfer id is required");
+        }
+
+        List<StockTransfer> transfers = stockTransferRepository.findAllById(transferIds);
+        if (transfers.size() != transferIds.stream().distinct().count()) {
+            throw new RuntimeException("One or more transfers were not found");
+        }
+
+        long[] productIds = new long[transfers.size()];
+        int[] quantities = new int[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            StockTransfer transfer = transfers.get(i);
+            productIds[i] = transfer.getProduct().getId();
+            quantities[i] = transfer.getQuantity();
+        }
+        return quote(productIds, quantities);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Product> getProductsByDesiRange(Double minDesi, Double maxDesi) {
+        double min = minDesi != null ? minDesi : 0.0;
+        double max = maxDesi != null ? maxDesi : Double.MAX_VALUE;
+        if (min > max) {
+            throw new RuntimeException("Minimum desi cannot be greater than maximum desi");
+        }
+        return productRepository.findByDesiRange(min, max);
+    }
+
+    /**
+     * Fills the desi column for rows written before it existed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillDesi() {
+        if (productRepository.backfillDesi() > 0) {
+            dimensionCache.invalidate();
+        }
+    }
+
+    // Single pass over the lines; money is accumulated in kuruş to stay exact without BigDecimal per line
+    private ShippingQuoteDto quote(long[] productIds, int[] quantities) {
+        ProductDimensionCache.DimensionTable table = dimensionCache.table();
+
+        List<ShippingQuoteDto.LineDto> lines = new ArrayList<>(productIds.length);
+        List<Long> unknown = new ArrayList<>();
+        long totalQuantity = 0;
+        double totalDesi = 0.0;
+        long totalCostKurus = 0;
+
+        for (int i = 0; i < productIds.length; i++) {
+            int slot = table.indexOf(productIds[i]);
+            if (slot < 0) {
+                unknown.add(productIds[i]);
+                continue;
+            }
+            double unitDesi = table.desi(slot);
+            long rateKurus = table.rateKurus(slot);
+            double lineDesi = unitDesi * quantities[i];
+            long lineCostKurus = Math.round(lineDesi * rateKurus);
+
+            totalQuantity += quantities[i];
+            totalDesi += lineDesi;
+            totalCostKurus += lineCostKurus;
+
+            lines.add(new ShippingQuoteDto.LineDto(productIds[i], table.sku(slot), quantities[i], unitDesi, lineDesi,
+                    BigDecimal.valueOf(rateKurus, 2), BigDecimal.valueOf(lineCostKurus, 2)));
+        }
+
+        return new ShippingQuoteDto(lines, totalQuantity, totalDesi, BigDecimal.valueOf(totalCostKurus, 2), unknown);
+    }
+}
@@ -1,16 +1,37 @@
 package com.warehouse.service;
 
+import com.warehouse.diagnostics.StockMutationEvent;
+import com.warehouse.dto.AvailabilityDto;
+import com.warehouse.dto.AvailableStockRow;
+import com.warehouse.dto.WarehouseShortfallRow;
 import com.warehouse.entity.Stock;
 import com.warehouse.entity.Product;
 import com.warehouse.entity.Warehouse;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.inventory.AvailabilityIndex;
+import com.warehouse.inventory.InventoryEngine;
+import com.warehouse.inventory.LowStockDetector;
+import com.warehouse.inventory.StockLockManager;
+import com.warehouse.metrics.HotKeyTracker;
+import com.warehouse.metrics.StockMovement;
+import com.warehouse.metrics.WarehouseMetrics;
 import com.warehouse.repository.StockRepository;
 import com.warehouse.repository.ProductRepository;
 import com.warehouse.repository.WarehouseRepository;
 import com.warehouse.repository.BrandRepository;
 import com.warehouse.repository.ColorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,29 +39,65 @@ import java.util.Optional;
 @Transactional
 public class StockService {
 
+    private static final int MAX_AVAILABLE_RESULTS = 1000;
+    private static final int DETACHED_VIEW_BATCH = 1000;
+
     private final StockRepository stockRepository;
     private final ProductRepository productRepository;
     private final WarehouseRepository warehouseRepository;
     private final BrandRepository brandRepository;
     private final ColorRepository colorRepository;
+    private final CatalogCounterService catalogCounterService;
+    private final WarehouseMetrics warehouseMetrics;
+    private final HotKeyTracker hotKeys;
+    private final InventoryEngine inventoryEngine;
+    private final AvailabilityIndex availabilityIndex;
+    private final LowStockDetector lowStockDetector;
+    private final StockLockManager stockLocks;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate primaryTransaction;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public StockService(StockRepository stockRepository,
                        ProductRepository productRepository,
                        WarehouseRepository warehouseRepository,
                        BrandRepository brandRepository,
-                       ColorRepository colorRepository) {
+                       ColorRepository colorRepository,
+                       CatalogCounterService catalogCounterService,
+                       WarehouseMetrics warehouseMetrics,
+                       HotKeyTracker hotKeys,
+                       InventoryEngine inventoryEngine,
+                       AvailabilityIndex availabilityIndex,
+                       LowStockDetector lowStockDetector,
+                       StockLockManager stockLocks,
+                       PlatformTransactionManager transactionManager,
+                       ApplicationEventPublisher eventPublisher) {
         this.stockRepository = stockRepository;
         this.productRepository = productRepository;
         this.warehouseRepository = warehouseRepository;
         this.brandRepository = brandRepository;
         this.colorRepository = colorRepository;
+        this.catalogCounterService = catalogCounterService;
+        this.warehouseMetrics = warehouseMetrics;
+        this.hotKeys = hotKeys;
+        this.inventoryEngine = inventoryEngine;
+        this.availabilityIndex = availabilityIndex;
+        this.lowStockDetector = lowStockDetector;
+        this.stockLocks = stockLocks;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        // Read-write so rows listed from the low-stock set come from the primary, like the set itself
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional(readOnly = true)
     public List<Stock> getAllStocks() {
         return stockRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Stock> getAllStocksFiltered(Long brandId, Long colorId, Long warehouseId) {
         var all = stockRepository.findAll();
         return all.stream().filter(s -> {
@@ -58,25 +115,39 @@ public class StockService {
         }).toList();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Stock> getStockById(Long id) {
-        return stockRepository.findById(id);
+        Stock cached = inventoryEngine.snapshot(id);
+        if (cached != null) {
+            hotKeys.recordStockAccess(cached);
+            return Optional.of(cached);
+        }
+        Optional<Stock> stock = stockRepository.findById(id);
+        stock.ifPresent(hotKeys::recordStockAccess);
+        return stock;
     }
 
+    @Transactional(readOnly = true)
     public List<Stock> getStocksByProduct(Long productId) {
+        hotKeys.recordStockAccess(productId, null);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
 
         return stockRepository.findByProduct(product);
     }
 
+    @Transactional(readOnly = true)
     public List<Stock> getStocksByWarehouse(Long warehouseId) {
+        hotKeys.recordStockAccess(null, warehouseId);
         Warehouse warehouse = warehouseRepository.findById(warehouseId)
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + warehouseId));
 
         return stockRepository.findByWarehouse(warehouse);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Stock> getStockByProductAndWarehouse(Long productId, Long warehouseId) {
+        hotKeys.recordStockAccess(productId, warehouseId);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
 
@@ -86,22 +157,86 @@ public class StockService {
         return stockRepository.findByProductAndWarehouse(product, warehouse);
     }
 
+    /**
+     * Served from the availability index without a transaction; falls back to a projection
+     * query while the index is building or when it does not hold the pair.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<AvailabilityDto> getAvailability(Long productId, Long warehouseId) {
+        hotKeys.recordStockAccess(productId, warehouseId);
+        int[] levels = new int[3];
+        if (availabilityIndex.read(productId, warehouseId, levels)) {
+            return Optional.of(AvailabilityDto.of(productId, warehouseId, levels[0], levels[1], levels[2]));
+        }
+        return stockRepository.findStockLevel(productId, warehouseId).map(AvailabilityDto::from);
+    }
+
+    /**
+     * Stock rows whose available quantity is within [min, max], filtered and sorted by the
+     * database on the indexed {@code available_quantity} column. Open bounds may be null.
+     */
+    @Transactional(readOnly = true)
+    public List<AvailableStockRow> getStocksByAvailableQuantity(Integer min, Integer max, Long warehouseId,
+                                                                Long productId, String sort, int limit) {
+        int from = min != null ? min : Integer.MIN_VALUE;
+        int to = max != null ? max : Integer.MAX_VALUE;
+        if (from > to) {
+            throw new RuntimeException("min cannot be greater than max");
+        }
+        Sort.Direction direction = Sort.Direction.fromOptionalString(sort)
+                .orElseThrow(() -> new RuntimeException("sort must be asc or desc"));
+        return stockRepository.findByAvailableQuantityBetween(from, to, warehouseId, productId,
+                PageRequest.of(0, resultLimit(limit), Sort.by(direction, "availableQuantity").and(Sort.by("id"))));
+    }
+
+    /**
+     * Stock rows with less available than their minimum level, largest shortfall first.
+     */
+    @Transactional(readOnly = true)
+    public List<AvailableStockRow> getAvailableBelowMinStockLevel(Long warehouseId, int limit) {
+        return stockRepository.findAvailableBelowMinStockLevel(warehouseId, PageRequest.of(0, resultLimit(limit)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<WarehouseShortfallRow> getWarehousesWithAvailableBelowMinStockLevel() {
+        return stockRepository.findWarehousesWithAvailableBelowMinStockLevel();
+    }
+
+    /**
+     * Served from the low-stock detector's live set; falls back to a query while it is loading
+     * or disabled.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Stock> getLowStockItems() {
+        if (lowStockDetector.isReady()) {
+            return detachedViews(lowStockDetector.lowStockIds());
+        }
         return stockRepository.findLowStockItems();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Stock> getOutOfStockItems() {
+        if (lowStockDetector.isReady()) {
+            return detachedViews(lowStockDetector.outOfStockIds());
+        }
         return stockRepository.findOutOfStockItems();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Stock> getLowStockItemsByWarehouse(Long warehouseId) {
+        hotKeys.recordStockAccess(null, warehouseId);
         Warehouse warehouse = warehouseRepository.findById(warehouseId)
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + warehouseId));
 
+        if (lowStockDetector.isReady()) {
+            return detachedViews(lowStockDetector.lowStockIds(warehouseId));
+        }
         return stockRepository.findLowStockItemsByWarehouse(warehouse);
     }
 
+    @Transactional(readOnly = true)
     public Long getTotalQuantityByProduct(Long productId) {
+        hotKeys.recordStockAccess(productId, null);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
 
@@ -109,7 +244,9 @@ public class StockService {
         return total != null ? total : 0L;
     }
 
+    @Transactional(readOnly = true)
     public Long getTotalQuantityByWarehouse(Long warehouseId) {
+        hotKeys.recordStockAccess(null, warehouseId);
         Warehouse warehouse = warehouseRepository.findById(warehouseId)
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + warehouseId));
 
@@ -118,6 +255,7 @@ public class StockService {
     }
 
     public Stock createStock(Stock stock) {
+        StockMutationEvent event = StockMutationEvent.start("create");
         // Validate product and warehouse exist
         if (stock.getProduct() == null || stock.getProduct().getId() == null) {
             throw new RuntimeException("Product is required");
@@ -133,21 +271,31 @@ public class StockService {
         Warehouse warehouse = warehouseRepository.findById(stock.getWarehouse().getId())
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + stock.getWarehouse().getId()));
 
-        // Check if stock already exists for this product-warehouse combination
-        Optional<Stock> existingStock = stockRepository.findByProductAndWarehouse(product, warehouse);
-        if (existingStock.isPresent()) {
+        // Check if stock already exists for this product-warehouse combination. Holding its stripe
+        // until commit makes a transfer completing into this warehouse wait instead of racing us.
+        if (stockLocks.lockProductStocks(product.getId(), List.of(warehouse.getId())).containsKey(warehouse.getId())) {
             throw new RuntimeException("Stock already exists for this product in the selected warehouse");
         }
 
         stock.setProduct(product);
         stock.setWarehouse(warehouse);
 
-        return stockRepository.save(stock);
+        Stock saved = stockRepository.save(stock);
+        eventPublisher.publishEvent(StockChangedEvent.committed(saved, quantityOf(saved), reservedOf(saved),
+                consignedOf(saved)));
+        catalogCounterService.stockQuantityChanged(product.getId(), quantityOf(saved));
+        warehouseMetrics.recordStockMovement(StockMovement.RECEIVED, quantityOf(saved));
+        hotKeys.recordStockAccess(saved);
+        event.finish(saved, quantityOf(saved));
+        return saved;
     }
 
     public Stock updateStock(Long id, Stock stockDetails) {
-        Stock stock = stockRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Stock not found with id: " + id));
+        StockMutationEvent event = StockMutationEvent.start("update");
+        Stock stock = loadForWrite(id);
+        int previousQuantity = quantityOf(stock);
+        int previousReserved = reservedOf(stock);
+        int previousConsigned = consignedOf(stock);
 
         // Validate and set new quantity
         if (stockDetails.getQuantity() != null) {
@@ -178,70 +326,184 @@ public class StockService {
             stock.setConsignedQuantity(stockDetails.getConsignedQuantity());
         }
 
-        return stockRepository.save(stock);
+        Stock saved = stockRepository.save(stock);
+        eventPublisher.publishEvent(StockChangedEvent.committed(saved, quantityOf(saved) - previousQuantity,
+                reservedOf(saved) - previousReserved, consignedOf(saved) - previousConsigned));
+        catalogCounterService.stockQuantityChanged(saved.getProduct().getId(), quantityOf(saved) - previousQuantity);
+        warehouseMetrics.recordAdjustment(quantityOf(saved) - previousQuantity);
+        hotKeys.recordStockAccess(saved);
+        event.finish(saved, quantityOf(saved) - previousQuantity);
+        return saved;
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Stock addToStock(Long stockId, Integer quantity) {
+        StockMutationEvent event = StockMutationEvent.start("add");
         if (quantity <= 0) {
             throw new RuntimeException("Quantity to add must be positive");
         }
 
-        Stock stock = stockRepository.findById(stockId)
-                .orElseThrow(() -> new RuntimeException("Stock not found with id: " + stockId));
-
-        stock.setQuantity(stock.getQuantity() + quantity);
-        return stockRepository.save(stock);
+        Stock saved = engine() ? inventoryEngine.add(stockId, quantity) : null;
+        if (saved != null) {
+            eventPublisher.publishEvent(StockChangedEvent.writeBehind(saved, quantity, 0, 0));
+        } else {
+            saved = writeTransaction.execute(tx -> {
+                Stock stock = loadForWrite(stockId);
+                stock.setQuantity(stock.getQuantity() + quantity);
+                Stock updated = stockRepository.save(stock);
+                eventPublisher.publishEvent(StockChangedEvent.committed(updated, quantity, 0, 0));
+                catalogCounterService.stockQuantityChanged(updated.getProduct().getId(), quantity);
+                return updated;
+            });
+        }
+        warehouseMetrics.recordStockMovement(StockMovement.RECEIVED, quantity);
+        hotKeys.recordStockAccess(saved);
+        event.finish(saved, quantity);
+        return saved;
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Stock removeFromStock(Long stockId, Integer quantity) {
+        StockMutationEvent event = StockMutationEvent.start("remove");
         if (quantity <= 0) {
             throw new RuntimeException("Quantity to remove must be positive");
         }
 
-        Stock stock = stockRepository.findById(stockId)
-                .orElseThrow(() -> new RuntimeException("Stock not found with id: " + stockId));
-
-        stock.setQuantity(stock.getQuantity() - quantity);
-        return stockRepository.save(stock);
+        Stock saved = engine() ? inventoryEngine.remove(stockId, quantity) : null;
+        if (saved != null) {
+            eventPublisher.publishEvent(StockChangedEvent.writeBehind(saved, -quantity, 0, 0));
+        } else {
+            saved = writeTransaction.execute(tx -> {
+                Stock stock = loadForWrite(stockId);
+                stock.setQuantity(stock.getQuantity() - quantity);
+                Stock updated = stockRepository.save(stock);
+                eventPublisher.publishEvent(StockChangedEvent.committed(updated, -quantity, 0, 0));
+                catalogCounterService.stockQuantityChanged(updated.getProduct().getId(), -quantity);
+                return updated;
+            });
+        }
+        warehouseMetrics.recordStockMovement(StockMovement.ISSUED, quantity);
+        hotKeys.recordStockAccess(saved);
+        event.finish(saved, quantity);
+        return saved;
     }
 
     public void deleteStock(Long id) {
-        Stock stock = stockRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Stock not found with id: " + id));
+        StockMutationEvent event = StockMutationEvent.start("delete");
+        Stock stock = loadForWrite(id);
 
+        eventPublisher.publishEvent(StockChangedEvent.deleted(stock));
+        catalogCounterService.stockQuantityChanged(stock.getProduct().getId(), -quantityOf(stock));
+        warehouseMetrics.recordAdjustment(-quantityOf(stock));
         stockRepository.delete(stock);
+        hotKeys.recordStockAccess(stock);
+        event.finish(stock, quantityOf(stock));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Stock reserveStock(Long stockId, Integer quantity) {
+        StockMutationEvent event = StockMutationEvent.start("reserve");
         if (quantity <= 0) {
             throw new RuntimeException("Quantity to reserve must be positive");
         }
 
-        Stock stock = stockRepository.findById(stockId)
-                .orElseThrow(() -> new RuntimeException("Stock not found with id: " + stockId));
-
-        Integer availableQuantity = stock.getAvailableQuantity();
-        if (availableQuantity < quantity) {
-            throw new RuntimeException("Insufficient available stock. Available: " + availableQuantity + ", Requested: " + quantity);
+        Stock saved = engine() ? inventoryEngine.reserve(stockId, quantity) : null;
+        if (saved != null) {
+            eventPublisher.publishEvent(StockChangedEvent.writeBehind(saved, 0, quantity, 0));
+        } else {
+            saved = writeTransaction.execute(tx -> {
+                Stock stock = loadForWrite(stockId);
+                Integer availableQuantity = stock.getAvailableQuantity();
+                if (availableQuantity < quantity) {
+                    throw new RuntimeException("Insufficient available stock. Available: " + availableQuantity + ", Requested: " + quantity);
+                }
+                stock.setReservedQuantity(stock.getReservedQuantity() + quantity);
+                eventPublisher.publishEvent(StockChangedEvent.committed(stock, 0, quantity, 0));
+                return stockRepository.save(stock);
+            });
         }
-
-        stock.setReservedQuantity(stock.getReservedQuantity() + quantity);
-        return stockRepository.save(stock);
+        warehouseMetrics.recordStockMovement(StockMovement.RESERVED, quantity);
+        hotKeys.recordStockAccess(saved);
+        event.finish(saved, quantity);
+        return saved;
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Stock releaseStock(Long stockId, Integer quantity) {
+        StockMutationEvent event = StockMutationEvent.start("release");
         if (quantity <= 0) {
             throw new RuntimeException("Quantity to release must be positive");
         }
 
-        Stock stock = stockRepository.findById(stockId)
+        Stock saved = engine() ? inventoryEngine.release(stockId, quantity) : null;
+        if (saved != null) {
+            eventPublisher.publishEvent(StockChangedEvent.writeBehind(saved, 0, -quantity, 0));
+        } else {
+            saved = writeTransaction.execute(tx -> {
+                Stock stock = loadForWrite(stockId);
+                if (stock.getReservedQuantity() < quantity) {
+                    throw new RuntimeException("Cannot release more than reserved quantity. Reserved: " + stock.getReservedQuantity() + ", Requested: " + quantity);
+                }
+                stock.setReservedQuantity(stock.getReservedQuantity() - quantity);
+                eventPublisher.publishEvent(StockChangedEvent.committed(stock, 0, -quantity, 0));
+                return stockRepository.save(stock);
+            });
+        }
+        warehouseMetrics.recordStockMovement(StockMovement.RELEASED, quantity);
+        hotKeys.recordStockAccess(saved);
+        event.finish(saved, quantity);
+        return saved;
+    }
+
+    /**
+     * Add, remove, reserve and release are served from memory when the inventory engine is on,
+     * unless the caller has a transaction open (an idempotent request, for example): engine
+     * updates cannot roll back with it, so those take the database path.
+     */
+    private boolean engine() {
+        return inventoryEngine.isEnabled() && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    // Takes the row away from the inventory engine and locks it for this transaction, so the
+    // absolute values saved here cannot overwrite a transfer or allocation committed meanwhile
+    private Stock loadForWrite(Long stockId) {
+        return stockLocks.lockStocks(List.of(stockId)).stream()
+                .findFirst()
                 .orElseThrow(() -> new RuntimeException("Stock not found with id: " + stockId));
+    }
 
-        if (stock.getReservedQuantity() < quantity) {
-            throw new RuntimeException("Cannot release more than reserved quantity. Reserved: " + stock.getReservedQuantity() + ", Requested: " + quantity);
+    // Rows by id from the primary, fully fetched, with the inventory engine's newer values where it has them
+    private List<Stock> detachedViews(List<Long> stockIds) {
+        List<Stock> stocks = new ArrayList<>(stockIds.size());
+        for (int from = 0; from < stockIds.size(); from += DETACHED_VIEW_BATCH) {
+            List<Long> batch = stockIds.subList(from, Math.min(stockIds.size(), from + DETACHED_VIEW_BATCH));
+            stocks.addAll(primaryTransaction.execute(tx -> stockRepository.findDetachedViews(batch)));
         }
+        if (inventoryEngine.isEnabled()) {
+            stocks.replaceAll(stock -> {
+                Stock cached = inventoryEngine.snapshot(stock.getId());
+                return cached != null ? cached : stock;
+            });
+        }
+        return stocks;
+    }
+
+    private static int resultLimit(int limit) {
+        if (limit <= 0) {
+            throw new RuntimeException("limit must be positive");
+        }
+        return Math.min(limit, MAX_AVAILABLE_RESULTS);
+    }
+
+    private static int quantityOf(Stock stock) {
+        return stock.getQuantity() != null ? stock.getQuantity() : 0;
+    }
+
+    private static int reservedOf(Stock stock) {
+        return stock.getReservedQuantity() != null ? stock.getReservedQuantity() : 0;
+    }
 
-        stock.setReservedQuantity(stock.getReservedQuantity() - quantity);
-        return stockRepository.save(stock);
+    private static int consignedOf(Stock stock) {
+        return stock.getConsignedQuantity() != null ? stock.getConsignedQuantity() : 0;
     }
 }
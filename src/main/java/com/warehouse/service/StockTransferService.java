@@ -1,20 +1,29 @@
 package com.warehouse.service;
 
+import com.warehouse.diagnostics.TransferTransitionEvent;
+import com.warehouse.dto.TransferFactRow;
 import com.warehouse.entity.StockTransfer;
 import com.warehouse.entity.Stock;
 import com.warehouse.entity.Product;
 import com.warehouse.entity.Warehouse;
 import com.warehouse.enums.TransferStatus;
+import com.warehouse.event.StockChangedEvent;
+import com.warehouse.inventory.StockLockManager;
+import com.warehouse.metrics.HotKeyTracker;
+import com.warehouse.metrics.StockMovement;
+import com.warehouse.metrics.WarehouseMetrics;
 import com.warehouse.repository.StockTransferRepository;
 import com.warehouse.repository.StockRepository;
 import com.warehouse.repository.ProductRepository;
 import com.warehouse.repository.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -25,42 +34,63 @@ public class StockTransferService {
     private final StockRepository stockRepository;
     private final ProductRepository productRepository;
     private final WarehouseRepository warehouseRepository;
+    private final TransferAnalyticsService transferAnalyticsService;
+    private final WarehouseMetrics warehouseMetrics;
+    private final HotKeyTracker hotKeys;
+    private final StockLockManager stockLocks;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public StockTransferService(StockTransferRepository stockTransferRepository,
                                 StockRepository stockRepository,
                                 ProductRepository productRepository,
-                                WarehouseRepository warehouseRepository) {
+                                WarehouseRepository warehouseRepository,
+                                TransferAnalyticsService transferAnalyticsService,
+                                WarehouseMetrics warehouseMetrics,
+                                HotKeyTracker hotKeys,
+                                StockLockManager stockLocks,
+                                ApplicationEventPublisher eventPublisher) {
         this.stockTransferRepository = stockTransferRepository;
         this.stockRepository = stockRepository;
         this.productRepository = productRepository;
         this.warehouseRepository = warehouseRepository;
+        this.transferAnalyticsService = transferAnalyticsService;
+        this.warehouseMetrics = warehouseMetrics;
+        this.hotKeys = hotKeys;
+        this.stockLocks = stockLocks;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional(readOnly = true)
     public List<StockTransfer> getAllTransfers() {
         return stockTransferRepository.findAllOrderByTransferDateDesc();
     }
 
+    @Transactional(readOnly = true)
     public Optional<StockTransfer> getTransferById(Long id) {
         return stockTransferRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<StockTransfer> getTransfersByWarehouse(Long warehouseId) {
         Warehouse warehouse = warehouseRepository.findById(warehouseId)
                 .orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + warehouseId));
         return stockTransferRepository.findByWarehouse(warehouse);
     }
 
+    @Transactional(readOnly = true)
     public List<StockTransfer> getTransfersByProduct(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         return stockTransferRepository.findByProduct(product);
     }
 
+    @Transactional(readOnly = true)
     public List<StockTransfer> getTransfersByStatus(TransferStatus status) {
         return stockTransferRepository.findByStatus(status);
     }
     public StockTransfer createTransfer(StockTransfer transfer) {
+        TransferTransitionEvent event = TransferTransitionEvent.start();
         // Validate warehouses
         if (transfer.getSourceWarehouse() == null || transfer.getSourceWarehouse().getId() == null) {
             throw new RuntimeException("Source warehouse is required");
@@ -74,6 +104,10 @@ public class StockTransferService {
         Warehouse destinationWarehouse = warehouseRepository.findById(transfer.getDestinationWarehouse().getId())
                 .orElseThrow(() -> new RuntimeException("Destination warehouse not found"));
 
+        if (!sourceWarehouse.isActive() || !destinationWarehouse.isActive()) {
+            throw new RuntimeException("Transfers are only possible between active warehouses");
+        }
+
         // Validate warehouses are different
         if (sourceWarehouse.getId().equals(destinationWarehouse.getId())) {
             throw new RuntimeException("Source and destination warehouses must be different");
@@ -112,19 +146,23 @@ public class StockTransferService {
         transfer.setProduct(product);
         transfer.setStatus(TransferStatus.PENDING);
 
-        return stockTransferRepository.save(transfer);
+        StockTransfer saved = stockTransferRepository.save(transfer);
+        transferAnalyticsService.transferCreated(saved);
+        hotKeys.recordTransfer(saved);
+        event.finish(saved, null);
+        return saved;
     }
 
     public StockTransfer startTransfer(Long transferId) {
+        TransferTransitionEvent event = TransferTransitionEvent.start();
         StockTransfer transfer = stockTransferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
-
-        if (transfer.getStatus() != TransferStatus.PENDING) {
-            throw new RuntimeException("Only PENDING transfers can be started. Current status: " + transfer.getStatus());
-        }
+        TransferFactRow before = TransferFactRow.of(transfer);
+        hotKeys.recordTransfer(transfer);
+        claimTransition(transfer, TransferStatus.IN_TRANSIT);
 
         // Reserve stock in source warehouse
-        Stock sourceStock = stockRepository.findByProductAndWarehouse(transfer.getProduct(), transfer.getSourceWarehouse())
+        Stock sourceStock = lockStock(transfer, transfer.getSourceWarehouse())
                 .orElseThrow(() -> new RuntimeException("Source stock not found"));
 
         if (sourceStock.getAvailableQuantity() < transfer.getQuantity()) {
@@ -137,26 +175,34 @@ public class StockTransferService {
         // Reserve the stock
         sourceStock.setReservedQuantity(sourceStock.getReservedQuantity() + transfer.getQuantity());
         stockRepository.save(sourceStock);
+        eventPublisher.publishEvent(StockChangedEvent.committed(sourceStock, 0, transfer.getQuantity(), 0));
+        warehouseMetrics.recordStockMovement(StockMovement.RESERVED, transfer.getQuantity());
 
-        transfer.setStatus(TransferStatus.IN_TRANSIT);
-        return stockTransferRepository.save(transfer);
+        transferAnalyticsService.transferChanged(before, transfer);
+        event.finish(transfer, before.status());
+        return transfer;
     }
 
     public StockTransfer completeTransfer(Long transferId) {
+        TransferTransitionEvent event = TransferTransitionEvent.start();
         StockTransfer transfer = stockTransferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
-
-        if (transfer.getStatus() == TransferStatus.COMPLETED) {
-            throw new RuntimeException("Transfer is already completed");
-        }
-        if (transfer.getStatus() == TransferStatus.CANCELLED) {
-            throw new RuntimeException("Cannot complete a cancelled transfer");
-        }
-
-        Stock sourceStock = stockRepository.findByProductAndWarehouse(transfer.getProduct(), transfer.getSourceWarehouse())
+        TransferFactRow before = TransferFactRow.of(transfer);
+        hotKeys.recordTransfer(transfer);
+        transfer.setCompletedDate(LocalDateTime.now());
+        claimTransition(transfer, TransferStatus.COMPLETED);
+
+        // Both rows are locked up front in stock id order, so a transfer the other way between
+        // the same two warehouses waits for this one instead of deadlocking with it
+        Long sourceWarehouseId = transfer.getSourceWarehouse().getId();
+        Long destinationWarehouseId = transfer.getDestinationWarehouse().getId();
+        Map<Long, Stock> stocks = stockLocks.lockProductStocks(transfer.getProduct().getId(),
+                List.of(sourceWarehouseId, destinationWarehouseId));
+        Stock sourceStock = Optional.ofNullable(stocks.get(sourceWarehouseId))
                 .orElseThrow(() -> new RuntimeException("Source stock not found"));
 
-        if (transfer.getStatus() == TransferStatus.PENDING) {
+        int reservedShipped = 0;
+        if (before.status() == TransferStatus.PENDING) {
             if (sourceStock.getAvailableQuantity() < transfer.getQuantity()) {
                 throw new RuntimeException(
                         String.format("Insufficient available stock. Available: %d, Required: %d",
@@ -164,19 +210,18 @@ public class StockTransferService {
                 );
             }
             sourceStock.setQuantity(sourceStock.getQuantity() - transfer.getQuantity());
-        } else if (transfer.getStatus() == TransferStatus.IN_TRANSIT) {
+        } else if (before.status() == TransferStatus.IN_TRANSIT) {
             sourceStock.setQuantity(sourceStock.getQuantity() - transfer.getQuantity());
             sourceStock.setReservedQuantity(sourceStock.getReservedQuantity() - transfer.getQuantity());
+            reservedShipped = transfer.getQuantity();
         }
 
         stockRepository.save(sourceStock);
+        eventPublisher.publishEvent(StockChangedEvent.committed(sourceStock, -transfer.getQuantity(),
+                -reservedShipped, 0));
 
-        Optional<Stock> destinationStockOpt = stockRepository.findByProductAndWarehouse(
-                transfer.getProduct(), transfer.getDestinationWarehouse());
-
-        Stock destinationStock;
-        if (destinationStockOpt.isPresent()) {
-            destinationStock = destinationStockOpt.get();
+        Stock destinationStock = stocks.get(destinationWarehouseId);
+        if (destinationStock != null) {
             destinationStock.setQuantity(destinationStock.getQuantity() + transfer.getQuantity());
         } else {
             destinationStock = new Stock();
@@ -189,42 +234,47 @@ public class StockTransferService {
         }
 
         stockRepository.save(destinationStock);
+        eventPublisher.publishEvent(StockChangedEvent.committed(destinationStock, transfer.getQuantity(), 0, 0));
+        warehouseMetrics.recordStockMovement(StockMovement.TRANSFER_SHIPPED, transfer.getQuantity());
+        warehouseMetrics.recordStockMovement(StockMovement.TRANSFER_RECEIVED, transfer.getQuantity());
 
-        transfer.setStatus(TransferStatus.COMPLETED);
-        transfer.setCompletedDate(LocalDateTime.now());
-        return stockTransferRepository.save(transfer);
+        transferAnalyticsService.transferChanged(before, transfer);
+        event.finish(transfer, before.status());
+        return transfer;
     }
 
     public StockTransfer cancelTransfer(Long transferId) {
+        TransferTransitionEvent event = TransferTransitionEvent.start();
         StockTransfer transfer = stockTransferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
+        TransferFactRow before = TransferFactRow.of(transfer);
+        hotKeys.recordTransfer(transfer);
+        transfer.setCancelledDate(LocalDateTime.now());
+        claimTransition(transfer, TransferStatus.CANCELLED);
 
-        if (transfer.getStatus() == TransferStatus.COMPLETED) {
-            throw new RuntimeException("Cannot cancel a completed transfer");
-        }
-        if (transfer.getStatus() == TransferStatus.CANCELLED) {
-            throw new RuntimeException("Transfer is already cancelled");
-        }
-
-        if (transfer.getStatus() == TransferStatus.IN_TRANSIT) {
-            Stock sourceStock = stockRepository.findByProductAndWarehouse(transfer.getProduct(), transfer.getSourceWarehouse())
+        if (before.status() == TransferStatus.IN_TRANSIT) {
+            Stock sourceStock = lockStock(transfer, transfer.getSourceWarehouse())
                     .orElseThrow(() -> new RuntimeException("Source stock not found"));
 
             sourceStock.setReservedQuantity(sourceStock.getReservedQuantity() - transfer.getQuantity());
             stockRepository.save(sourceStock);
+            eventPublisher.publishEvent(StockChangedEvent.committed(sourceStock, 0, -transfer.getQuantity(), 0));
+            warehouseMetrics.recordStockMovement(StockMovement.RELEASED, transfer.getQuantity());
         }
 
-        transfer.setStatus(TransferStatus.CANCELLED);
-        transfer.setCancelledDate(LocalDateTime.now());
-        return stockTransferRepository.save(transfer);
+        transferAnalyticsService.transferChanged(before, transfer);
+        event.finish(transfer, before.status());
+        return transfer;
     }
 
     public StockTransfer updateTransfer(Long transferId, StockTransfer updatedTransfer) {
         StockTransfer transfer = stockTransferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
+        TransferFactRow before = TransferFactRow.of(transfer);
+        hotKeys.recordTransfer(transfer);
 
         if (transfer.getStatus() != TransferStatus.PENDING) {
-            throw new RuntimeException("Only PENDING transfers can be updated");
+            throw new TransferConflictException("Only PENDING transfers can be updated");
         }
 
         // Update allowed fields
@@ -247,7 +297,9 @@ public class StockTransferService {
             transfer.setTransferDate(updatedTransfer.getTransferDate());
         }
 
-        return stockTransferRepository.save(transfer);
+        StockTransfer saved = stockTransferRepository.save(transfer);
+        transferAnalyticsService.transferChanged(before, saved);
+        return saved;
     }
 
     public void deleteTransfer(Long transferId) {
@@ -255,14 +307,42 @@ public class StockTransferService {
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
 
         if (transfer.getStatus() == TransferStatus.IN_TRANSIT) {
-            throw new RuntimeException("Cannot delete a transfer that is IN_TRANSIT. Cancel it first.");
+            throw new TransferConflictException("Cannot delete a transfer that is IN_TRANSIT. Cancel it first.");
         }
         if (transfer.getStatus() == TransferStatus.COMPLETED) {
-            throw new RuntimeException("Cannot delete a completed transfer");
+            throw new TransferConflictException("Cannot delete a completed transfer");
         }
 
+        transferAnalyticsService.transferDeleted(transfer);
         stockTransferRepository.delete(transfer);
     }
-}
 
- 
\ No newline at end of file
+    // Locks the transfer's stock row in one warehouse for the rest of the transaction
+    private Optional<Stock> lockStock(StockTransfer transfer, Warehouse warehouse) {
+        Long warehouseId = warehouse.getId();
+        return Optional.ofNullable(stockLocks.lockProductStocks(transfer.getProduct().getId(), List.of(warehouseId))
+                .get(warehouseId));
+    }
+
+    /**
+     * Moves the transfer to {@code target} and flushes right away, before any stock is touched.
+     * The flush is a versioned UPDATE (... WHERE id = ? AND version = ?), so when two transitions
+     * race on the same transfer only the first one matches a row; the other fails with an
+     * optimistic locking exception and its transaction rolls back without side effects.
+     */
+    private void claimTransition(StockTransfer transfer, TransferStatus target) {
+        TransferStatus current = transfer.getStatus();
+        if (!current.canTransitionTo(target)) {
+            throw new TransferConflictException(switch (target) {
+                case IN_TRANSIT -> "Only PENDING transfers can be started. Current status: " + current;
+                case COMPLETED -> current == TransferStatus.COMPLETED
+                        ? "Transfer is already completed" : "Cannot complete a cancelled transfer";
+                case CANCELLED -> current == TransferStatus.CANCELLED
+                        ? "Transfer is already cancelled" : "Cannot cancel a completed transfer";
+                case PENDING -> "Transfers cannot go back to PENDING";
+            });
+        }
+        transfer.setStatus(target);
+        stockTransferRepository.saveAndFlush(transfer);
+    }
+}
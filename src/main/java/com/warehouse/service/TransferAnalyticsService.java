@@ -0,0 +1,202 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.TransferFactRow;
+import com.warehouse.dto.TransferLaneStatDto;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.entity.TransferRollup;
+import com.warehouse.entity.TransferRollupGuard;
+import com.warehouse.enums.RollupGranularity;
+import com.warehouse.enums.TransferStatus;
+import com.warehouse.repository.StockTransferRepository;
+import com.warehouse.repository.TransferRollupGuardRepository;
+import com.warehouse.repository.TransferRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Maintains hourly and daily transfer rollups per (source, destination, category, status) and
+ * answers lane analytics from them. Writers apply relative deltas inside the caller's transaction,
+ * so the rollups commit or roll back together with the transfer change.
+ * <p>
+ * A rebuild replaces every cell, so it must not interleave with deltas. Writers hold the
+ * {@link TransferRollupGuard} row shared until their transaction ends, which lets them run side
+ * by side; a rebuild holds it exclusively, so it waits for the writers in flight and new writers
+ * wait for it.
+ */
+@Service
+@Transactional
+public class TransferAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferAnalyticsService.class);
+
+    private final TransferRollupRepository rollupRepository;
+    private final TransferRollupGuardRepository guardRepository;
+    private final StockTransferRepository stockTransferRepository;
+    private final TransactionTemplate newTransaction;
+
+    @Autowired
+    public TransferAnalyticsService(TransferRollupRepository rollupRepository,
+                                    TransferRollupGuardRepository guardRepository,
+                                    StockTransferRepository stockTransferRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.guardRepository = guardRepository;
+        this.stockTransferRepository = stockTransferRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void transferCreated(StockTransfer transfer) {
+        lockGuard(guardRepository::findForShare);
+        apply(TransferFactRow.of(transfer), 1);
+    }
+
+    public void transferChanged(TransferFactRow before, StockTransfer transfer) {
+        TransferFactRow after = TransferFactRow.of(transfer);
+        if (!before.equals(after)) {
+            lockGuard(guardRepository::findForShare);
+            apply(before, -1);
+            apply(after, 1);
+        }
+    }
+
+    public void transferDeleted(StockTransfer transfer) {
+        lockGuard(guardRepository::findForShare);
+        apply(TransferFactRow.of(transfer), -1);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TransferLaneStatDto> getLaneSeries(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                                   TransferStatus status, Long sourceWarehouseId,
+                                                   Long destinationWarehouseId, Long categoryId) {
+        validateRange(from, to);
+        return rollupRepository.findLaneSeries(granularity, from, to, status,
+                sourceWarehouseId, destinationWarehouseId, categoryId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TransferLaneStatDto> getLaneTotals(LocalDateTime from, LocalDateTime to,
+                                                   TransferStatus status, Long categoryId) {
+        validateRange(from, to);
+        // Day-aligned ranges can be answered from the much smaller daily table
+        RollupGranularity granularity = from.toLocalTime().equals(LocalTime.MIDNIGHT)
+                && to.toLocalTime().equals(LocalTime.MIDNIGHT) ? RollupGranularity.DAY : RollupGranularity.HOUR;
+        return rollupRepository.findLaneTotals(granularity, from, to, status, categoryId);
+    }
+
+    /**
+     * Recomputes every rollup from the transfer history. Transfer changes wait until the rebuild
+     * commits, and the rebuild waits for those already writing deltas.
+     */
+    public int rebuildRollups() {
+        TransferRollupGuard guard = lockGuard(guardRepository::findForUpdate);
+        rollupRepository.deleteAllRollups();
+
+        Map<CellKey, TransferRollup> cells = new HashMap<>();
+        try (Stream<TransferFactRow> facts = stockTransferRepository.streamTransferFacts()) {
+            facts.forEach(fact -> {
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    CellKey key = CellKey.of(granularity, fact);
+                    TransferRollup cell = cells.computeIfAbsent(key, CellKey::newRollup);
+                    cell.setTransferCount(cell.getTransferCount() + 1);
+                    cell.setUnitCount(cell.getUnitCount() + fact.quantity());
+                    cell.setTransitSecondsTotal(cell.getTransitSecondsTotal() + fact.transitSeconds());
+                }
+            });
+        }
+        rollupRepository.saveAll(cells.values());
+        guard.setRebuiltAt(LocalDateTime.now());
+        log.info("Rebuilt {} transfer rollup cells", cells.size());
+        return cells.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (rollupRepository.count() == 0 && stockTransferRepository.count() > 0) {
+            rebuildRollups();
+        }
+    }
+
+    // Creates the guard row on first use, in its own transaction like a rollup cell
+    private TransferRollupGuard lockGuard(Function<Long, Optional<TransferRollupGuard>> lock) {
+        Optional<TransferRollupGuard> guard = lock.apply(TransferRollupGuard.ID);
+        if (guard.isPresent()) {
+            return guard.get();
+        }
+        try {
+            newTransaction.executeWithoutResult(tx ->
+                    guardRepository.saveAndFlush(new TransferRollupGuard(TransferRollupGuard.ID, null)));
+        } catch (DataIntegrityViolationException e) {
+            // Another transaction created the guard first
+        }
+        return lock.apply(TransferRollupGuard.ID)
+                .orElseThrow(() -> new IllegalStateException("Transfer rollup guard row is missing"));
+    }
+
+    private void apply(TransferFactRow fact, int sign) {
+        long units = (long) sign * fact.quantity();
+        long transitSeconds = sign * fact.transitSeconds();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            CellKey key = CellKey.of(granularity, fact);
+            if (applyDelta(key, sign, units, transitSeconds) == 0) {
+                ensureCell(key);
+                applyDelta(key, sign, units, transitSeconds);
+            }
+        }
+    }
+
+    private int applyDelta(CellKey key, long transfers, long units, long transitSeconds) {
+        return rollupRepository.applyDelta(key.granularity(), key.bucketStart(), key.sourceWarehouseId(),
+                key.destinationWarehouseId(), key.categoryId(), key.status(), transfers, units, transitSeconds);
+    }
+
+    // Creates the zero cell in its own transaction so a concurrent creator cannot abort ours
+    private void ensureCell(CellKey key) {
+        try {
+            newTransaction.executeWithoutResult(tx -> rollupRepository.saveAndFlush(key.newRollup()));
+        } catch (DataIntegrityViolationException e) {
+            // Another transaction created the same cell first
+        }
+    }
+
+    private static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new RuntimeException("Both from and to are required");
+        }
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+    }
+
+    private record CellKey(RollupGranularity granularity, LocalDateTime bucketStart, Long sourceWarehouseId,
+                           Long destinationWarehouseId, Long categoryId, TransferStatus status) {
+
+        static CellKey of(RollupGranularity granularity, TransferFactRow fact) {
+            return new CellKey(granularity, granularity.bucketOf(fact.transferDate()), fact.sourceWarehouseId(),
+                    fact.destinationWarehouseId(), fact.categoryId(), fact.status());
+        }
+
+        TransferRollup newRollup() {
+            return new TransferRollup(granularity, bucketStart, sourceWarehouseId, destinationWarehouseId,
+                    categoryId, status);
+        }
+    }
+}
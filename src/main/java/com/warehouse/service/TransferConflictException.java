@@ -0,0 +1,16 @@
+package com.warehouse.service;
+
+/**
+ * A transfer transition that is not allowed from the transfer's current status, or that lost a
+ * race against another transition. Controllers answer it with 409 Conflict.
+ */
+public class TransferConflictException extends RuntimeException {
+
+    public TransferConflictException(String message) {
+        super(message);
+    }
+
+    public TransferConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,95 @@
+package com.warehouse.service;
+
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.enums.TransferStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Entry point for transfer status transitions. Each transition runs in its own transaction in
+ * {@link StockTransferService}, which claims the new status with a versioned UPDATE before it
+ * touches stock. When that claim (or a row lock) loses a race, the whole transition is retried
+ * with a short jittered backoff against the fresh row; a retry usually ends in an explicit
+ * {@link TransferConflictException} because the winner already moved the transfer on.
+ * <p>
+ * Inside a caller's transaction (an idempotent request, for example) there is nothing to retry,
+ * as the failed attempt has already marked it rollback-only, so the conflict is reported at once.
+ */
+@Service
+public class TransferTransitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferTransitionService.class);
+
+    public static final String TRANSITION_CONFLICTS = "warehouse.transfer.transition.conflicts";
+
+    private final StockTransferService stockTransferService;
+    private final MeterRegistry registry;
+    private final int maxAttempts;
+
+    @Autowired
+    public TransferTransitionService(StockTransferService stockTransferService,
+                                     MeterRegistry registry,
+                                     @Value("${app.transfers.transition-attempts:4}") int maxAttempts) {
+        this.stockTransferService = stockTransferService;
+        this.registry = registry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public StockTransfer start(Long transferId) {
+        return transition(transferId, TransferStatus.IN_TRANSIT, stockTransferService::startTransfer);
+    }
+
+    public StockTransfer complete(Long transferId) {
+        return transition(transferId, TransferStatus.COMPLETED, stockTransferService::completeTransfer);
+    }
+
+    public StockTransfer cancel(Long transferId) {
+        return transition(transferId, TransferStatus.CANCELLED, stockTransferService::cancelTransfer);
+    }
+
+    private StockTransfer transition(Long transferId, TransferStatus target, Function<Long, StockTransfer> attempt) {
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : maxAttempts;
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.apply(transferId);
+            } catch (ConcurrencyFailureException e) {
+                boolean retry = n < attempts;
+                conflictCounter(target, retry ? "retried" : "gave_up").increment();
+                if (!retry) {
+                    throw new TransferConflictException(
+                            "Transfer " + transferId + " was modified concurrently, please retry", e);
+                }
+                log.debug("Transition of transfer {} to {} lost a race (attempt {}), retrying", transferId, target, n);
+                backoff(n);
+            }
+        }
+    }
+
+    private Counter conflictCounter(TransferStatus target, String outcome) {
+        return Counter.builder(TRANSITION_CONFLICTS)
+                .description("Transfer transitions that lost a concurrent update")
+                .tag("target", target.name().toLowerCase())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static void backoff(int attempt) {
+        long maxMillis = 5L << Math.min(attempt, 5);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferConflictException("Interrupted while retrying a transfer transition", e);
+        }
+    }
+}
@@ -19,22 +19,27 @@ public class WarehouseService {
         this.warehouseRepository = warehouseRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<Warehouse> getAllWarehouses() {
         return warehouseRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Warehouse> getAllActiveWarehouses() {
         return warehouseRepository.findAllActive();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Warehouse> getWarehouseById(Long id) {
         return warehouseRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Warehouse> getWarehouseByIdWithStocks(Long id) {
         return warehouseRepository.findByIdWithStocks(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Warehouse> getWarehouseByName(String name) {
         return warehouseRepository.findByName(name);
     }
@@ -93,6 +98,7 @@ public class WarehouseService {
         warehouseRepository.save(warehouse);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsByName(String name) {
         return warehouseRepository.existsByName(name);
     }
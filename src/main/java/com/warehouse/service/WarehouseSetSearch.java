@@ -0,0 +1,169 @@
+package com.warehouse.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds sets of warehouses that together cover a basket. {@code available[w][i]} is what
+ * warehouse {@code w} has available of line {@code i}. A set qualifies when it covers every line
+ * and stops covering when any one member is left out. Sets are ranked by size, then by the units
+ * of the basket they have available. Sets of two or more are only formed from the
+ * {@value #MAX_CANDIDATES} warehouses that cover most of the basket, which bounds a three-way
+ * search to about 40,000 combinations.
+ */
+final class WarehouseSetSearch {
+
+    static final int MAX_SPLITS = 3;
+    static final int MAX_CANDIDATES = 64;
+
+    private static final Comparator<Option> RANKING = Comparator.comparingInt((Option o) -> o.members().length)
+            .thenComparing(Comparator.comparingLong(Option::availableUnits).reversed())
+            .thenComparing(Option::members, Arrays::compare);
+
+    /**
+     * Warehouse indexes in ascending order, and the basket units they have available together.
+     */
+    record Option(int[] members, long availableUnits) {
+    }
+
+    private WarehouseSetSearch() {
+    }
+
+    /**
+     * Every qualifying set of at most {@code maxSplits} warehouses, best first.
+     */
+    static List<Option> rank(int[][] available, int[] quantities, int maxSplits) {
+        Search search = new Search(available, quantities);
+        for (int size = 1; size <= maxSplits; size++) {
+            search.run(size);
+        }
+        search.found.sort(RANKING);
+        return search.found;
+    }
+
+    /**
+     * The best qualifying set, searching larger sets only when no smaller one qualifies, or
+     * {@code null}.
+     */
+    static Option best(int[][] available, int[] quantities, int maxSplits) {
+        Search search = new Search(available, quantities);
+        for (int size = 1; size <= maxSplits && search.found.isEmpty(); size++) {
+            search.run(size);
+        }
+        return search.found.stream().min(RANKING).orElse(null);
+    }
+
+    /**
+     * Units to take of each line from each member, {@code [line][k]} for {@code members()[k]},
+     * drawing each line from the members with the most available first.
+     */
+    static int[][] allocate(Option option, int[][] available, int[] quantities) {
+        int[] members = option.members();
+        int[][] take = new int[quantities.length][members.length];
+        for (int i = 0; i < quantities.length; i++) {
+            int line = i;
+            Integer[] order = new Integer[members.length];
+            for (int k = 0; k < members.length; k++) {
+                order[k] = k;
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer k) -> available[members[k]][line]).reversed());
+            int remaining = quantities[i];
+            for (int k : order) {
+                int units = Math.min(remaining, available[members[k]][i]);
+                take[i][k] = units;
+                remaining -= units;
+                if (remaining == 0) {
+                    break;
+                }
+            }
+        }
+        return take;
+    }
+
+    private static final class Search {
+        final int[][] available;
+        final int[] quantities;
+        final int[] candidates;
+        final List<Option> found = new ArrayList<>();
+        final int[] combo = new int[MAX_SPLITS];
+
+        Search(int[][] available, int[] quantities) {
+            this.available = available;
+            this.quantities = quantities;
+            this.candidates = candidates(available, quantities);
+        }
+
+        void run(int size) {
+            int pool = size == 1 ? candidates.length : Math.min(candidates.length, MAX_CANDIDATES);
+            choose(size, 0, 0, pool);
+        }
+
+        private void choose(int size, int depth, int from, int pool) {
+            if (depth == size) {
+                if (covers(size, -1) && isMinimal(size)) {
+                    int[] members = Arrays.copyOf(combo, size);
+                    Arrays.sort(members);
+                    found.add(new Option(members, unitsOf(members)));
+                }
+                return;
+            }
+            for (int c = from; c <= pool - (size - depth); c++) {
+                combo[depth] = candidates[c];
+                choose(size, depth + 1, c + 1, pool);
+            }
+        }
+
+        // Whether the first size members, except the one at position skip, cover every line
+        private boolean covers(int size, int skip) {
+            for (int i = 0; i < quantities.length; i++) {
+                long sum = 0;
+                for (int j = 0; j < size; j++) {
+                    if (j != skip) {
+                        sum += available[combo[j]][i];
+                    }
+                }
+                if (sum < quantities[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isMinimal(int size) {
+            for (int skip = 0; size > 1 && skip < size; skip++) {
+                if (covers(size, skip)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long unitsOf(int[] members) {
+            long units = 0;
+            for (int w : members) {
+                for (int i = 0; i < quantities.length; i++) {
+                    units += available[w][i];
+                }
+            }
+            return units;
+        }
+
+        // Warehouses holding any of the basket, best coverage first
+        private static int[] candidates(int[][] available, int[] quantities) {
+            long[] coverage = new long[available.length];
+            List<Integer> holding = new ArrayList<>();
+            for (int w = 0; w < available.length; w++) {
+                for (int i = 0; i < quantities.length; i++) {
+                    coverage[w] += Math.min(available[w][i], quantities[i]);
+                }
+                if (coverage[w] > 0) {
+                    holding.add(w);
+                }
+            }
+            holding.sort(Comparator.comparingLong((Integer w) -> coverage[w]).reversed().thenComparing(w -> w));
+            return holding.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+-- Adds stocks.available_quantity (quantity - reserved - consigned) and its indexes.
+-- With ddl-auto=update the application adds the column and the plain indexes itself, and
+-- AvailableQuantityBackfill fills in existing rows at startup. On a large table run this
+-- instead, before the deploy, so the backfill and index builds do not block writes.
+
+ALTER TABLE stocks ADD COLUMN IF NOT EXISTS available_quantity integer;
+
+-- Repeat until it reports UPDATE 0; each round touches at most 10000 rows
+UPDATE stocks SET available_quantity = COALESCE(quantity, 0) - COALESCE(reserved_quantity, 0)
+        - COALESCE(consigned_quantity, 0)
+WHERE id IN (SELECT id FROM stocks WHERE available_quantity IS NULL LIMIT 10000);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_stocks_available_quantity
+    ON stocks (available_quantity);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_stocks_warehouse_available_quantity
+    ON stocks (warehouse_id, available_quantity);
+
+-- Optional: serves GET /api/stocks/available/below-min from the few rows that qualify
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_stocks_available_below_min
+    ON stocks (warehouse_id) WHERE available_quantity < min_stock_level;
@@ -0,0 +1,36 @@
+-- Moves id generation from IDENTITY columns to sequences handed out in blocks of 50 (pooled-lo).
+-- Run once before the first deploy with sequence ids. With ddl-auto=update the application
+-- creates the sequences itself and IdSequenceAligner does the setval step at startup instead.
+-- setval(s, n) makes the next call return n + 50, past every existing id.
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS categories_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS brands_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS colors_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS products_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS warehouses_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stocks_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stock_transfers_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS transfer_rollups_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('categories_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM categories), 1));
+SELECT setval('brands_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM brands), 1));
+SELECT setval('colors_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM colors), 1));
+SELECT setval('products_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM products), 1));
+SELECT setval('warehouses_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM warehouses), 1));
+SELECT setval('stocks_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM stocks), 1));
+SELECT setval('stock_transfers_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM stock_transfers), 1));
+SELECT setval('transfer_rollups_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM transfer_rollups), 1));
+
+COMMIT;
+
+-- Optional, once nothing else inserts rows relying on the column default:
+-- ALTER TABLE categories ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE brands ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE colors ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE products ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE warehouses ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE stocks ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE stock_transfers ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- ALTER TABLE transfer_rollups ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,49 @@
+package com.warehouse.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdmissionControlFilterTest {
+
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AdmissionControlFilter(new AdmissionProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void encodedBulkPathIsBulkWrite() {
+        MockHttpServletRequest request = request("POST", "/api/maintenance/%63onsistency", "/api/maintenance/consistency");
+        assertEquals(TrafficClass.BULK_WRITE, filter.classify(request));
+    }
+
+    @Test
+    void unnormalisedBulkPathIsBulkWrite() {
+        MockHttpServletRequest request = request("POST", "/api/stocks/../rebalancing/execute",
+                "/api/rebalancing/execute");
+        assertEquals(TrafficClass.BULK_WRITE, filter.classify(request));
+    }
+
+    @Test
+    void encodedReadPathIsRead() {
+        MockHttpServletRequest request = request("POST", "/api/fulfilment/%6Fptions", "/api/fulfilment/options");
+        assertEquals(TrafficClass.READ, filter.classify(request));
+    }
+
+    @Test
+    void singleWriteIsWrite() {
+        MockHttpServletRequest request = request("PUT", "/api/stocks/1/add", "/api/stocks/1/add");
+        assertEquals(TrafficClass.WRITE, filter.classify(request));
+    }
+
+    private static MockHttpServletRequest request(String method, String rawUri, String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, rawUri);
+        request.setServletPath(servletPath);
+        return request;
+    }
+}
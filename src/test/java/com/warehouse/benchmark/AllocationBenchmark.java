@@ -0,0 +1,153 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.dto.AllocationBatchRequest;
+import com.warehouse.dto.AllocationBatchResultDto;
+import com.warehouse.dto.FulfilmentRequest;
+import com.warehouse.entity.Product;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.service.OrderAllocationService;
+import com.warehouse.service.StockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput benchmark for batch order allocation, run as its own JVM against a dev or staging
+ * database that already holds products and stock. It lives in the test sources and is not part
+ * of the application jar:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.warehouse.benchmark.AllocationBenchmark \
+ *     -Dspring.profiles.active=prod -Dspring.datasource.url=jdbc:postgresql://localhost:5432/warehouse_bench
+ * </pre>
+ * Settings are {@code benchmark.allocation.*} system properties. It generates {@code orders}
+ * random orders of {@code lines-per-order} lines over the first {@code products} active products,
+ * sends them to {@link OrderAllocationService} in batches of {@code batch-size}, and logs orders
+ * per second and the batch latency percentiles.
+ * <p>
+ * With {@code release=true} (the default) every reservation it made is released afterwards, so the
+ * run leaves stock levels as it found them.
+ */
+public class AllocationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationBenchmark.class);
+    private static final String PREFIX = "benchmark.allocation.";
+
+    private final OrderAllocationService orderAllocationService;
+    private final StockService stockService;
+    private final ProductRepository productRepository;
+    private final int orders;
+    private final int batchSize;
+    private final int linesPerOrder;
+    private final int products;
+    private final int quantity;
+    private final int maxSplits;
+    private final long seed;
+    private final boolean release;
+
+    AllocationBenchmark(OrderAllocationService orderAllocationService,
+                        StockService stockService,
+                        ProductRepository productRepository) {
+        this.orderAllocationService = orderAllocationService;
+        this.stockService = stockService;
+        this.productRepository = productRepository;
+        this.orders = Integer.parseInt(setting("orders", "5000"));
+        this.batchSize = Math.max(1, Integer.parseInt(setting("batch-size", "500")));
+        this.linesPerOrder = Math.max(1, Integer.parseInt(setting("lines-per-order", "3")));
+        this.products = Math.max(1, Integer.parseInt(setting("products", "200")));
+        this.quantity = Math.max(1, Integer.parseInt(setting("quantity", "1")));
+        this.maxSplits = Integer.parseInt(setting("max-splits", "2"));
+        this.seed = Long.parseLong(setting("seed", "42"));
+        this.release = Boolean.parseBoolean(setting("release", "true"));
+    }
+
+    public static void main(String[] args) {
+        boolean passed;
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start("allocation benchmark")) {
+            new AllocationBenchmark(context.getBean(OrderAllocationService.class),
+                    context.getBean(StockService.class),
+                    context.getBean(ProductRepository.class)).run();
+            passed = true;
+        } catch (RuntimeException e) {
+            log.error("Allocation benchmark could not run: {}", e.getMessage());
+            passed = false;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static String setting(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    void run() {
+        List<Product> catalogue = productRepository.findAllActive();
+        if (catalogue.isEmpty()) {
+            throw new IllegalStateException("The allocation benchmark needs at least one active product");
+        }
+        List<Long> productIds = catalogue.stream().limit(products).map(Product::getId).toList();
+        Random random = new Random(seed);
+
+        log.info("Allocation benchmark: {} orders of {} line(s) over {} products, batches of {}, maxSplits {}",
+                orders, linesPerOrder, productIds.size(), batchSize, maxSplits);
+
+        List<AllocationBatchResultDto.Allocation> reserved = new ArrayList<>();
+        List<Long> batchNanos = new ArrayList<>();
+        int allocated = 0;
+        int rejected = 0;
+        long started = System.nanoTime();
+        for (int sent = 0; sent < orders; sent += batchSize) {
+            int size = Math.min(batchSize, orders - sent);
+            List<AllocationBatchRequest.Order> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(order("bench-" + (sent + i), productIds, random));
+            }
+            long batchStarted = System.nanoTime();
+            AllocationBatchResultDto result = orderAllocationService.allocate(new AllocationBatchRequest(batch, maxSplits));
+            batchNanos.add(System.nanoTime() - batchStarted);
+            allocated += result.getAllocatedOrders();
+            rejected += result.getRejectedOrders();
+            for (AllocationBatchResultDto.OrderResult order : result.getOrders()) {
+                reserved.addAll(order.getAllocations());
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        long[] sorted = batchNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        log.info("Allocation benchmark finished in {} ms: {} allocated, {} rejected, {} orders/s; "
+                        + "batch latency p50 {} ms, p95 {} ms, max {} ms",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), allocated, rejected,
+                String.format("%.1f", orders / (elapsedNanos / 1e9)),
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)), millis(sorted[sorted.length - 1]));
+
+        if (release) {
+            for (AllocationBatchResultDto.Allocation allocation : reserved) {
+                stockService.releaseStock(allocation.getStockId(), allocation.getQuantity());
+            }
+            log.info("Allocation benchmark: released {} reservation(s)", reserved.size());
+        }
+    }
+
+    // Distinct products per order, so every line is a separate product
+    private AllocationBatchRequest.Order order(String orderRef, List<Long> productIds, Random random) {
+        int lines = Math.min(linesPerOrder, productIds.size());
+        long[] picked = random.ints(0, productIds.size()).distinct().limit(lines)
+                .mapToLong(productIds::get).toArray();
+        List<FulfilmentRequest.Line> orderLines = new ArrayList<>(lines);
+        Arrays.stream(picked).forEach(id -> orderLines.add(new FulfilmentRequest.Line(id, null, quantity)));
+        return new AllocationBatchRequest.Order(orderRef, orderLines);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+}
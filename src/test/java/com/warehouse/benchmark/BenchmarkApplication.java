@@ -0,0 +1,28 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.WarehouseManagementApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application without a web server for a benchmark run in its own JVM. Benchmarks
+ * write to the database, so the target has to be named with {@code -Dspring.datasource.url};
+ * they never fall back to the one the active profile points at.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String benchmark) {
+        String url = System.getProperty("spring.datasource.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("Set spring.datasource.url to the database the " + benchmark
+                    + " may write to, for example -Dspring.datasource.url=jdbc:h2:mem:benchmark");
+        }
+        return new SpringApplicationBuilder(WarehouseManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.entity.Brand;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput benchmark, run as its own JVM against a dev or staging database. It lives in
+ * the test sources and is not part of the application jar:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.warehouse.benchmark.InsertBatchBenchmark \
+ *     -Dspring.profiles.active=prod -Dspring.datasource.url=jdbc:postgresql://localhost:5432/warehouse_bench
+ * </pre>
+ * Settings are {@code benchmark.insert.*} system properties. It inserts {@code rows} brands, once
+ * with a JDBC batch size of 1 (one round trip per row, as with IDENTITY ids) and once with
+ * {@code hibernate.jdbc.batch_size}, alternating for {@code rounds} rounds, and logs rows per
+ * second for both. Ids come from the pooled sequence in both runs, so the difference is the
+ * batching alone. The inserted brands are deleted after each run.
+ */
+public class InsertBatchBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(InsertBatchBenchmark.class);
+    private static final String SETTING_PREFIX = "benchmark.insert.";
+    private static final String PREFIX = "insert-benchmark-";
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final int rows;
+    private final int rounds;
+    private final int batchSize;
+
+    InsertBatchBenchmark(EntityManager entityManager, PlatformTransactionManager transactionManager, int batchSize) {
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.rows = Math.max(1, Integer.parseInt(setting("rows", "10000")));
+        this.rounds = Math.max(1, Integer.parseInt(setting("rounds", "3")));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public static void main(String[] args) {
+        boolean passed;
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start("insert benchmark")) {
+            int batchSize = context.getEnvironment()
+                    .getProperty("spring.jpa.properties.hibernate.jdbc.batch_size", Integer.class, 50);
+            new InsertBatchBenchmark(context.getBean(EntityManager.class),
+                    context.getBean(PlatformTransactionManager.class), batchSize).run();
+            passed = true;
+        } catch (RuntimeException e) {
+            log.error("Insert benchmark could not run: {}", e.getMessage());
+            passed = false;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static String setting(String name, String defaultValue) {
+        return System.getProperty(SETTING_PREFIX + name, defaultValue);
+    }
+
+    void run() {
+        log.info("Insert benchmark: {} rows per run, {} round(s), batch size 1 against {}", rows, rounds, batchSize);
+        // The first run also warms up the JIT and the connection pool
+        insert(1, "warmup");
+        long unbatchedNanos = 0;
+        long batchedNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            unbatchedNanos += insert(1, "r" + round + "-single");
+            batchedNanos += insert(batchSize, "r" + round + "-batched");
+        }
+        double unbatched = rowsPerSecond(unbatchedNanos);
+        double batched = rowsPerSecond(batchedNanos);
+        log.info("Insert benchmark: {} rows/s one by one, {} rows/s in batches of {} ({}x)",
+                String.format("%.0f", unbatched), String.format("%.0f", batched), batchSize,
+                String.format("%.1f", batched / unbatched));
+    }
+
+    // Returns the time spent inserting; the clean-up is not timed
+    private long insert(int jdbcBatchSize, String run) {
+        String prefix = PREFIX + System.currentTimeMillis() + "-" + run + "-";
+        long started = System.nanoTime();
+        transaction.executeWithoutResult(tx -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < rows; i++) {
+                Brand brand = new Brand();
+                brand.setName(prefix + i);
+                brand.setDescription("Created by the insert benchmark");
+                entityManager.persist(brand);
+                if ((i + 1) % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        long elapsed = System.nanoTime() - started;
+        transaction.executeWithoutResult(tx -> entityManager
+                .createQuery("DELETE FROM Brand b WHERE b.name LIKE :prefix")
+                .setParameter("prefix", prefix + "%")
+                .executeUpdate());
+        log.debug("Insert benchmark run {}: {} ms", run, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return elapsed;
+    }
+
+    private double rowsPerSecond(long nanos) {
+        return (double) rows * rounds / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,81 @@
+package com.warehouse.filter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SimpleAuthFilterTest {
+
+    private SimpleAuthFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new SimpleAuthFilter();
+        ReflectionTestUtils.setField(filter, "adminUsername", "admin");
+        ReflectionTestUtils.setField(filter, "adminPassword", "secret");
+    }
+
+    @Test
+    void encodedJfrPathRequiresCredentials() throws Exception {
+        MockHttpServletResponse response = run(request("/actuator/%6Afr", "/actuator/jfr"));
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void encodedHotKeysPathRequiresCredentials() throws Exception {
+        MockHttpServletResponse response = run(request("/actuator/hot%6Beys", "/actuator/hotkeys"));
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void actuatorPathWithCredentialsPasses() throws Exception {
+        MockHttpServletRequest request = request("/actuator/jfr", "/actuator/jfr");
+        request.addHeader("Authorization", "Basic " + Base64.getEncoder()
+                .encodeToString("admin:secret".getBytes(StandardCharsets.UTF_8)));
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void authEndpointIsPublic() throws Exception {
+        MockHttpServletRequest request = request("/api/auth/login", "/api/auth/login");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void unnormalisedPathIsJudgedByItsRoute() throws Exception {
+        MockHttpServletRequest request = request("/api/auth/../stocks", "/api/stocks");
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String rawUri, String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", rawUri);
+        request.setServletPath(servletPath);
+        return request;
+    }
+}
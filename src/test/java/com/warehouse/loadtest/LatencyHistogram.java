@@ -0,0 +1,77 @@
+package com.warehouse.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in microseconds. Values below 64 have a bucket each; above that
+ * every power of two is split into 32 buckets, so a percentile is at most about 3% above the true
+ * value. Values beyond about 38 hours land in the last bucket.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = LINEAR_LIMIT + (MAX_EXPONENT - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * The upper bound of the bucket holding the {@code fraction} quantile, or 0 when empty.
+     */
+    long percentile(double fraction) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && value >= (1L << (MAX_EXPONENT + 1))) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - 5;
+        int sub = (int) (value >> shift);
+        return LINEAR_LIMIT + (exponent - 6) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = 6 + (index - LINEAR_LIMIT) / SUB_BUCKETS;
+        int sub = SUB_BUCKETS + (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        return ((long) (sub + 1) << (exponent - 5)) - 1;
+    }
+}
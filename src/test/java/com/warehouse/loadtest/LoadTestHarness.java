@@ -0,0 +1,482 @@
+package com.warehouse.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP load test for release checks, run as its own JVM against a separately started app on the
+ * dev (H2) profile or a local PostgreSQL, so it never competes with the app it measures. It lives
+ * in the test sources and is not part of the application jar:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.warehouse.loadtest.LoadTestHarness -Dloadtest.base-url=http://localhost:8080
+ * </pre>
+ * Settings are {@code loadtest.*} system properties; {@code base-url} is required. It drives the
+ * app with {@code users} closed-loop virtual users on the JDK HttpClient for {@code duration}
+ * after a {@code warmup}. Each iteration picks one scenario by weight:
+ * <ul>
+ *   <li>{@code dashboard}: category counts, active warehouses, low and out-of-stock lists,
+ *   transfers in transit and 30-day lane totals</li>
+ *   <li>{@code browse}: products and stocks filtered by brand, color and warehouse, a warehouse's
+ *   and a product's stocks, a product with its stocks</li>
+ *   <li>{@code scanner}: a burst of single-unit adds then the same number of removes on one stock
+ *   row, leaving it as it was</li>
+ *   <li>{@code transfers}: create, start, then complete or cancel a one-unit transfer</li>
+ *   <li>{@code search}: product and brand search by name, product by SKU</li>
+ * </ul>
+ * Afterwards it logs throughput, error rate and latency percentiles per request and overall, and
+ * checks them against {@code max-error-rate}, {@code max-p95}, {@code max-p99} and
+ * {@code min-throughput}. The process exits with status 0 on a pass and 1 on a failure, for use
+ * in a pipeline.
+ * <p>
+ * The test data is discovered through the API and must exist. Completed transfers move units
+ * between warehouses, so run it against a disposable database.
+ */
+public class LoadTestHarness {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestHarness.class);
+    private static final String PREFIX = "loadtest.";
+    private static final int MIN_TRANSFER_SOURCE_AVAILABLE = 10;
+
+    private enum Scenario { DASHBOARD, BROWSE, SCANNER, TRANSFERS, SEARCH }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final String authorization;
+    private final int users;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Duration thinkTime;
+    private final int scannerBurst;
+    private final Map<Scenario, Integer> weights = new EnumMap<>(Scenario.class);
+    private final double maxErrorRate;
+    private final Duration maxP95;
+    private final Duration maxP99;
+    private final double minThroughput;
+    private final HttpClient client;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<Scenario, LongAdder> iterations = new EnumMap<>(Scenario.class);
+    private final LatencyHistogram overall = new LatencyHistogram();
+    private final LongAdder overallErrors = new LongAdder();
+    private volatile long recordFrom;
+
+    LoadTestHarness(String baseUrl) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            throw new IllegalArgumentException("Set " + PREFIX + "base-url to the app under test, "
+                    + "for example -D" + PREFIX + "base-url=http://localhost:8080");
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (setting("username", "admin") + ":" + setting("password", "admin")).getBytes(StandardCharsets.UTF_8));
+        this.users = Math.max(1, Integer.parseInt(setting("users", "32")));
+        this.duration = Duration.parse(setting("duration", "PT60S"));
+        this.warmup = Duration.parse(setting("warmup", "PT10S"));
+        this.thinkTime = Duration.parse(setting("think-time", "PT0.05S"));
+        this.scannerBurst = Math.max(1, Integer.parseInt(setting("scanner-burst", "5")));
+        weights.put(Scenario.DASHBOARD, weight("dashboard", 15));
+        weights.put(Scenario.BROWSE, weight("browse", 30));
+        weights.put(Scenario.SCANNER, weight("scanner", 30));
+        weights.put(Scenario.TRANSFERS, weight("transfers", 10));
+        weights.put(Scenario.SEARCH, weight("search", 15));
+        this.maxErrorRate = Double.parseDouble(setting("max-error-rate", "0.01"));
+        this.maxP95 = Duration.parse(setting("max-p95", "PT0.5S"));
+        this.maxP99 = Duration.parse(setting("max-p99", "PT1S"));
+        this.minThroughput = Double.parseDouble(setting("min-throughput", "0"));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        for (Scenario scenario : Scenario.values()) {
+            iterations.put(scenario, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean passed;
+        try {
+            passed = new LoadTestHarness(System.getProperty(PREFIX + "base-url")).runLoadTest();
+        } catch (RuntimeException e) {
+            log.error("Load test could not run: {}", e.getMessage());
+            passed = false;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static String setting(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    private static int weight(String scenario, int defaultWeight) {
+        return Math.max(0, Integer.parseInt(setting("weights." + scenario, String.valueOf(defaultWeight))));
+    }
+
+    private boolean runLoadTest() throws InterruptedException {
+        TestData data = discover();
+        if (data.warehouseIds().size() < 2 || data.sources().isEmpty()) {
+            log.warn("Load test: transfers need two active warehouses and a stock row with {} available units; "
+                    + "the transfers scenario is skipped", MIN_TRANSFER_SOURCE_AVAILABLE);
+            weights.put(Scenario.TRANSFERS, 0);
+        }
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight == 0) {
+            throw new IllegalStateException("All scenario weights are zero");
+        }
+
+        log.info("Load test against {}: {} users for {} after {} warmup, scenario weights {}", baseUrl, users,
+                duration, warmup, weights);
+        long start = System.nanoTime();
+        recordFrom = start + warmup.toNanos();
+        long end = recordFrom + duration.toNanos();
+        List<Thread> threads = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            Thread thread = new Thread(() -> userLoop(data, totalWeight, end), "load-test-user-" + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - recordFrom) / 1e9;
+        return report(seconds);
+    }
+
+    private void userLoop(TestData data, int totalWeight, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+            Scenario scenario = pick(random.nextInt(totalWeight));
+            try {
+                switch (scenario) {
+                    case DASHBOARD -> dashboard();
+                    case BROWSE -> browse(data, random);
+                    case SCANNER -> scanner(data, random);
+                    case TRANSFERS -> transfer(data, random);
+                    case SEARCH -> search(data, random);
+                }
+            } catch (ScenarioAborted e) {
+                // The failed request is already counted; the rest of the scenario depends on it
+            }
+            if (System.nanoTime() >= recordFrom) {
+                iterations.get(scenario).increment();
+            }
+            if (!thinkTime.isZero()) {
+                try {
+                    Thread.sleep(thinkTime.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private Scenario pick(int roll) {
+        for (Map.Entry<Scenario, Integer> entry : weights.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return Scenario.BROWSE;
+    }
+
+    private void dashboard() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        get("GET /api/categories/with-counts", "/api/categories/with-counts");
+        get("GET /api/warehouses/active", "/api/warehouses/active");
+        get("GET /api/stocks/low-stock", "/api/stocks/low-stock");
+        get("GET /api/stocks/out-of-stock", "/api/stocks/out-of-stock");
+        get("GET /api/stock-transfers/status/{status}", "/api/stock-transfers/status/IN_TRANSIT");
+        get("GET /api/analytics/transfers/lanes", "/api/analytics/transfers/lanes?from=" + now.minusDays(30)
+                + "&to=" + now);
+    }
+
+    private void browse(TestData data, ThreadLocalRandom random) {
+        StockRef stock = data.stocks().get(random.nextInt(data.stocks().size()));
+        StringBuilder filter = new StringBuilder("/api/products/filter");
+        if (!data.brandIds().isEmpty()) {
+            filter.append("?brandId=").append(data.brandIds().get(random.nextInt(data.brandIds().size())));
+            if (!data.colorIds().isEmpty() && random.nextBoolean()) {
+                filter.append("&colorId=").append(data.colorIds().get(random.nextInt(data.colorIds().size())));
+            }
+        }
+        get("GET /api/products/filter", filter.toString());
+        String stockFilter = filter.toString().replace("/api/products/filter", "/api/stocks");
+        get("GET /api/stocks?filters", stockFilter + (stockFilter.contains("?") ? "&" : "?")
+                + "warehouseId=" + stock.warehouseId());
+        get("GET /api/stocks/warehouse/{id}", "/api/stocks/warehouse/" + stock.warehouseId());
+        get("GET /api/stocks/product/{id}", "/api/stocks/product/" + stock.productId());
+        get("GET /api/products/{id}/with-stocks", "/api/products/" + stock.productId() + "/with-stocks");
+    }
+
+    private void scanner(TestData data, ThreadLocalRandom random) {
+        StockRef stock = data.stocks().get(random.nextInt(data.stocks().size()));
+        int added = 0;
+        try {
+            for (int i = 0; i < scannerBurst; i++) {
+                send("PUT /api/stocks/{id}/add", "PUT", "/api/stocks/" + stock.stockId() + "/add?quantity=1", null);
+                added++;
+            }
+        } catch (ScenarioAborted e) {
+            // Fall through and take back the units that did get added
+        }
+        // Only take back what was added, so the row ends where it started
+        for (int i = 0; i < added; i++) {
+            send("PUT /api/stocks/{id}/remove", "PUT", "/api/stocks/" + stock.stockId() + "/remove?quantity=1", null);
+        }
+    }
+
+    private void transfer(TestData data, ThreadLocalRandom random) {
+        StockRef source = data.sources().get(random.nextInt(data.sources().size()));
+        Long destination;
+        do {
+            destination = data.warehouseIds().get(random.nextInt(data.warehouseIds().size()));
+        } while (destination.equals(source.warehouseId()));
+
+        String body = String.format("{\"product\":{\"id\":%d},\"sourceWarehouse\":{\"id\":%d},"
+                        + "\"destinationWarehouse\":{\"id\":%d},\"quantity\":1,\"driverName\":\"Load Test\","
+                        + "\"driverTcId\":\"00000000000\",\"driverPhone\":\"0000000000\",\"vehiclePlate\":\"LOADTEST\","
+                        + "\"notes\":\"Created by the load test\"}",
+                source.productId(), source.warehouseId(), destination);
+        JsonNode created = json(send("POST /api/stock-transfers", "POST", "/api/stock-transfers", body));
+        if (created == null || !created.hasNonNull("id")) {
+            return;
+        }
+        long id = created.get("id").asLong();
+        if (send("POST /api/stock-transfers/{id}/start", "POST", "/api/stock-transfers/" + id + "/start", "") == null) {
+            return;
+        }
+        // Two thirds arrive, one third is called off
+        if (random.nextInt(3) < 2) {
+            send("POST /api/stock-transfers/{id}/complete", "POST", "/api/stock-transfers/" + id + "/complete", "");
+        } else {
+            send("POST /api/stock-transfers/{id}/cancel", "POST", "/api/stock-transfers/" + id + "/cancel", "");
+        }
+    }
+
+    private void search(TestData data, ThreadLocalRandom random) {
+        StockRef stock = data.stocks().get(random.nextInt(data.stocks().size()));
+        String term = data.searchTerms().isEmpty() ? "a"
+                : data.searchTerms().get(random.nextInt(data.searchTerms().size()));
+        get("GET /api/products/search", "/api/products/search?name=" + encode(term));
+        get("GET /api/brands/search", "/api/brands/search?name=" + encode(term.substring(0, Math.min(3, term.length()))));
+        if (stock.sku() != null) {
+            get("GET /api/products/sku/{sku}", "/api/products/sku/" + encode(stock.sku()));
+        }
+    }
+
+    private String get(String label, String path) {
+        return send(label, "GET", path, null);
+    }
+
+    /**
+     * Sends one request and records it under {@code label}. Returns the body of a 2xx response;
+     * a failed GET returns null and a failed write throws {@link ScenarioAborted}.
+     */
+    private String send(String label, String method, String path, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", authorization);
+        if (body == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body));
+        }
+        long started = System.nanoTime();
+        boolean ok = false;
+        String responseBody = null;
+        try {
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            ok = response.statusCode() / 100 == 2;
+            responseBody = ok ? response.body() : null;
+        } catch (IOException e) {
+            log.debug("Load test request {} failed: {}", label, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long finished = System.nanoTime();
+        if (started >= recordFrom) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(finished - started);
+            Endpoint endpoint = endpoints.computeIfAbsent(label, l -> new Endpoint());
+            endpoint.latency.record(micros);
+            overall.record(micros);
+            if (!ok) {
+                endpoint.errors.increment();
+                overallErrors.increment();
+            }
+        }
+        if (!ok && !"GET".equals(method)) {
+            throw new ScenarioAborted();
+        }
+        return responseBody;
+    }
+
+    private TestData discover() {
+        List<Long> warehouseIds = new ArrayList<>();
+        for (JsonNode warehouse : required("/api/warehouses/active")) {
+            warehouseIds.add(warehouse.get("id").asLong());
+        }
+        List<StockRef> stocks = new ArrayList<>();
+        List<StockRef> sources = new ArrayList<>();
+        List<String> searchTerms = new ArrayList<>();
+        for (JsonNode stock : required("/api/stocks")) {
+            JsonNode product = stock.path("product");
+            long warehouseId = stock.path("warehouse").path("id").asLong();
+            if (!product.hasNonNull("id") || !warehouseIds.contains(warehouseId)) {
+                continue;
+            }
+            StockRef ref = new StockRef(stock.get("id").asLong(), product.get("id").asLong(), warehouseId,
+                    product.path("sku").asText(null));
+            stocks.add(ref);
+            int available = stock.path("quantity").asInt() - stock.path("reservedQuantity").asInt()
+                    - stock.path("consignedQuantity").asInt();
+            if (available >= MIN_TRANSFER_SOURCE_AVAILABLE) {
+                sources.add(ref);
+            }
+            String name = product.path("name").asText("");
+            String word = name.split("\\s+")[0];
+            if (word.length() >= 3 && searchTerms.size() < 100 && !searchTerms.contains(word)) {
+                searchTerms.add(word);
+            }
+        }
+        if (stocks.isEmpty()) {
+            throw new IllegalStateException("No stock rows in active warehouses at " + baseUrl);
+        }
+        List<Long> brandIds = ids(required("/api/brands/active"));
+        List<Long> colorIds = ids(required("/api/colors/active"));
+        log.info("Load test data: {} warehouses, {} stock rows ({} transfer sources), {} brands, {} colors",
+                warehouseIds.size(), stocks.size(), sources.size(), brandIds.size(), colorIds.size());
+        return new TestData(warehouseIds, stocks, sources, brandIds, colorIds, searchTerms);
+    }
+
+    private JsonNode required(String path) {
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Authorization", authorization).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(path + " answered " + response.statusCode());
+            }
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + baseUrl + path + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading " + path, e);
+        }
+    }
+
+    private JsonNode json(String body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean report(double seconds) {
+        long requests = overall.count();
+        double throughput = requests / seconds;
+        double errorRate = requests == 0 ? 1.0 : overallErrors.sum() / (double) requests;
+
+        StringBuilder table = new StringBuilder(String.format("%n%-45s %9s %9s %7s %9s %9s %9s %9s%n",
+                "request", "count", "req/s", "err%", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        new TreeMap<>(endpoints).forEach((label, endpoint) -> table.append(row(label, endpoint.latency,
+                endpoint.errors.sum(), seconds)));
+        table.append(row("ALL", overall, overallErrors.sum(), seconds));
+        Map<Scenario, Long> completed = new EnumMap<>(Scenario.class);
+        iterations.forEach((scenario, count) -> completed.put(scenario, count.sum()));
+        log.info("Load test results over {} s, scenario iterations {}:{}", String.format("%.1f", seconds), completed,
+                table);
+
+        List<String> failures = new ArrayList<>();
+        if (requests == 0) {
+            failures.add("no requests completed");
+        }
+        if (errorRate > maxErrorRate) {
+            failures.add(String.format("error rate %.2f%% above %.2f%%", errorRate * 100, maxErrorRate * 100));
+        }
+        long p95 = overall.percentile(0.95);
+        long p99 = overall.percentile(0.99);
+        if (p95 > maxP95.toNanos() / 1000) {
+            failures.add(String.format("p95 %.1f ms above %d ms", p95 / 1000.0, maxP95.toMillis()));
+        }
+        if (p99 > maxP99.toNanos() / 1000) {
+            failures.add(String.format("p99 %.1f ms above %d ms", p99 / 1000.0, maxP99.toMillis()));
+        }
+        if (throughput < minThroughput) {
+            failures.add(String.format("throughput %.1f req/s below %.1f", throughput, minThroughput));
+        }
+        if (failures.isEmpty()) {
+            log.info("Load test PASSED: {} req/s, {}% errors, p95 {} ms, p99 {} ms", String.format("%.1f", throughput),
+                    String.format("%.2f", errorRate * 100), p95 / 1000.0, p99 / 1000.0);
+            return true;
+        }
+        failures.forEach(failure -> log.error("Load test FAILED: {}", failure));
+        return false;
+    }
+
+    private static String row(String label, LatencyHistogram latency, long errors, double seconds) {
+        long count = latency.count();
+        return String.format("%-45s %9d %9.1f %7.2f %9.1f %9.1f %9.1f %9.1f%n", label, count, count / seconds,
+                count == 0 ? 0.0 : errors * 100.0 / count, latency.percentile(0.50) / 1000.0,
+                latency.percentile(0.95) / 1000.0, latency.percentile(0.99) / 1000.0, latency.max() / 1000.0);
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode node : array) {
+            if (node.hasNonNull("id")) {
+                ids.add(node.get("id").asLong());
+            }
+        }
+        return ids;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private static final class ScenarioAborted extends RuntimeException {
+        ScenarioAborted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private record StockRef(long stockId, long productId, long warehouseId, String sku) {
+    }
+
+    private record TestData(List<Long> warehouseIds, List<StockRef> stocks, List<StockRef> sources,
+                            List<Long> brandIds, List<Long> colorIds, List<String> searchTerms) {
+    }
+}
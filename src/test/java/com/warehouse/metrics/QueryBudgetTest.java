@@ -0,0 +1,117 @@
+package com.warehouse.metrics;
+
+import com.warehouse.entity.Category;
+import com.warehouse.entity.Product;
+import com.warehouse.entity.Stock;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.entity.Warehouse;
+import com.warehouse.repository.CategoryRepository;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.WarehouseRepository;
+import com.warehouse.service.StockService;
+import com.warehouse.service.StockTransferService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins query budgets with {@link QueryCount}. Filters are left out, so the count is the
+ * controller's alone.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+class QueryBudgetTest {
+
+    private static final int TRANSFERS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockTransferService stockTransferService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void createTransfers() {
+        Category category = new Category();
+        category.setName("Budget category " + System.nanoTime());
+        category = categoryRepository.save(category);
+        Warehouse source = warehouse("Budget source");
+        Warehouse destination = warehouse("Budget destination");
+
+        // A product and a lane per transfer, so lazy loads would show up as repeats
+        productIds.clear();
+        for (int i = 0; i < TRANSFERS; i++) {
+            Product product = new Product();
+            product.setName("Budget product " + i);
+            product.setSku("BUDGET-" + System.nanoTime());
+            product.setPrice(BigDecimal.TEN);
+            product.setCategory(category);
+            product = productRepository.save(product);
+            productIds.add(product.getId());
+            stockService.createStock(new Stock(product, source, 10));
+
+            StockTransfer transfer = new StockTransfer();
+            transfer.setProduct(product);
+            transfer.setSourceWarehouse(source);
+            transfer.setDestinationWarehouse(destination);
+            transfer.setQuantity(1);
+            transfer.setDriverName("Budget Test");
+            transfer.setDriverTcId("00000000000");
+            transfer.setDriverPhone("0000000000");
+            transfer.setVehiclePlate("BUDGET");
+            stockTransferService.createTransfer(transfer);
+        }
+    }
+
+    @Test
+    void listingTransfersIsOneStatement() throws Exception {
+        try (QueryCount.Scope scope = QueryCount.start()) {
+            mockMvc.perform(get("/api/stock-transfers")).andExpect(status().isOk());
+            scope.assertExactly(1).assertNoRepeatsAbove(1);
+        }
+    }
+
+    @Test
+    void exceededBudgetFails() {
+        try (QueryCount.Scope scope = QueryCount.start()) {
+            for (Long productId : productIds) {
+                productRepository.findById(productId);
+            }
+            assertThrows(QueryBudgetExceededError.class, () -> scope.assertAtMost(1));
+            assertThrows(QueryBudgetExceededError.class, () -> scope.assertExactly(1));
+            assertThrows(QueryBudgetExceededError.class, () -> scope.assertNoRepeatsAbove(1));
+        }
+    }
+
+    private Warehouse warehouse(String name) {
+        Warehouse warehouse = new Warehouse();
+        warehouse.setName(name);
+        warehouse.setLocation("Test");
+        return warehouseRepository.save(warehouse);
+    }
+}
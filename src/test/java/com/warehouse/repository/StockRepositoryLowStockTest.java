@@ -0,0 +1,72 @@
+package com.warehouse.repository;
+
+import com.warehouse.dto.StockLevelRow;
+import com.warehouse.entity.Category;
+import com.warehouse.entity.Product;
+import com.warehouse.entity.Stock;
+import com.warehouse.entity.Warehouse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class StockRepositoryLowStockTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void nullMinimumCountsAsZero() {
+        Category category = new Category();
+        category.setName("Tools");
+        entityManager.persist(category);
+
+        Warehouse warehouse = new Warehouse();
+        warehouse.setName("Main");
+        warehouse.setLocation("Istanbul");
+        entityManager.persist(warehouse);
+
+        Stock empty = stock(product(category, "SKU-1"), warehouse, 0, null);
+        stock(product(category, "SKU-2"), warehouse, 5, null);
+        Stock belowMinimum = stock(product(category, "SKU-3"), warehouse, 3, 5);
+        entityManager.flush();
+
+        Set<Long> expected = Set.of(empty.getId(), belowMinimum.getId());
+        try (Stream<StockLevelRow> rows = stockRepository.streamLowStockLevels()) {
+            assertEquals(expected, rows.map(StockLevelRow::stockId).collect(Collectors.toSet()));
+        }
+        assertEquals(expected, ids(stockRepository.findLowStockItems()));
+        assertEquals(expected, ids(stockRepository.findLowStockItemsByWarehouse(warehouse)));
+    }
+
+    private Product product(Category category, String sku) {
+        Product product = new Product();
+        product.setName(sku);
+        product.setSku(sku);
+        product.setPrice(BigDecimal.TEN);
+        product.setCategory(category);
+        return entityManager.persist(product);
+    }
+
+    private Stock stock(Product product, Warehouse warehouse, int quantity, Integer minStockLevel) {
+        Stock stock = new Stock(product, warehouse, quantity);
+        stock.setMinStockLevel(minStockLevel);
+        return entityManager.persist(stock);
+    }
+
+    private static Set<Long> ids(List<Stock> stocks) {
+        return stocks.stream().map(Stock::getId).collect(Collectors.toSet());
+    }
+}
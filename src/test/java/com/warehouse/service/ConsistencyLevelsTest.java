@@ -0,0 +1,40 @@
+package com.warehouse.service;
+
+import com.warehouse.enums.ConsistencyViolationType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistencyLevelsTest {
+
+    @Test
+    void moreInTransitThanQuantityIsNotRepairable() {
+        ConsistencyCheckService.Levels levels = new ConsistencyCheckService.Levels(5, 8, 0, 10);
+        assertTrue(levels.violations().contains(ConsistencyViolationType.RESERVED_ABOVE_QUANTITY));
+        // Raising reserved to the in-transit units would still leave it above quantity
+        assertTrue(levels.repaired().violations().contains(ConsistencyViolationType.RESERVED_ABOVE_QUANTITY));
+        assertFalse(levels.repairable());
+    }
+
+    @Test
+    void reservedAboveQuantityIsLoweredToQuantity() {
+        ConsistencyCheckService.Levels levels = new ConsistencyCheckService.Levels(5, 8, 0, 3);
+        assertTrue(levels.repairable());
+        assertEquals(new ConsistencyCheckService.Levels(5, 5, 0, 3), levels.repaired());
+    }
+
+    @Test
+    void reservedBelowInTransitIsRaised() {
+        ConsistencyCheckService.Levels levels = new ConsistencyCheckService.Levels(10, 2, 0, 4);
+        assertTrue(levels.repairable());
+        assertEquals(4, levels.repaired().reserved());
+    }
+
+    @Test
+    void consignmentThatLeavesNothingAvailableIsNotRepairable() {
+        ConsistencyCheckService.Levels levels = new ConsistencyCheckService.Levels(5, -1, 7, 0);
+        assertFalse(levels.repairable());
+    }
+}
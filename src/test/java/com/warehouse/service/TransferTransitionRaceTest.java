@@ -0,0 +1,197 @@
+package com.warehouse.service;
+
+import com.warehouse.entity.Category;
+import com.warehouse.entity.Product;
+import com.warehouse.entity.Stock;
+import com.warehouse.entity.StockTransfer;
+import com.warehouse.entity.Warehouse;
+import com.warehouse.enums.TransferStatus;
+import com.warehouse.repository.CategoryRepository;
+import com.warehouse.repository.ProductRepository;
+import com.warehouse.repository.StockRepository;
+import com.warehouse.repository.StockTransferRepository;
+import com.warehouse.repository.WarehouseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Races start, complete and cancel of the same transfer from many threads, one transfer after
+ * another so the stock checks only see races between transitions of one transfer. Every transfer
+ * must take at most one terminal transition, and source and destination stock must move by
+ * exactly the completed and in-transit quantities.
+ */
+@SpringBootTest
+class TransferTransitionRaceTest {
+
+    private static final int TRANSFERS = 20;
+    private static final int RACERS = 12;
+    private static final int QUANTITY = 2;
+    private static final int SOURCE_QUANTITY = 1000;
+
+    private enum Op { START, COMPLETE, CANCEL }
+
+    @Autowired
+    private StockTransferService stockTransferService;
+
+    @Autowired
+    private TransferTransitionService transferTransitionService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockTransferRepository stockTransferRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Test
+    void everyTransferTakesAtMostOneTerminalTransition() throws Exception {
+        Product product = product();
+        Warehouse source = warehouse("Race source");
+        Warehouse destination = warehouse("Race destination");
+        stockService.createStock(new Stock(product, source, SOURCE_QUANTITY));
+
+        Map<TransferStatus, Integer> finalStatuses = new EnumMap<>(TransferStatus.class);
+        List<String> violations = new ArrayList<>();
+        int transitions = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(RACERS);
+        try {
+            for (int i = 0; i < TRANSFERS; i++) {
+                Long transferId = stockTransferService.createTransfer(draft(product, source, destination)).getId();
+                Map<Op, Integer> wins = race(pool, transferId, i);
+                TransferStatus status = stockTransferRepository.findById(transferId)
+                        .map(StockTransfer::getStatus)
+                        .orElseThrow();
+                finalStatuses.merge(status, 1, Integer::sum);
+                checkWins(transferId, status, wins, violations);
+                transitions += wins.values().stream().mapToInt(Integer::intValue).sum();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(List.of(), violations);
+        assertTrue(transitions > 0, "No transition succeeded");
+
+        int completedUnits = finalStatuses.getOrDefault(TransferStatus.COMPLETED, 0) * QUANTITY;
+        int inTransitUnits = finalStatuses.getOrDefault(TransferStatus.IN_TRANSIT, 0) * QUANTITY;
+        Stock sourceStock = stockRepository.findByProductAndWarehouse(product, source).orElseThrow();
+        int destinationQuantity = stockRepository.findByProductAndWarehouse(product, destination)
+                .map(Stock::getQuantity)
+                .orElse(0);
+        assertEquals(SOURCE_QUANTITY - completedUnits, sourceStock.getQuantity(), "source quantity");
+        assertEquals(inTransitUnits, sourceStock.getReservedQuantity(), "source reserved");
+        assertEquals(completedUnits, destinationQuantity, "destination quantity");
+    }
+
+    // Releases all racers for one transfer at the same instant and returns the successful ops
+    private Map<Op, Integer> race(ExecutorService pool, Long transferId, int round) throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Future<Op>> futures = new ArrayList<>(RACERS);
+        Op[] ops = Op.values();
+        for (int k = 0; k < RACERS; k++) {
+            Op op = ops[(k + round) % ops.length];
+            futures.add(pool.submit(() -> {
+                gate.await();
+                try {
+                    switch (op) {
+                        case START -> transferTransitionService.start(transferId);
+                        case COMPLETE -> transferTransitionService.complete(transferId);
+                        case CANCEL -> transferTransitionService.cancel(transferId);
+                    }
+                    return op;
+                } catch (RuntimeException e) {
+                    // Losing the race, or a transition the status no longer allows, rolls back
+                    return null;
+                }
+            }));
+        }
+        gate.countDown();
+
+        Map<Op, Integer> wins = new EnumMap<>(Op.class);
+        for (Future<Op> future : futures) {
+            Op won = future.get();
+            if (won != null) {
+                wins.merge(won, 1, Integer::sum);
+            }
+        }
+        return wins;
+    }
+
+    private static void checkWins(Long transferId, TransferStatus status, Map<Op, Integer> wins,
+                                  List<String> violations) {
+        int starts = wins.getOrDefault(Op.START, 0);
+        int completes = wins.getOrDefault(Op.COMPLETE, 0);
+        int cancels = wins.getOrDefault(Op.CANCEL, 0);
+        if (starts > 1 || completes + cancels > 1) {
+            violations.add(String.format("transfer %d: %d starts, %d completes, %d cancels succeeded",
+                    transferId, starts, completes, cancels));
+        }
+        boolean consistent = switch (status) {
+            case PENDING -> starts == 0 && completes + cancels == 0;
+            case IN_TRANSIT -> starts == 1 && completes + cancels == 0;
+            case COMPLETED -> completes == 1;
+            case CANCELLED -> cancels == 1;
+        };
+        if (!consistent) {
+            violations.add(String.format("transfer %d ended %s after %d starts, %d completes, %d cancels",
+                    transferId, status, starts, completes, cancels));
+        }
+    }
+
+    private Product product() {
+        Category category = new Category();
+        category.setName("Race category " + System.nanoTime());
+        category = categoryRepository.save(category);
+
+        Product product = new Product();
+        product.setName("Race product");
+        product.setSku("RACE-" + System.nanoTime());
+        product.setPrice(BigDecimal.TEN);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+
+    private Warehouse warehouse(String name) {
+        Warehouse warehouse = new Warehouse();
+        warehouse.setName(name);
+        warehouse.setLocation("Test");
+        return warehouseRepository.save(warehouse);
+    }
+
+    private static StockTransfer draft(Product product, Warehouse source, Warehouse destination) {
+        StockTransfer transfer = new StockTransfer();
+        transfer.setProduct(product);
+        transfer.setSourceWarehouse(source);
+        transfer.setDestinationWarehouse(destination);
+        transfer.setQuantity(QUANTITY);
+        transfer.setDriverName("Race Test");
+        transfer.setDriverTcId("00000000000");
+        transfer.setDriverPhone("0000000000");
+        transfer.setVehiclePlate("RACE");
+        return transfer;
+    }
+}